@@ -5,6 +5,7 @@ import com.aquila.chess.strategy.mcts.inputs.InputRecord;
 import com.aquila.chess.strategy.mcts.inputs.InputsManager;
 import com.aquila.chess.strategy.mcts.inputs.lc0.Lc0InputsManagerImpl;
 import com.aquila.chess.strategy.mcts.utils.MovesUtils;
+import com.chess.engine.bitboards.BitBoardV2;
 import com.chess.engine.classic.Alliance;
 import com.chess.engine.classic.board.Board;
 import com.chess.engine.classic.board.Move;
@@ -59,12 +60,12 @@ public abstract class AbstractGame {
             this.strategyBlack = strategyBlack;
             assert (strategyWhite.getAlliance() == Alliance.WHITE);
             assert (strategyBlack.getAlliance() == Alliance.BLACK);
-            nextStrategy = switch (this.board.currentPlayer().getAlliance()) {
+            nextStrategy = switch (getBoard().currentPlayer().getAlliance()) {
                 case WHITE -> strategyWhite;
                 case BLACK -> strategyBlack;
             };
         }
-        moveOpponent = switch (this.board.currentPlayer().getAlliance()) {
+        moveOpponent = switch (getBoard().currentPlayer().getAlliance()) {
             case WHITE -> new Move.InitMove(board, Alliance.BLACK);
             case BLACK -> new Move.InitMove(board, Alliance.WHITE);
         };
@@ -72,7 +73,7 @@ public abstract class AbstractGame {
     }
 
     public Alliance getCurrentPLayerColor() {
-        return this.board.currentPlayer().getAlliance();
+        return getBoard().currentPlayer().getAlliance();
     }
 
     public boolean isInitialPosition() {
@@ -94,11 +95,11 @@ public abstract class AbstractGame {
     }
 
     public Player getNextPlayer() {
-        return this.board.currentPlayer();
+        return getBoard().currentPlayer();
     }
 
     public Player getPlayer(final Alliance alliance) {
-        return alliance.choosePlayerByAlliance(this.board.whitePlayer(), this.board.blackPlayer());
+        return alliance.choosePlayerByAlliance(getBoard().whitePlayer(), getBoard().blackPlayer());
     }
 
     public long hashCode(final Alliance moveColor, final Move move) {
@@ -147,27 +148,24 @@ public abstract class AbstractGame {
     }
 
     private boolean isThereEnoughMaterials(final Board board) {
-        long nbWhitePawn = board.whitePlayer().getActivePieces().stream().filter(piece -> piece.getPieceType() == Piece.PieceType.PAWN).count();
-        long nbBlackPawn = board.blackPlayer().getActivePieces().stream().filter(piece -> piece.getPieceType() == Piece.PieceType.PAWN).count();
-        if (nbWhitePawn + nbBlackPawn > 0) return true;
-        long nbWhitePieces = board.whitePlayer().getActivePieces().size();
-        long nbBlackPieces = board.blackPlayer().getActivePieces().size();
-        long nbWhiteKnight = board.whitePlayer().getActivePieces().stream().filter(piece -> piece.getPieceType() == Piece.PieceType.KNIGHT).count();
-        long nbBlackKnight = board.blackPlayer().getActivePieces().stream().filter(piece -> piece.getPieceType() == Piece.PieceType.KNIGHT).count();
-        long nbWhiteBishop = board.whitePlayer().getActivePieces().stream().filter(piece -> piece.getPieceType() == Piece.PieceType.BISHOP).count();
-        long nbBlackBishop = board.blackPlayer().getActivePieces().stream().filter(piece -> piece.getPieceType() == Piece.PieceType.BISHOP).count();
-
-        final boolean whiteKingAlone = nbWhitePieces == 1;
-        final boolean whiteHasOnly2knights = nbWhitePieces == 3 && nbWhiteKnight == 2;
-        final boolean whiteHasOnly1knight = nbWhitePieces == 2 && nbWhiteKnight == 1;
-        final boolean whiteHasOnly1Bishop = nbWhitePieces == 2 && nbWhiteBishop == 1;
-
-        final boolean blackKingAlone = board.blackPlayer().getActivePieces().size() == 1;
-        final boolean blackHasOnly2knights = board.blackPlayer().getActivePieces().size() == 3 && board.blackPlayer().getActivePieces().stream().filter(piece -> piece.getPieceType() == Piece.PieceType.KNIGHT).count() == 2;
-        final boolean blackHasOnly1knight = nbBlackPieces == 2 && nbBlackKnight == 1;
-        final boolean blackHasOnly1Bishop = nbBlackPieces == 2 && nbBlackBishop == 1;
-
-        return (!whiteKingAlone && !whiteHasOnly2knights && !whiteHasOnly1knight && !whiteHasOnly1Bishop) || (!blackKingAlone && !blackHasOnly2knights && !blackHasOnly1knight && !blackHasOnly1Bishop);
+        final BitBoardV2 bitBoard = board.getBitBoard();
+        if ((bitBoard.getPieces(Alliance.WHITE, Piece.PieceType.PAWN) | bitBoard.getPieces(Alliance.BLACK, Piece.PieceType.PAWN)) != 0L)
+            return true;
+        return isThereEnoughMaterials(bitBoard, Alliance.WHITE) || isThereEnoughMaterials(bitBoard, Alliance.BLACK);
+    }
+
+    /**
+     * @return false if the side has only its king, its king and one knight or bishop, or its king and two knights
+     */
+    private static boolean isThereEnoughMaterials(final BitBoardV2 bitBoard, final Alliance alliance) {
+        final int nbPieces = Long.bitCount(bitBoard.getPieces(alliance));
+        final int nbKnights = Long.bitCount(bitBoard.getPieces(alliance, Piece.PieceType.KNIGHT));
+        final int nbBishops = Long.bitCount(bitBoard.getPieces(alliance, Piece.PieceType.BISHOP));
+        final boolean kingAlone = nbPieces == 1;
+        final boolean hasOnly2knights = nbPieces == 3 && nbKnights == 2;
+        final boolean hasOnly1knight = nbPieces == 2 && nbKnights == 1;
+        final boolean hasOnly1Bishop = nbPieces == 2 && nbBishops == 1;
+        return !kingAlone && !hasOnly2knights && !hasOnly1knight && !hasOnly1Bishop;
     }
 
     /**
@@ -34,7 +34,7 @@ public class Game extends AbstractGame {
 
     public GameStatus play() throws Exception {
         assert (nextStrategy != null);
-        List<Move> possibleMoves = getNextPlayer().getLegalMoves(Move.MoveStatus.DONE);
+        List<Move> possibleMoves = getNextPlayer().generateLegalMoves();
         log.info("[{}] current player:[{}] legal move:[{}] {}",
                 this.moves.size(),
                 getNextPlayer().getAlliance(),
@@ -86,7 +86,18 @@ public class MainTrainingAGZTest {
                     .withTrainGame(trainGame)
                     .withNbSearchCalls(MCTSConfig.mctsConfig.getMctsWhiteStrategyConfig().getSteps())
                     .withNbThread(MCTSConfig.mctsConfig.getMctsWhiteStrategyConfig().getThreads())
-                    .withDirichlet((step) -> MCTSConfig.mctsConfig.getMctsWhiteStrategyConfig().isDirichlet());
+                    .withDirichlet((step) -> MCTSConfig.mctsConfig.getMctsWhiteStrategyConfig().isDirichlet())
+                    .withTreeReuse(MCTSConfig.mctsConfig.getMctsWhiteStrategyConfig().isReuseTree())
+                    .withReuseDirichlet((step) -> MCTSConfig.mctsConfig.getMctsWhiteStrategyConfig().isReuseDirichlet())
+                    .withTranspositions(MCTSConfig.mctsConfig.getMctsWhiteStrategyConfig().isTranspositions())
+                    .withMaxNodes(MCTSConfig.mctsConfig.getMctsWhiteStrategyConfig().getMaxNodes())
+                    .withLeavesPerWalker(MCTSConfig.mctsConfig.getMctsWhiteStrategyConfig().getLeavesPerWalker())
+                    .withSmartStop(MCTSConfig.mctsConfig.getMctsWhiteStrategyConfig().isSmartStop())
+                    .withBlockingEvaluation(MCTSConfig.mctsConfig.getMctsWhiteStrategyConfig().isBlockingEvaluation())
+                    .withPonder(MCTSConfig.mctsConfig.getMctsWhiteStrategyConfig().isPonder())
+                    .withRootParallel(MCTSConfig.mctsConfig.getMctsWhiteStrategyConfig().getRootTrees())
+                    .withGameClock(MCTSConfig.mctsConfig.getMctsWhiteStrategyConfig().getGameMillis(),
+                            MCTSConfig.mctsConfig.getMctsWhiteStrategyConfig().getIncrementMillis());
             final MCTSStrategy blackStrategy = new MCTSStrategy(
                     game,
                     Alliance.BLACK,
@@ -97,7 +108,18 @@ public class MainTrainingAGZTest {
                     .withTrainGame(trainGame)
                     .withNbSearchCalls(MCTSConfig.mctsConfig.getMctsBlackStrategyConfig().getSteps())
                     .withNbThread(MCTSConfig.mctsConfig.getMctsBlackStrategyConfig().getThreads())
-                    .withDirichlet((step) -> MCTSConfig.mctsConfig.getMctsBlackStrategyConfig().isDirichlet());
+                    .withDirichlet((step) -> MCTSConfig.mctsConfig.getMctsBlackStrategyConfig().isDirichlet())
+                    .withTreeReuse(MCTSConfig.mctsConfig.getMctsBlackStrategyConfig().isReuseTree())
+                    .withReuseDirichlet((step) -> MCTSConfig.mctsConfig.getMctsBlackStrategyConfig().isReuseDirichlet())
+                    .withTranspositions(MCTSConfig.mctsConfig.getMctsBlackStrategyConfig().isTranspositions())
+                    .withMaxNodes(MCTSConfig.mctsConfig.getMctsBlackStrategyConfig().getMaxNodes())
+                    .withLeavesPerWalker(MCTSConfig.mctsConfig.getMctsBlackStrategyConfig().getLeavesPerWalker())
+                    .withSmartStop(MCTSConfig.mctsConfig.getMctsBlackStrategyConfig().isSmartStop())
+                    .withBlockingEvaluation(MCTSConfig.mctsConfig.getMctsBlackStrategyConfig().isBlockingEvaluation())
+                    .withPonder(MCTSConfig.mctsConfig.getMctsBlackStrategyConfig().isPonder())
+                    .withRootParallel(MCTSConfig.mctsConfig.getMctsBlackStrategyConfig().getRootTrees())
+                    .withGameClock(MCTSConfig.mctsConfig.getMctsBlackStrategyConfig().getGameMillis(),
+                            MCTSConfig.mctsConfig.getMctsBlackStrategyConfig().getIncrementMillis());
             game.setup(whiteStrategy, blackStrategy);
             Game.GameStatus gameStatus;
             do {
@@ -34,6 +34,12 @@ public class MCTSConfig {
     @Getter
     private double epsilon = 0.25;
 
+    /**
+     * max time a NN job waits for a full batch before the inference dispatcher sends it, <= 0 to disable the dispatcher
+     */
+    @Getter
+    private long inferenceMaxLatencyMillis = 0;
+
     @Getter
     private MCTSStrategyConfig mctsWhiteStrategyConfig;
 
@@ -54,6 +60,7 @@ public class MCTSConfig {
             this.fpuReduction = get("fpuReduction", Double.class, fpuReduction);
             this.dirichletNoise = get("dirichletNoise", Double.class, dirichletNoise);
             this.epsilon = get("epsilon", Double.class, epsilon);
+            this.inferenceMaxLatencyMillis = get("inferenceMaxLatencyMillis", Long.class, inferenceMaxLatencyMillis);
             mctsWhiteStrategyConfig = new MCTSStrategyConfig("white", properties);
             mctsBlackStrategyConfig = new MCTSStrategyConfig("black", properties);
         } catch (IOException e) {
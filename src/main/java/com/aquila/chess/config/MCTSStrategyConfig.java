@@ -19,9 +19,20 @@ public class MCTSStrategyConfig {
 
     private String nnReference = null;
     private boolean dirichlet = true;
+    private boolean reuseTree = false;
+    private boolean reuseDirichlet = false;
+    private boolean transpositions = false;
+    private int maxNodes = -1;
+    private int leavesPerWalker = 1;
+    private boolean smartStop = false;
+    private boolean blockingEvaluation = false;
+    private boolean ponder = false;
+    private int rootTrees = 1;
     private int threads = -1;
     private int steps = 800;
     private long millisPerStep = -1;
+    private long gameMillis = -1;
+    private long incrementMillis = 0;
     private int batch = 256;
     private int cpuAlgoNumberOfMoves = -1;
     private double maxCpuct = 2.5;
@@ -32,18 +43,34 @@ public class MCTSStrategyConfig {
         this.properties = properties;
         this.nnReference = get(color + ".nnReference", String.class, null);
         this.dirichlet = get(color + ".dirichlet", Boolean.class, dirichlet);
+        this.reuseTree = get(color + ".reuseTree", Boolean.class, reuseTree);
+        this.reuseDirichlet = get(color + ".reuseDirichlet", Boolean.class, reuseDirichlet);
+        this.transpositions = get(color + ".transpositions", Boolean.class, transpositions);
+        this.maxNodes = get(color + ".maxNodes", Integer.class, maxNodes);
+        this.leavesPerWalker = get(color + ".leavesPerWalker", Integer.class, leavesPerWalker);
+        this.smartStop = get(color + ".smartStop", Boolean.class, smartStop);
+        this.blockingEvaluation = get(color + ".blockingEvaluation", Boolean.class, blockingEvaluation);
+        this.ponder = get(color + ".ponder", Boolean.class, ponder);
+        this.rootTrees = get(color + ".rootTrees", Integer.class, rootTrees);
         this.steps = get(color + ".steps", Integer.class, steps);
         this.threads = get(color + ".threads", Integer.class, threads);
         if (this.threads < 1) threads = Runtime.getRuntime().availableProcessors() - 4;
         this.batch = get(color + ".batch", Integer.class, batch);
         this.millisPerStep = get(color + ".millisPerStep", Long.class, millisPerStep);
+        this.gameMillis = get(color + ".gameMillis", Long.class, gameMillis);
+        this.incrementMillis = get(color + ".incrementMillis", Long.class, incrementMillis);
         this.cpuAlgoNumberOfMoves = get(color + ".cpuAlgoNumberOfMoves", Integer.class, -1);
         this.maxCpuct = get(color + ".maxCpuct", Double.class, maxCpuct);
     }
 
     private <T> T get(String property, Class<T> clazz, T defaultValue) {
         try {
-            return get(property, clazz);
+            T value = get(property, clazz);
+            if (value == null) {
+                log.debug("property:{} not set, using default value:{}", property, defaultValue);
+                return defaultValue;
+            }
+            return value;
         } catch (NoSuchMethodException | InvocationTargetException | InstantiationException |
                  IllegalAccessException e) {
             log.error("Error getting property:" + property, e);
@@ -53,6 +80,7 @@ public class MCTSStrategyConfig {
 
     private <T> T get(String property, Class<T> clazz) throws NoSuchMethodException, InvocationTargetException, InstantiationException, IllegalAccessException {
         String value = properties.getProperty(property);
+        if (value == null) return null;
         if (clazz == String.class) return (T) value;
         Method method = clazz.getDeclaredMethod("valueOf", String.class);
         return clazz.cast(method.invoke(null, value));
@@ -131,6 +131,15 @@ public class CacheValue implements Serializable {
         this.nodes.clear();
     }
 
+    /**
+     * Disconnect a node removed from the tree
+     *
+     * @param path the path of the node when it was connected
+     */
+    public void removeNode(final MCTSNodePath path, final MCTSNode node) {
+        this.nodes.remove(path, node);
+    }
+
     /**
      * @return true if a connected nodes is a leaf
      */
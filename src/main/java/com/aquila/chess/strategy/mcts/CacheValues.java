@@ -5,11 +5,17 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.map.LRUMap;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
 
 @Slf4j
 public class CacheValues {
 
+    /**
+     * maximum number of values checked to evict one when the cache is full
+     */
+    static final int MAX_EVICTION_SCAN = 16;
+
     private final Map<Long, CacheValue> lruMap;
 
     @Getter
@@ -26,10 +32,37 @@ public class CacheValues {
     }
 
     public CacheValues(final int size) {
-        lruMap = new LRUMap<>(size);
+        lruMap = new LRUMap<>(size) {
+            // a value connected to the nodes of the current search, or waiting for its inference, is not evicted.
+            // Only the MAX_EVICTION_SCAN least recently used values are checked, the ones in use are moved to the most
+            // recently used end. If all of them are in use, the map grows over its size
+            @Override
+            public CacheValue put(final Long key, final CacheValue value) {
+                if (isFull() && !containsKey(key)) {
+                    for (int i = 0; i < MAX_EVICTION_SCAN && !isEmpty(); i++) {
+                        final Long lruKey = firstKey();
+                        if (isRemovable(get(lruKey, false))) {
+                            remove(lruKey);
+                            break;
+                        }
+                        get(lruKey, true);
+                    }
+                }
+                return super.put(key, value);
+            }
+
+            @Override
+            protected boolean removeLRU(final LinkEntry<Long, CacheValue> entry) {
+                return isRemovable(entry.getValue());
+            }
+        };
         clearCache();
     }
 
+    private static boolean isRemovable(final CacheValue cacheValue) {
+        return cacheValue.isInitialized() && cacheValue.isNodesEmpty();
+    }
+
     public synchronized void clearCache() {
         if (log.isDebugEnabled()) log.debug("EMPTY cacheNNValues: {}", this.lruMap.size());
         clearNodes();
@@ -82,6 +115,41 @@ public class CacheValues {
         return cacheValue;
     }
 
+    /**
+     * Remove the least recently used values not in use until the cache has the given size
+     *
+     * @return the number of removed values
+     */
+    public synchronized int trim(int maxSize) {
+        int ret = 0;
+        final Iterator<CacheValue> iterator = this.lruMap.values().iterator();
+        while (this.lruMap.size() > maxSize && iterator.hasNext()) {
+            if (isRemovable(iterator.next())) {
+                iterator.remove();
+                ret++;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Remove the values waiting for an inference, to call once their jobs are dropped.
+     * Otherwise they would never be submitted again
+     *
+     * @return the number of removed values
+     */
+    public synchronized int removeNotInitialized() {
+        int ret = 0;
+        final Iterator<CacheValue> iterator = this.lruMap.values().iterator();
+        while (iterator.hasNext()) {
+            if (!iterator.next().isInitialized()) {
+                iterator.remove();
+                ret++;
+            }
+        }
+        return ret;
+    }
+
     public void clearNodes() {
         lostCacheValue.clearNodes();
         drawnCacheValue.clearNodes();
@@ -1,6 +1,7 @@
 package com.aquila.chess.strategy.mcts;
 
 import com.aquila.chess.TrainGame;
+import com.aquila.chess.config.MCTSConfig;
 import com.aquila.chess.strategy.FixMCTSTreeStrategy;
 import com.aquila.chess.strategy.check.GameChecker;
 import com.aquila.chess.strategy.mcts.inputs.*;
@@ -22,6 +23,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.OptionalDouble;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
@@ -105,6 +107,7 @@ public class DeepLearningAGZ {
                 .deepLearningAGZ(this)
                 .nbFeaturesPlanes(nbFeaturesPlanes)
                 .batchSize(batchSize)
+                .inferenceMaxLatencyMillis(MCTSConfig.mctsConfig.getInferenceMaxLatencyMillis())
                 .build();
     }
 
@@ -210,11 +213,27 @@ public class DeepLearningAGZ {
         log.info("SAVE DONE");
     }
 
+    /**
+     * Run the pending inferences if forced or if the batch is full, and propagate the values.
+     * With an {@link InferenceDispatcher}, the batches are also sent without this call
+     *
+     * @throws ExecutionException if the inference dispatcher failed
+     */
     public void flushJob(boolean force) throws ExecutionException {
         log.debug("FLUSH JOB");
+        final InferenceDispatcher inferenceDispatcher = this.serviceNN.getInferenceDispatcher();
+        if (inferenceDispatcher != null && inferenceDispatcher.getFailure() != null)
+            throw new ExecutionException("inference dispatcher failed", inferenceDispatcher.getFailure());
         this.serviceNN.executeJobs(force);
     }
 
+    /**
+     * @return a future completed with the cache value of the key once its inference is done
+     */
+    public CompletableFuture<CacheValue> getInference(final long key) {
+        return this.serviceNN.getInference(key);
+    }
+
     public int getCacheSize() {
         return this.cacheValues.size();
     }
@@ -0,0 +1,165 @@
+package com.aquila.chess.strategy.mcts;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread running the inferences of a {@link ServiceNN}, instead of the coordinator loop of {@link MCTSSearchMultiThread}.
+ * <p>
+ * A batch is sent to the NN as soon as it is full, or when the oldest pending job has waited for the max latency.
+ * The thread stops itself after {@link #IDLE_MILLIS} without job and is started again by the next submitted job,
+ * so the services of the finished games do not keep a thread alive.
+ */
+@Slf4j
+public class InferenceDispatcher {
+
+    static final long IDLE_MILLIS = 2000;
+
+    private final ServiceNN serviceNN;
+
+    @Getter
+    private final long maxLatencyMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition jobSubmitted = lock.newCondition();
+
+    private Thread thread = null;
+    private boolean closed = false;
+
+    @Getter
+    private volatile Throwable failure = null;
+
+    private final AtomicLong nbFullBatches = new AtomicLong();
+    private final AtomicLong nbDeadlineBatches = new AtomicLong();
+
+    InferenceDispatcher(final ServiceNN serviceNN, final long maxLatencyMillis) {
+        if (maxLatencyMillis <= 0)
+            throw new RuntimeException(String.format("inference max latency should be > 0: %d", maxLatencyMillis));
+        this.serviceNN = serviceNN;
+        this.maxLatencyMillis = maxLatencyMillis;
+    }
+
+    /**
+     * Wake up the dispatcher when the first job is pending or when the batch is full, start it if needed
+     */
+    void jobSubmitted(final int nbPendingJobs) {
+        if (nbPendingJobs != 1 && nbPendingJobs < serviceNN.getBatchSize()) return;
+        lock.lock();
+        try {
+            if (closed) return;
+            if (thread == null) {
+                thread = new Thread(this::run, "inference-dispatcher");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            jobSubmitted.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getNbFullBatches() {
+        return nbFullBatches.get();
+    }
+
+    public long getNbDeadlineBatches() {
+        return nbDeadlineBatches.get();
+    }
+
+    /**
+     * Stop the thread, the pending jobs are left to the next {@link ServiceNN#executeJobs(boolean)}
+     */
+    public void close() {
+        final Thread toJoin;
+        lock.lock();
+        try {
+            closed = true;
+            toJoin = thread;
+            jobSubmitted.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (toJoin != null) {
+            try {
+                toJoin.join(IDLE_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return true if the thread of the dispatcher is started
+     */
+    boolean isRunning() {
+        lock.lock();
+        try {
+            return thread != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Any failure, even an {@link Error}, fails the pending inferences. The thread is cleared whatever the reason of its
+     * end, so the next submitted job starts a new one
+     */
+    private void run() {
+        log.debug("INFERENCE DISPATCHER STARTED max latency:{} ms", maxLatencyMillis);
+        try {
+            while (waitBatch()) {
+                // counted before the inference, which completes the futures
+                if (serviceNN.getBatchJobs2Commit().size() >= serviceNN.getBatchSize()) nbFullBatches.incrementAndGet();
+                else nbDeadlineBatches.incrementAndGet();
+                serviceNN.executeJobs(true);
+            }
+        } catch (Throwable e) {
+            log.error("INFERENCE DISPATCHER FAILED", e);
+            failure = e;
+            serviceNN.cancelInferences(e);
+        } finally {
+            lock.lock();
+            try {
+                if (thread == Thread.currentThread()) thread = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+        log.debug("INFERENCE DISPATCHER STOPPED full batches:{} deadline batches:{}", getNbFullBatches(), getNbDeadlineBatches());
+    }
+
+    /**
+     * @return false if the thread has to stop: closed or idle for too long
+     */
+    private boolean waitBatch() {
+        lock.lock();
+        try {
+            long idleNanos = TimeUnit.MILLISECONDS.toNanos(IDLE_MILLIS);
+            while (!closed && serviceNN.getBatchJobs2Commit().isEmpty()) {
+                if (idleNanos <= 0) {
+                    thread = null;
+                    return false;
+                }
+                idleNanos = jobSubmitted.awaitNanos(idleNanos);
+            }
+            long latencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+            while (!closed && serviceNN.getBatchJobs2Commit().size() < serviceNN.getBatchSize() && latencyNanos > 0) {
+                latencyNanos = jobSubmitted.awaitNanos(latencyNanos);
+            }
+            if (closed) thread = null;
+            return !closed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            thread = null;
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
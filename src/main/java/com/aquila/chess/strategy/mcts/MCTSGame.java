@@ -2,20 +2,86 @@ package com.aquila.chess.strategy.mcts;
 
 import com.aquila.chess.AbstractGame;
 import com.aquila.chess.Game;
+import com.aquila.chess.strategy.mcts.utils.MovesUtils;
+import com.chess.engine.bitboards.MutableBoard;
+import com.chess.engine.classic.board.Board;
 import com.chess.engine.classic.board.Move;
 import com.chess.engine.classic.pieces.Piece;
 import com.chess.engine.classic.player.Player;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class MCTSGame extends AbstractGame {
 
+    /**
+     * mutable position kept in sync with the played moves, null if this game does not use it
+     */
+    @Getter
+    private final MutableBoard position;
+
+    /**
+     * last move played on the mutable position, the board it reaches is only built by {@link #getBoard()}
+     */
+    private Move pendingMove = null;
+
+    /**
+     * Copy the given game, keeping the mutable position mode if the given game is a {@link MCTSGame} using it
+     */
     public MCTSGame(final AbstractGame abstractGame) {
+        this(abstractGame, abstractGame instanceof MCTSGame mctsGame && mctsGame.isMutablePosition());
+    }
+
+    /**
+     * @param mutablePosition if true, the legality and the status of the played moves are computed on a
+     *                        {@link MutableBoard} instead of the players of each new board
+     */
+    public MCTSGame(final AbstractGame abstractGame, final boolean mutablePosition) {
+        this(abstractGame, mutablePosition ? MutableBoard.fromBoard(abstractGame.getBoard()) : null);
+    }
+
+    /**
+     * @param position the mutable position to use, already set to the board of the given game, null to play without it.
+     *                 Used by the search walkers to reuse the position of their worker thread, see {@link MCTSSearchExecutor#scratchPosition}
+     */
+    public MCTSGame(final AbstractGame abstractGame, final MutableBoard position) {
         super(abstractGame.getInputsManager().clone(), abstractGame.getBoard());
         this.board = abstractGame.getBoard();
         this.nbMoveNoAttackAndNoPawn = abstractGame.getNbMoveNoAttackAndNoPawn();
         this.moves.addAll(abstractGame.getMoves());
         this.status = abstractGame.calculateStatus(board, null);
+        this.position = position;
+    }
+
+    /**
+     * Reset this game to the given one, like the copy constructor, reusing its inputs manager, its list of moves and
+     * its mutable position. The status is the one of the given game, the copy constructor computing the same one
+     */
+    public void reset(final AbstractGame abstractGame) {
+        this.inputsManager.resetFrom(abstractGame.getInputsManager());
+        this.board = abstractGame.getBoard();
+        this.pendingMove = null;
+        this.nbMoveNoAttackAndNoPawn = abstractGame.getNbMoveNoAttackAndNoPawn();
+        this.moves.clear();
+        this.moves.addAll(abstractGame.getMoves());
+        this.status = abstractGame.getStatus();
+        if (this.position != null) this.position.setPosition(this.board.getBitBoard());
+    }
+
+    public boolean isMutablePosition() {
+        return this.position != null;
+    }
+
+    /**
+     * With a mutable position, the board of the last played move is built on the first call
+     */
+    @Override
+    public Board getBoard() {
+        if (this.pendingMove != null) {
+            this.board = this.pendingMove.execute();
+            this.pendingMove = null;
+        }
+        return this.board;
     }
 
     public Game.GameStatus play(final Move move) {
@@ -24,12 +90,49 @@ public class MCTSGame extends AbstractGame {
             this.nbMoveNoAttackAndNoPawn++;
         else
             this.nbMoveNoAttackAndNoPawn = 0;
-        Player player = getPlayer(move.getAllegiance());
-        board = player.executeMove(move);
-        inputsManager.updateHashsTables(move, board);
-        this.status = calculateStatus(board, move);
-        registerMove(move, board);
+        if (position == null) {
+            Player player = getPlayer(move.getAllegiance());
+            board = player.executeMove(move);
+            inputsManager.updateHashsTables(move, board);
+            this.status = calculateStatus(board, move);
+            registerMove(move, board);
+        } else {
+            // the move is only made on the position, the hash tables and the NN inputs are computed from it
+            position.makeMove(move);
+            if (position.isOpponentInCheck()) {
+                position.unmakeMove();
+            } else {
+                this.pendingMove = move;
+            }
+            inputsManager.updateHashsTables(move);
+            this.status = calculatePositionStatus(move);
+            inputsManager.registerInput(position, move);
+            this.moves.add(move);
+        }
         return this.status;
     }
 
+    /**
+     * Same rules and order as {@link AbstractGame#calculateStatus}, evaluated on the mutable position
+     */
+    private Game.GameStatus calculatePositionStatus(final Move move) {
+        if (!move.isAttack() &&
+                move.getMovedPiece().getPieceType() != Piece.PieceType.PAWN)
+            this.nbMoveNoAttackAndNoPawn++;
+        else
+            this.nbMoveNoAttackAndNoPawn = 0;
+        if (!position.hasLegalMoves()) {
+            if (!position.isInCheck()) return Game.GameStatus.PAT;
+            return position.getNextMoveMaker().isWhite() ?
+                    Game.GameStatus.WHITE_CHESSMATE :
+                    Game.GameStatus.BLACK_CHESSMATE;
+        }
+        if (moves.size() >= NUMBER_OF_MAX_STEPS) return Game.GameStatus.DRAW_TOO_MUCH_STEPS;
+        if (MovesUtils.is3MovesRepeat(moves)) return Game.GameStatus.DRAW_3;
+        if (this.nbMoveNoAttackAndNoPawn >= 50) return Game.GameStatus.DRAW_50;
+        if (move.isAttack() && position.isInsufficientMaterial())
+            return Game.GameStatus.DRAW_NOT_ENOUGH_PIECES;
+        return Game.GameStatus.IN_PROGRESS;
+    }
+
 }
@@ -9,33 +9,59 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static com.aquila.chess.strategy.mcts.MCTSNode.State.ROOT;
 
+/**
+ * Node of the MCTS tree.
+ * <p>
+ * The visits, the sum of the propagated values and the virtual loss are updated atomically, so the selection can read
+ * them without taking the node monitor. The monitor is only held to create a child (see {@link MCTSSearchWalker#search}).
+ */
 @Slf4j
 public class MCTSNode {
 
+    private static final VarHandle VISITS;
+    private static final VarHandle SUM;
+    private static final VarHandle VIRTUAL_LOSS;
+    private static final VarHandle SYNC_STATE;
+
+    static {
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            VISITS = lookup.findVarHandle(MCTSNode.class, "visits", int.class);
+            SUM = lookup.findVarHandle(MCTSNode.class, "sum", double.class);
+            VIRTUAL_LOSS = lookup.findVarHandle(MCTSNode.class, "virtualLoss", double.class);
+            SYNC_STATE = lookup.findVarHandle(MCTSNode.class, "syncState", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     static private int nbBuild = 0;
 
     @Getter
     @Setter
-    private boolean leaf = false;
+    private volatile boolean leaf = false;
 
     @Getter
     @Setter
-    private boolean containsChildleaf = false;
+    private volatile boolean containsChildleaf = false;
 
     @Getter
-    private double virtualLoss = 0.0;
+    private volatile double virtualLoss = 0.0;
 
     @Getter
     public boolean dirichletDone;
 
     @Getter
-    private CacheValue cacheValue;
+    private volatile CacheValue cacheValue;
 
     @Getter
     private final long key;
@@ -43,19 +69,33 @@ public class MCTSNode {
     @Getter
     protected transient final Move move;
 
+    /**
+     * sum of the propagated values, the value of the {@link #cacheValue} while the node has no visit
+     */
     @Getter
-    private double sum;
+    private volatile double sum;
+
+    /**
+     * value of {@link #sum} without visit, replaced by the first propagated value
+     */
+    private volatile double initialSum;
 
     @Getter
     private final transient Thread creator;
 
     @Getter
     @Setter
-    private int visits = 0;
+    private volatile int visits = 0;
 
     @Getter
     @Setter
-    private State state = State.INTERMEDIATE;
+    private volatile State state = State.INTERMEDIATE;
+
+    /**
+     * game-theoretic value of the node for the player of its move, see {@link #prove(Proof)}
+     */
+    @Getter
+    private volatile Proof proof = Proof.UNKNOWN;
 
     @Getter
     private transient MCTSNode parent;
@@ -64,9 +104,14 @@ public class MCTSNode {
     @Setter
     private boolean chessMate = false;
 
-    @Getter
-    @Setter
-    private boolean sync = false;
+    private static final int NOT_SYNC = 0;
+    private static final int SYNCING = 1;
+    private static final int SYNC = 2;
+
+    /**
+     * {@link #SYNC} once the statistics are reset from the initialised {@link #cacheValue}, see {@link #syncSum()}
+     */
+    private volatile int syncState = NOT_SYNC;
 
     @Getter
     protected Alliance colorState;
@@ -82,13 +127,38 @@ public class MCTSNode {
     @Getter
     private int nbPropagationsToExecute = 0;
 
+    /**
+     * one entry per legal move, a {@link ChildNode} without node until the child is created
+     */
     @Getter
-    private final transient Map<Move, ChildNode> childNodes = new HashMap<>();
+    private final transient Map<Move, ChildNode> childNodes = new ConcurrentHashMap<>();
 
     @Getter
     static public class ChildNode {
-        MCTSNode node = null;
-        double policy = 0.0;
+
+        private static final VarHandle EDGE_VISITS;
+
+        static {
+            try {
+                EDGE_VISITS = MethodHandles.lookup().findVarHandle(ChildNode.class, "visits", int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        volatile MCTSNode node = null;
+        volatile double policy = 0.0;
+
+        /**
+         * DAG mode: node of the same position created under another parent, used instead of {@link #node}.
+         * It is not a child of this node, the tree traversals do not follow it
+         */
+        volatile MCTSNode transposition = null;
+
+        /**
+         * visits done through this edge, only counted for a {@link #transposition} as its node is shared
+         */
+        volatile int visits = 0;
 
         public ChildNode() {
         }
@@ -97,20 +167,22 @@ public class MCTSNode {
             this.policy = 0.314;
             this.node = node;
         }
+
+        public void incVisits() {
+            EDGE_VISITS.getAndAdd(this, 1);
+        }
     }
 
     public static void resetBuildOrder() {
         nbBuild = 0;
     }
 
-    // synchronized
     public void incVirtualLoss() {
-        this.virtualLoss++;
+        VIRTUAL_LOSS.getAndAdd(this, 1.0);
     }
 
-    // synchronized
     public void decVirtualLoss() {
-        this.virtualLoss--;
+        VIRTUAL_LOSS.getAndAdd(this, -1.0);
     }
 
     /**
@@ -127,7 +199,7 @@ public class MCTSNode {
         synchronized (cacheValue) {
             if (possibleMoves == null) {
                 final Board selectBoard = move == null ? rootBoard : move.execute();
-                final List<Move> childMoves = selectBoard.currentPlayer().getLegalMoves(Move.MoveStatus.DONE);
+                final List<Move> childMoves = selectBoard.currentPlayer().generateLegalMoves();
                 return new MCTSNode(move, childMoves, key, cacheValue);
             } else
                 return new MCTSNode(move, possibleMoves, key, cacheValue);
@@ -185,7 +257,7 @@ public class MCTSNode {
     MCTSNode(final Move move, final Collection<Move> childMoves, final long key, final CacheValue cacheValue) {
         this.buildOrder = nbBuild++;
         log.debug("CREATE NODE MOVE:{} key:{}", move, key);
-        childMoves.forEach(move1 -> childNodes.put(move1, null));
+        childMoves.forEach(move1 -> childNodes.put(move1, new ChildNode()));
         this.dirichletDone = false;
         this.creator = Thread.currentThread();
         this.key = key;
@@ -200,6 +272,48 @@ public class MCTSNode {
         log.debug("CREATE NODE[key:{}] -> move:{} cacheValue:{}", key, move, this.getCacheValue());
     }
 
+    /**
+     * Root parallel search: a root of another tree for the same position, with the priors of this root but without
+     * children nor statistics. It is not connected to its cache value
+     */
+    public MCTSNode createRootCopy() {
+        final MCTSNode ret = new MCTSNode(this.move, getChildMoves(), this.key, this.cacheValue);
+        ret.state = ROOT;
+        ret.dirichletDone = true;
+        this.childNodes.forEach((childMove, childNode) -> ret.childNodes.get(childMove).policy = childNode.policy);
+        return ret;
+    }
+
+    /**
+     * Root parallel search: add the statistics of the root of another tree of the same position to this root and to
+     * its children. The children expanded only in the other tree are moved under this root
+     *
+     * @return the number of merged visits of the root
+     */
+    public int mergeRoot(final MCTSNode other) {
+        this.addStatistics(other);
+        for (Map.Entry<Move, ChildNode> entry : other.childNodes.entrySet()) {
+            final MCTSNode otherChild = entry.getValue().node;
+            if (otherChild == null) continue;
+            final MCTSNode child = findChild(entry.getKey());
+            if (child == null) {
+                otherChild.parent = null;
+                addChild(otherChild);
+            } else {
+                child.addStatistics(otherChild);
+                child.prove(otherChild.proof);
+            }
+        }
+        return other.visits;
+    }
+
+    private void addStatistics(final MCTSNode other) {
+        final int otherVisits = other.visits;
+        if (otherVisits == 0) return;
+        final boolean firstVisit = (int) VISITS.getAndAdd(this, otherVisits) == 0;
+        SUM.getAndAdd(this, firstVisit ? other.sum - this.initialSum : other.sum);
+    }
+
     public void updateCache() {
         this.cacheValue.addNode(this);
     }
@@ -210,37 +324,42 @@ public class MCTSNode {
      * <ul>
      *     <li>set {@link #visits} to 0</li>
      *     <li>set {@link #sum} to {@link #getCacheValue()}.value</li>
-     *     <li>set {@link #sync} to true</li>
+     *     <li>mark the node as sync</li>
      * </ul>
-     *
-     * @return true if we are syncing this node, false if already done or cacheValue not initialised yet
+     * Called without lock by the selection: only the thread winning the CAS resets the statistics, the node is not
+     * sync for the other ones until the reset is done
      */
     public void syncSum() {
-        if (!getCacheValue().isInitialized() || this.isSync()) return;
+        if (this.syncState != NOT_SYNC || !getCacheValue().isInitialized()) return;
+        if (!SYNC_STATE.compareAndSet(this, NOT_SYNC, SYNCING)) return;
         this.visits = 0;
-        this.sum = getCacheValue().getValue();
-        this.setSync(true);
+        this.initialSum = getCacheValue().getValue();
+        this.sum = this.initialSum;
+        this.syncState = SYNC;
+    }
+
+    public boolean isSync() {
+        return this.syncState == SYNC;
     }
 
     /**
-     * Update the {@link #sum}, increase the number of {@link #visits}, append this propragation
-     * to {@link #values} (used for log and debug)
+     * Update the {@link #sum} and increase the number of {@link #visits}, both atomically: the first visit replaces
+     * the value of the {@link #cacheValue}, the next ones are added
      *
      * @param value the value used to updateValueAndPolicies the reward
      */
     public int propagateOneTime(double value) {
-        if (this.visits == 0) this.sum = value;
-        else this.sum += value;
-        this.incVisits();
+        final boolean firstVisit = (int) VISITS.getAndAdd(this, 1) == 0;
+        SUM.getAndAdd(this, firstVisit ? value - this.initialSum : value);
         log.debug("PROPAGATE ({}) DONE: {}", this.nbPropagationsToExecute, this);
         this.nbPropagationsToExecute = 0;
         return 1;
     }
 
     public void unPropagate(double value) {
-        this.sum -= value;
+        final boolean lastVisit = (int) VISITS.getAndAdd(this, -1) == 1;
+        SUM.getAndAdd(this, lastVisit ? this.initialSum - value : -value);
         this.nbPropagationsToExecute--;
-        this.decVisits();
         log.debug("UN-PROPAGATE DONE[BuildOrder:{}]: {} -> move:{} visits:", this.buildOrder, value, this.move, this.visits);
     }
 
@@ -257,10 +376,94 @@ public class MCTSNode {
         }
     }
 
+    /**
+     * Detach the descendants not synchronised with their cacheValue, their inference was dropped with the jobs of
+     * the previous search. They will be created again when selected
+     *
+     * @return the number of detached nodes
+     */
+    public int removeNotSyncChilds() {
+        int ret = 0;
+        for (ChildNode childNode : this.childNodes.values()) {
+            MCTSNode child = childNode.node;
+            if (child == null) continue;
+            if (child.isSync()) {
+                ret += child.removeNotSyncChilds();
+            } else {
+                ret += child.getNumberOfAllNodes();
+                childNode.node = null;
+                child.parent = null;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Unlink the transpositions of this node and its descendants, their nodes can be outside of a reused subtree.
+     * The moves will be linked again or expanded when selected
+     *
+     * @return the number of removed transpositions
+     */
+    public int clearTranspositions() {
+        int ret = 0;
+        for (ChildNode childNode : this.childNodes.values()) {
+            if (childNode.transposition != null) {
+                childNode.transposition = null;
+                childNode.visits = 0;
+                ret++;
+            }
+            if (childNode.node != null) ret += childNode.node.clearTranspositions();
+        }
+        return ret;
+    }
+
+    /**
+     * Remove the descendants of this node, used to reclaim memory (see {@link MCTSTreeBudget}).
+     * The node keeps its visits and its expected reward, its children will be created again when selected
+     *
+     * @param transpositions positions of the tree (DAG mode), null if not used
+     * @return the number of removed nodes
+     */
+    public int reclaimChilds(final MCTSTranspositionTable transpositions) {
+        final Map<MCTSNode, MCTSNodePath> removedNodes = new IdentityHashMap<>();
+        synchronized (this) {
+            for (ChildNode childNode : this.childNodes.values()) {
+                childNode.transposition = null;
+                childNode.visits = 0;
+                final MCTSNode child = childNode.node;
+                if (child == null) continue;
+                // the paths are built before the detach, they are the keys of the nodes in their cacheValue
+                removedNodes.put(child, child.getPathFromRoot());
+                child.allChildNodes().forEach(node -> removedNodes.put(node, node.getPathFromRoot()));
+                childNode.node = null;
+                child.parent = null;
+            }
+            this.containsChildleaf = false;
+        }
+        removedNodes.forEach((node, path) -> {
+            node.getCacheValue().removeNode(path, node);
+            if (transpositions != null) transpositions.remove(node.getMove().calculateZobristKey(), node);
+        });
+        return removedNodes.size();
+    }
+
+    /**
+     * @return true if this node is still reachable from the given root by the child links
+     */
+    public boolean isAttachedTo(final MCTSNode root) {
+        MCTSNode tmpNode = this;
+        while (tmpNode != root) {
+            final MCTSNode parentNode = tmpNode.parent;
+            if (parentNode == null || parentNode.findChild(tmpNode.move) != tmpNode) return false;
+            tmpNode = parentNode;
+        }
+        return true;
+    }
+
     private void clearChildrens() {
-        for (Move move : this.childNodes.keySet()) {
-            ChildNode chilNode = this.childNodes.replace(move, null);
-            MCTSNode oldNode = chilNode.node;
+        for (ChildNode childNode : this.childNodes.values()) {
+            MCTSNode oldNode = childNode.node;
+            childNode.node = null;
             if (oldNode != null) oldNode.parent = null;
         }
     }
@@ -300,7 +503,7 @@ public class MCTSNode {
     }
 
     public int getNumberOfChilds() {
-        return (int) this.childNodes.values().stream().filter(node -> node != null).count();
+        return (int) this.childNodes.values().stream().filter(childNode -> childNode.node != null).count();
     }
 
     public MCTSNodePath getPathFromRoot() {
@@ -360,8 +563,10 @@ public class MCTSNode {
 
     public double getExpectedReward(boolean withVirtualLoss) {
         syncSum();
-        if (this.getVisits() == 0) return this.getCacheValue().getValue() - (withVirtualLoss ? virtualLoss : 0);
-        else return (sum - (withVirtualLoss ? virtualLoss : 0)) / (this.getVisits());
+        final int nbVisits = this.visits;
+        final double loss = withVirtualLoss ? virtualLoss : 0;
+        if (nbVisits == 0) return this.getCacheValue().getValue() - loss;
+        else return (sum - loss) / nbVisits;
     }
 
     public List<MCTSNode> search(final State... states) {
@@ -383,26 +588,20 @@ public class MCTSNode {
     }
 
     public List<MCTSNode> getNonNullChildsAsCollection() {
-        synchronized (childNodes) {
-            return this.childNodes
-                    .values()
-                    .stream()
-                    .filter(childNode -> childNode != null)
-                    .map(childNode -> childNode.node)
-                    .filter(node -> node != null)
-                    .collect(Collectors.toList());
-        }
+        return this.childNodes
+                .values()
+                .stream()
+                .map(childNode -> childNode.node)
+                .filter(node -> node != null)
+                .collect(Collectors.toList());
     }
 
     public Collection<MCTSNode> getChildsAsCollection() {
-        synchronized (childNodes) {
-            return this.childNodes
-                    .values()
-                    .stream()
-                    .filter(childNode -> childNode != null)
-                    .map(childNode -> childNode.node)
-                    .collect(Collectors.toList());
-        }
+        return this.childNodes
+                .values()
+                .stream()
+                .map(childNode -> childNode.node)
+                .collect(Collectors.toList());
     }
 
     public ChildNode findChildNode(final Move move) {
@@ -518,11 +717,11 @@ public class MCTSNode {
     }
 
     public void decVisits() {
-        this.visits--;
+        VISITS.getAndAdd(this, -1);
     }
 
     public void incVisits() {
-        this.visits++;
+        VISITS.getAndAdd(this, 1);
     }
 
     /**
@@ -533,7 +732,7 @@ public class MCTSNode {
         this.childNodes.clear();
         this.visits = 0;
         this.setLeaf(true);
-        this.sync = true;
+        this.syncState = SYNC;
         if (cacheValue != null) {
             if (this.cacheValue != cacheValue) {
                 this.cacheValue.clearNodes();
@@ -542,7 +741,73 @@ public class MCTSNode {
             }
             this.cacheValue.addNode(this);
         }
-        this.sum = this.cacheValue.getValue();
+        this.initialSum = this.cacheValue.getValue();
+        this.sum = this.initialSum;
+    }
+
+    /**
+     * MCTS-solver: set the proven value of the node, for the player of its move, and solve its ancestors: a node is
+     * a proven loss if one of its children is a proven win for the opponent, a proven win if all its children are
+     * proven losses, a proven draw if all its children are proven losses or draws.
+     * A proof never changes, the nodes are solved without lock
+     *
+     * @return the number of nodes solved by this call
+     */
+    public int prove(final Proof proof) {
+        if (this.proof != Proof.UNKNOWN || proof == Proof.UNKNOWN) return 0;
+        this.proof = proof;
+        log.debug("PROVEN {}: {}", proof, this);
+        int ret = 1;
+        for (MCTSNode node = this.parent; node != null && node.proof == Proof.UNKNOWN; node = node.parent) {
+            final Proof nodeProof = node.solveFromChilds();
+            if (nodeProof == Proof.UNKNOWN) break;
+            node.proof = nodeProof;
+            log.debug("SOLVED {}: {}", nodeProof, node);
+            ret++;
+        }
+        return ret;
+    }
+
+    public boolean isSolved() {
+        return this.proof != Proof.UNKNOWN;
+    }
+
+    /**
+     * @return the proof deduced from the children, {@link Proof#UNKNOWN} if a child not proven can still decide it
+     */
+    private Proof solveFromChilds() {
+        if (childNodes.isEmpty()) return Proof.UNKNOWN;
+        boolean isAllSolved = true;
+        boolean isDraw = false;
+        for (ChildNode childNode : childNodes.values()) {
+            final MCTSNode child = childNode.transposition != null ? childNode.transposition : childNode.node;
+            final Proof childProof = child == null ? Proof.UNKNOWN : child.proof;
+            switch (childProof) {
+                case WIN -> {
+                    return Proof.LOSS;
+                }
+                case DRAW -> isDraw = true;
+                case UNKNOWN -> isAllSolved = false;
+                case LOSS -> {
+                }
+            }
+        }
+        if (!isAllSolved) return Proof.UNKNOWN;
+        return isDraw ? Proof.DRAW : Proof.WIN;
+    }
+
+    public enum Proof {
+        UNKNOWN(0), WIN(1), LOSS(-1), DRAW(0);
+
+        /**
+         * value of the proven result for the player of the move of the node
+         */
+        @Getter
+        private final double value;
+
+        Proof(double value) {
+            this.value = value;
+        }
     }
 
     public enum State {
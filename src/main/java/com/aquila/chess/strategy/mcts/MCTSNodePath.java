@@ -10,6 +10,11 @@ import java.util.stream.Collectors;
 @Slf4j
 public class MCTSNodePath extends ArrayList<Move> {
 
+    /**
+     * hash of the path, computed on the first call to {@link #hashCode()}. A path is not modified once built
+     */
+    private transient int hash = 0;
+
     /**
      * Create a MCTSNodePath using a directory path and a element
      *
@@ -27,7 +32,11 @@ public class MCTSNodePath extends ArrayList<Move> {
 
     @Override
     public int hashCode() {
-        int ret = toString().hashCode();
+        int ret = hash;
+        if (ret == 0) {
+            ret = toString().hashCode();
+            hash = ret;
+        }
         return ret;
     }
 
@@ -0,0 +1,139 @@
+package com.aquila.chess.strategy.mcts;
+
+import com.chess.engine.bitboards.MutableBoard;
+import com.chess.engine.classic.board.Board;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-lived pool running the {@link MCTSSearchWalker} of every search, reused across moves and games.
+ * <p>
+ * The worker threads are started once and kept warm between searches, each of them keeps its own scratch state
+ * (see {@link #scratchPosition(Board)}) instead of allocating it for every walker.
+ * The shared instance ({@link #get(int)}) is closed by a JVM shutdown hook, other instances have to be closed by their owner.
+ */
+@Slf4j
+public class MCTSSearchExecutor implements AutoCloseable {
+
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+    private static MCTSSearchExecutor shared = null;
+
+    private static final ThreadLocal<MutableBoard> scratchPositions = new ThreadLocal<>();
+
+    private final ThreadPoolExecutor threadPool;
+
+    private final AtomicInteger nbCreatedThreads = new AtomicInteger();
+
+    private final AtomicInteger nbSearches = new AtomicInteger();
+
+    public MCTSSearchExecutor(final int nbThreads) {
+        if (nbThreads < 1)
+            throw new RuntimeException(String.format("MCTS search executor needs at least one thread: %d", nbThreads));
+        this.threadPool = new ThreadPoolExecutor(
+                nbThreads,
+                nbThreads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, String.format("mcts-worker-%d", nbCreatedThreads.getAndIncrement()));
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.threadPool.prestartAllCoreThreads();
+        log.info("MCTS SEARCH EXECUTOR started with {} threads", nbThreads);
+    }
+
+    /**
+     * @return the executor shared by the strategies built without an explicit one, with at least the given number of threads
+     */
+    public static synchronized MCTSSearchExecutor get(final int nbThreads) {
+        if (shared == null || shared.isShutdown()) {
+            shared = new MCTSSearchExecutor(nbThreads);
+            final MCTSSearchExecutor executor = shared;
+            Runtime.getRuntime().addShutdownHook(new Thread(executor::close, "mcts-executor-shutdown"));
+        } else {
+            shared.ensureThreads(nbThreads);
+        }
+        return shared;
+    }
+
+    /**
+     * Grow the pool to the given number of threads, the pool never shrinks
+     */
+    public synchronized void ensureThreads(final int nbThreads) {
+        if (nbThreads <= this.threadPool.getMaximumPoolSize()) return;
+        log.info("MCTS SEARCH EXECUTOR grows from {} to {} threads", this.threadPool.getMaximumPoolSize(), nbThreads);
+        this.threadPool.setMaximumPoolSize(nbThreads);
+        this.threadPool.setCorePoolSize(nbThreads);
+        this.threadPool.prestartAllCoreThreads();
+    }
+
+    /**
+     * @return the pool to submit the walkers of one search, the caller must wait for its own tasks instead of shutting it down
+     */
+    public ExecutorService getExecutorService() {
+        this.nbSearches.incrementAndGet();
+        return this.threadPool;
+    }
+
+    public int getNbThreads() {
+        return this.threadPool.getMaximumPoolSize();
+    }
+
+    /**
+     * @return number of threads created since the start, it stays equal to {@link #getNbThreads()} while the workers are reused
+     */
+    public int getNbCreatedThreads() {
+        return this.nbCreatedThreads.get();
+    }
+
+    public int getNbSearches() {
+        return this.nbSearches.get();
+    }
+
+    public boolean isShutdown() {
+        return this.threadPool.isShutdown();
+    }
+
+    /**
+     * @return the mutable position of the current thread, reset to the given board. It is only valid until the next
+     * call from the same thread
+     */
+    public static MutableBoard scratchPosition(final Board board) {
+        MutableBoard position = scratchPositions.get();
+        if (position == null) {
+            position = MutableBoard.fromBoard(board);
+            scratchPositions.set(position);
+        } else {
+            position.setPosition(board.getBitBoard());
+        }
+        return position;
+    }
+
+    /**
+     * Stop the workers, waiting for the running walkers to end
+     */
+    @Override
+    public void close() {
+        if (this.threadPool.isShutdown()) return;
+        log.info("MCTS SEARCH EXECUTOR shutdown: searches:{} created threads:{}", getNbSearches(), getNbCreatedThreads());
+        this.threadPool.shutdown();
+        try {
+            if (!this.threadPool.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                log.warn("MCTS SEARCH EXECUTOR: workers still running after {} ms, interrupting them", SHUTDOWN_TIMEOUT_MILLIS);
+                this.threadPool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            this.threadPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
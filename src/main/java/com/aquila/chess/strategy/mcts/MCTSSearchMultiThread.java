@@ -17,9 +17,10 @@ public class MCTSSearchMultiThread implements IMCTSSearch {
     private final long timeMillisPerStep;
     private final long nbMaxSearchCalls;
 
-    ExecutorService WORKER_THREAD_POOL = Executors.newFixedThreadPool(128);
-
-    public ExecutorCompletionService<Integer> executorService = new ExecutorCompletionService<>(WORKER_THREAD_POOL);
+    /**
+     * completion service of this search only, the threads belong to the long-lived {@link MCTSSearchExecutor}
+     */
+    private final ExecutorCompletionService<Integer> executorService;
     private final StopMode stopMode;
 
     private final MCTSNode currentRoot;
@@ -33,6 +34,19 @@ public class MCTSSearchMultiThread implements IMCTSSearch {
     private final Statistic statistic;
     private final int nbThreads;
     private int nbStep;
+    private MCTSTranspositionTable transpositions = null;
+    private MCTSTreeBudget treeBudget = null;
+    private int nbLeaves = 1;
+    private MCTSSmartStop smartStop = null;
+    private MCTSTimeManager timeManager = null;
+    private boolean blockingEvaluation = false;
+    private volatile boolean stopRequested = false;
+    private boolean ponder = false;
+    private int nbTrees = 1;
+    /**
+     * roots of the trees searched, {@link #currentRoot} first
+     */
+    private final List<MCTSNode> roots = new ArrayList<>();
 
     /**
      * @param deepLearning
@@ -41,8 +55,10 @@ public class MCTSSearchMultiThread implements IMCTSSearch {
      * @param updateCpuct
      * @param dirichlet
      * @param rand
+     * @param searchExecutor the pool running the walkers, it is not shut down at the end of the search
      */
     public MCTSSearchMultiThread(
+            final MCTSSearchExecutor searchExecutor,
             final int nbStep,
             final int nbThreads,
             final long timeMillisPerStep,
@@ -79,6 +95,90 @@ public class MCTSSearchMultiThread implements IMCTSSearch {
         this.updateDirichlet = dirichlet;
         this.rand = rand;
         this.buildOrder = currentRoot == null ? 0 : currentRoot.getBuildOrder();
+        this.executorService = new ExecutorCompletionService<>(searchExecutor.getExecutorService());
+    }
+
+    /**
+     * @param transpositions positions of the searched tree shared by the walkers (DAG mode), null to expand every move
+     */
+    public MCTSSearchMultiThread withTranspositions(final MCTSTranspositionTable transpositions) {
+        this.transpositions = transpositions;
+        return this;
+    }
+
+    /**
+     * @param treeBudget the node budget of the tree, the tree is reclaimed during the search when it is exceeded.
+     *                   Null if the tree is not limited
+     */
+    public MCTSSearchMultiThread withTreeBudget(final MCTSTreeBudget treeBudget) {
+        this.treeBudget = treeBudget;
+        return this;
+    }
+
+    /**
+     * @param nbLeaves number of leaves gathered by each walker, see {@link MCTSSearchWalker#withLeaves(int)}
+     */
+    public MCTSSearchMultiThread withLeaves(int nbLeaves) {
+        this.nbLeaves = nbLeaves;
+        return this;
+    }
+
+    /**
+     * @param smartStop if true, the search stops when the most visited child of the root can not be overtaken with the
+     *                  remaining simulations, and the children that can no longer win are not selected, see {@link MCTSSmartStop}
+     */
+    public MCTSSearchMultiThread withSmartStop(boolean smartStop) {
+        this.smartStop = smartStop ? new MCTSSmartStop() : null;
+        return this;
+    }
+
+    /**
+     * @param timeManager decides when a search in {@link StopMode#TIMING} mode stops, instead of the flat
+     *                    <code>timeMillisPerStep</code>. The move must be started ({@link MCTSTimeManager#startMove(int)}).
+     *                    Null to use <code>timeMillisPerStep</code>
+     */
+    public MCTSSearchMultiThread withTimeManager(final MCTSTimeManager timeManager) {
+        this.timeManager = timeManager;
+        return this;
+    }
+
+    /**
+     * @param blockingEvaluation if true, the walkers wait for the inference of their leaf and back up its value
+     *                           themselves, see {@link MCTSSearchWalker#withBlockingEvaluation(boolean)}. Each walker
+     *                           does one simulation, the batches are filled by the number of threads. Without
+     *                           {@link InferenceDispatcher}, the coordinator sends the batch when no walker ended
+     *                           during its poll
+     */
+    public MCTSSearchMultiThread withBlockingEvaluation(boolean blockingEvaluation) {
+        this.blockingEvaluation = blockingEvaluation;
+        return this;
+    }
+
+    /**
+     * @param nbTrees number of independent trees of a root parallel search, sharing only the cache values and the NN
+     *                batches. The walkers are spread over the trees, and the statistics of the roots are merged into
+     *                {@link #currentRoot} at the end of the search. The walkers use the blocking evaluation, the
+     *                transpositions and the smart stop are not used. One tree if < 2
+     */
+    public MCTSSearchMultiThread withRootParallel(int nbTrees) {
+        this.nbTrees = Math.max(1, nbTrees);
+        return this;
+    }
+
+    /**
+     * @param ponder if true, the search runs in the background while the search of the other side may run: the build
+     *               order of the nodes, shared by all the searches, is not reset
+     */
+    public MCTSSearchMultiThread withPonder(boolean ponder) {
+        this.ponder = ponder;
+        return this;
+    }
+
+    /**
+     * Ask the search to end from another thread: no walker is submitted anymore, the running ones end their descents
+     */
+    public void stop() {
+        this.stopRequested = true;
     }
 
     /**
@@ -88,54 +188,79 @@ public class MCTSSearchMultiThread implements IMCTSSearch {
     public long search()
             throws InterruptedException {
         long start = System.currentTimeMillis();
+        // the walkers still running at this time stop their descents, so the move does not overshoot its budget
+        final long deadline = switch (this.stopMode) {
+            case TIMING -> timeManager != null ? timeManager.getHardDeadline() : start + timeMillisPerStep;
+            case NB_STEP -> 0;
+        };
+        final long setupStart = System.nanoTime();
         currentRoot.syncSum();
-        currentRoot.dirichletDone = false;
         final CacheValue rootValue = currentRoot.getCacheValue();
         rootValue.addNode(currentRoot);
         if (rootValue != null) {
             log.info("[{}] RESET ROOT NORMALIZATION key: {}", this.nbStep, currentRoot);
-            MCTSNode.resetBuildOrder();
+            if (!ponder) MCTSNode.resetBuildOrder();
             rootValue.normalizePolicies();
         }
+        if (treeBudget != null) treeBudget.reset(currentRoot.getNumberOfAllNodes());
+        roots.clear();
+        roots.add(currentRoot);
+        for (int i = 1; i < nbTrees; i++) roots.add(currentRoot.createRootCopy());
         int nbSubmit = 0;
         int nbSearchCalls = 0;
+        int nbDone = 0;
         int nbWorks;
         if (nbMaxSearchCalls < 1) nbWorks = nbThreads;
         else nbWorks = Math.min(nbThreads, (int) nbMaxSearchCalls);
         if (nbWorks < 1) nbWorks = 1;
         for (int i = 0; i < nbWorks; i++) {
-            final MCTSSearchWalker mctsSearchWalker = createSearchWalker(nbStep, i, nbSubmit);
+            final MCTSSearchWalker mctsSearchWalker = createSearchWalker(nbStep, i, nbSubmit, deadline);
             log.debug("[{}] SUBMIT NEW TASK({}) 0:{} childs:{}", nbStep, nbSubmit, i, currentRoot.getNonNullChildsAsCollection().size());
             executorService.submit(mctsSearchWalker);
             nbSubmit++;
         }
+        final long setupMicros = (System.nanoTime() - setupStart) / 1000;
         boolean isEnding = false;
         while (isEnding == false) {
             Future<Integer> future;
             do {
                 future = executorService.poll(50, TimeUnit.MILLISECONDS);
                 try {
-                    deepLearning.flushJob(false);
+                    deepLearning.flushJob(isIdleFlush(future));
                 } catch (ExecutionException e) {
                     throw new RuntimeException("Error during last flushJobs", e);
                 }
             } while (future == null);
             try {
                 final Integer effectiveNbSearchCalls = future.get();
+                nbDone++;
                 nbSearchCalls += effectiveNbSearchCalls;
+                if (treeBudget != null && treeBudget.isExceeded()) {
+                    for (MCTSNode root : roots) {
+                        statistic.nbReclaimedNodes += treeBudget.reclaim(root, transpositions, deepLearning.getCacheValues());
+                    }
+                }
                 log.debug("NUMBER OF SEARCH CALLS: {} MAX:{} SUBMITTED:{}", nbSearchCalls, nbMaxSearchCalls, nbSubmit);
                 if (log.isDebugEnabled())
                     log.debug("[{}] IS DONE {}:{} childs:{}", nbStep, effectiveNbSearchCalls.intValue(), future.isDone(), this.currentRoot.getChildsAsCollection().size());
                 if (isEnding == false) {
                     boolean isContinue = switch (this.stopMode) {
-                        case TIMING -> (System.currentTimeMillis() - start) < timeMillisPerStep;
+                        case TIMING -> timeManager != null ?
+                                !timeManager.isTimeOver(currentRoot) :
+                                (System.currentTimeMillis() - start) < timeMillisPerStep;
                         case NB_STEP -> nbSearchCalls < nbMaxSearchCalls && nbSubmit < nbMaxSearchCalls;
                     };
+                    // the value of a solved root is known, see MCTSNode.prove()
+                    if (stopRequested || roots.stream().anyMatch(MCTSNode::isSolved)) isContinue = false;
+                    if (isContinue && smartStop != null && nbTrees == 1) {
+                        isContinue = !isSmartStop(start, nbSearchCalls, nbSubmit - nbDone);
+                    }
                     if (isContinue) {
                         MCTSSearchWalker mctsSearchWalker = createSearchWalker(
                                 nbStep,
                                 effectiveNbSearchCalls.intValue(),
-                                nbSubmit);
+                                nbSubmit,
+                                deadline);
                         log.debug("[{}] SUBMIT NEW TASK({}) 1:{} childs:{}", nbStep, nbSubmit, effectiveNbSearchCalls.intValue(), this.currentRoot.getNonNullChildsAsCollection().size());
                         executorService.submit(mctsSearchWalker);
                         nbSubmit++;
@@ -145,8 +270,6 @@ public class MCTSSearchMultiThread implements IMCTSSearch {
                             throw new RuntimeException("Error during last flushJobs", e);
                         }
                     } else {
-                        WORKER_THREAD_POOL.shutdown();
-                        while (!WORKER_THREAD_POOL.awaitTermination(100, TimeUnit.MILLISECONDS)) ;
                         isEnding = true;
                     }
                 }
@@ -156,13 +279,15 @@ public class MCTSSearchMultiThread implements IMCTSSearch {
                 throw new RuntimeException(e);
             }
         }
+        nbSearchCalls += waitRunningWalkers(nbSubmit - nbDone);
         try {
             deepLearning.flushJob(true);
         } catch (ExecutionException e) {
             log.error("Error during last flushJobs", e);
         }
+        if (nbTrees > 1) mergeRoots();
         if (log.isInfoEnabled()) {
-            log.info("[{}] END OF SEARCH DETECTED nbSearchCalls:{} submit:{} childs:{} visits:{}", nbStep, nbSearchCalls, nbSubmit, currentRoot.getNumberOfAllNodes(), currentRoot.getVisits());
+            log.info("[{}] END OF SEARCH DETECTED nbSearchCalls:{} submit:{} childs:{} visits:{} setup:{} us", nbStep, nbSearchCalls, nbSubmit, currentRoot.getNumberOfAllNodes(), currentRoot.getVisits(), setupMicros);
             if (currentRoot.getNumberOfAllNodes() < 100)
                 log.info("-------------------------------------\n{}\n-------------------------------------\n",
                         DotGenerator.toString(currentRoot, 10, true));
@@ -170,11 +295,92 @@ public class MCTSSearchMultiThread implements IMCTSSearch {
         return currentRoot.getVisits();
     }
 
+    /**
+     * Update the {@link #smartStop} with the simulations this search can still do
+     *
+     * @param nbRunning number of walkers running
+     * @return true if the search can stop
+     */
+    private boolean isSmartStop(long start, int nbSearchCalls, int nbRunning) {
+        final long elapsed = System.currentTimeMillis() - start;
+        // with a time manager the search is expected to end at the soft time, the hard time is only its limit
+        final long remainingMillis = timeManager != null ?
+                timeManager.getSoftMillis() - timeManager.getElapsedMillis() :
+                timeMillisPerStep - elapsed;
+        final long remainingSimulations = switch (this.stopMode) {
+            case TIMING -> nbSearchCalls > 0 && elapsed > 0 ? nbSearchCalls * remainingMillis / elapsed : -1;
+            case NB_STEP -> nbMaxSearchCalls - nbSearchCalls;
+        };
+        if (remainingSimulations < 0) return false;
+        // the visits of the running walkers and of the pending inferences are not on the root children yet
+        final long pendingSimulations = (long) nbRunning * nbLeaves + Math.max(0, nbSearchCalls - currentRoot.getVisits());
+        if (!smartStop.update(currentRoot, remainingSimulations + pendingSimulations)) return false;
+        statistic.nbSavedSimulations += remainingSimulations;
+        statistic.savedMillis += switch (this.stopMode) {
+            case TIMING -> remainingMillis;
+            case NB_STEP -> nbSearchCalls > 0 ? remainingSimulations * elapsed / nbSearchCalls : 0;
+        };
+        statistic.nbExcludedRootMoves = smartStop.getNbExcludedRootMoves();
+        log.info("[{}] SMART STOP after {} search calls, saved simulations:{}", nbStep, nbSearchCalls, remainingSimulations);
+        return true;
+    }
+
+    /**
+     * Wait for the walkers of this search still running, the pool is shared so it can not be shut down
+     *
+     * @return number of search calls of these walkers
+     */
+    private int waitRunningWalkers(int nbRunning) throws InterruptedException {
+        int nbSearchCalls = 0;
+        while (nbRunning > 0) {
+            final Future<Integer> future = executorService.poll(50, TimeUnit.MILLISECONDS);
+            try {
+                deepLearning.flushJob(isIdleFlush(future));
+                if (future == null) continue;
+                nbSearchCalls += future.get();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e);
+            }
+            nbRunning--;
+        }
+        return nbSearchCalls;
+    }
+
+    /**
+     * Merge the roots of the other trees into {@link #currentRoot}, used to choose the move and as policy target
+     */
+    private void mergeRoots() {
+        for (int i = 1; i < roots.size(); i++) {
+            final int nbVisits = currentRoot.mergeRoot(roots.get(i));
+            log.info("[{}] ROOT PARALLEL tree:{} merged visits:{}", nbStep, i, nbVisits);
+        }
+        statistic.nbRootTrees = roots.size();
+        roots.clear();
+        roots.add(currentRoot);
+    }
+
+    /**
+     * @return true if the walkers wait for the inferences of their leaves
+     */
+    private boolean isBlockingEvaluation() {
+        return blockingEvaluation || nbTrees > 1;
+    }
+
+    /**
+     * @return true if the batch has to be sent even if not full: the walkers are waiting for it
+     */
+    private boolean isIdleFlush(final Future<Integer> future) {
+        return isBlockingEvaluation() && future == null && deepLearning.getServiceNN().getInferenceDispatcher() == null;
+    }
+
     enum StopMode {
         TIMING, NB_STEP
     }
 
-    private MCTSSearchWalker createSearchWalker(final int nbStep, final int numThread, final int nbSubmit) {
+    /**
+     * @param deadline time the walker stops its descents, 0 if none
+     */
+    private MCTSSearchWalker createSearchWalker(final int nbStep, final int numThread, final int nbSubmit, final long deadline) {
         // gameOriginal.isInitialPosition();
         final MCTSSearchWalker MCTSSearchWalker = new MCTSSearchWalker(
                 nbStep,
@@ -182,12 +388,19 @@ public class MCTSSearchMultiThread implements IMCTSSearch {
                 nbSubmit,
                 statistic,
                 deepLearning,
-                currentRoot,
+                roots.get(nbSubmit % roots.size()),
                 gameRoot,
                 color,
                 updateCpuct,
                 updateDirichlet,
-                rand);
+                rand)
+                .withTranspositions(nbTrees > 1 ? null : transpositions)
+                .withTreeBudget(treeBudget)
+                .withLeaves(isBlockingEvaluation() ? 1 : nbLeaves)
+                .withSmartStop(smartStop)
+                .withDeadline(deadline)
+                .withBlockingEvaluation(isBlockingEvaluation())
+                .withIndependentTree(nbTrees > 1);
         return MCTSSearchWalker;
     }
 }
@@ -5,19 +5,24 @@ import com.aquila.chess.config.MCTSConfig;
 import com.aquila.chess.strategy.mcts.utils.Statistic;
 import com.aquila.chess.utils.DotGenerator;
 import com.aquila.chess.utils.Utils;
+import com.chess.engine.bitboards.MutableBoard;
 import com.chess.engine.classic.Alliance;
 import com.chess.engine.classic.board.Move;
-import com.chess.engine.classic.player.Player;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 import static com.aquila.chess.strategy.mcts.MCTSNode.State.*;
@@ -28,6 +33,17 @@ public class MCTSSearchWalker implements Callable<Integer> {
     protected static final double WIN_VALUE = 1;
     protected static final double LOOSE_VALUE = -1;
     private static final double DRAWN_VALUE = 0;
+    /**
+     * period of the check of a job still in the batch, while waiting for an inference
+     */
+    private static final long WAIT_INFERENCE_MILLIS = 50;
+
+    private static final ThreadLocal<DescentPath> descentPaths = ThreadLocal.withInitial(DescentPath::new);
+
+    /**
+     * game of the descents of the current thread, reset to the root game before each descent
+     */
+    private static final ThreadLocal<MCTSGame> descentGames = new ThreadLocal<>();
 
     private final int numThread;
 
@@ -41,13 +57,58 @@ public class MCTSSearchWalker implements Callable<Integer> {
     protected final UpdateCpuct updateCpuct;
     protected final Dirichlet updateDirichlet;
     protected final Random rand;
-    protected final MCTSGame mctsGame;
+    private final MCTSGame gameRoot;
+    /**
+     * copy of the root game played by this walker, reset by the worker thread before each descent in {@link #call()}
+     */
+    protected MCTSGame mctsGame;
     /**
      * this hyperparameter control the exploration inside the system. 1 means no
      * exploration
      */
     protected double cpuct;
     protected boolean isDirichlet;
+    /**
+     * DAG mode if not null: the positions already in the tree are shared instead of being expanded again
+     */
+    protected MCTSTranspositionTable transpositions = null;
+    /**
+     * counts the created nodes if not null
+     */
+    protected MCTSTreeBudget treeBudget = null;
+    /**
+     * number of leaves gathered by one call, see {@link #call()}
+     */
+    protected int nbLeaves = 1;
+    /**
+     * nodes keeping the virtual loss of this walker until the end of the gathering, so the next descents avoid them
+     */
+    private final List<MCTSNode> virtualLossNodes = new ArrayList<>();
+    /**
+     * path of the current descent, the buffer of the worker thread running {@link #call()}
+     */
+    private DescentPath path;
+    /**
+     * best moves of a selection, reused by the selections of the walker
+     */
+    private final List<Move> bestMoves = new ArrayList<>();
+    /**
+     * excludes from the selection of the root the moves that can no longer be the best one, if not null
+     */
+    protected MCTSSmartStop smartStop = null;
+    private int nbCollisions = 0;
+    /**
+     * time this walker stops its descents, 0 if none
+     */
+    protected long deadline = 0;
+    /**
+     * if true, the walker waits for the inference of the node it creates and backs up its value itself
+     */
+    protected boolean blockingEvaluation = false;
+    /**
+     * if true, the tree is one of the trees of a root parallel search, its nodes are never taken from the cache values
+     */
+    protected boolean independentTree = false;
 
     public MCTSSearchWalker(
             final int nbStep,
@@ -71,112 +132,408 @@ public class MCTSSearchWalker implements Callable<Integer> {
         this.updateCpuct = updateCpuct;
         this.updateDirichlet = updateDirichlet;
         this.rand = rand;
-        mctsGame = new MCTSGame(gameRoot);
+        this.gameRoot = gameRoot;
+    }
+
+    /**
+     * @param transpositions the positions of the tree searched, null to search without transpositions
+     */
+    public MCTSSearchWalker withTranspositions(final MCTSTranspositionTable transpositions) {
+        this.transpositions = transpositions;
+        return this;
+    }
+
+    /**
+     * @param treeBudget the budget counting the nodes of the tree, null if the tree is not limited
+     */
+    public MCTSSearchWalker withTreeBudget(final MCTSTreeBudget treeBudget) {
+        this.treeBudget = treeBudget;
+        return this;
+    }
+
+    /**
+     * @param nbLeaves number of leaves gathered by each call of the walker. With more than one leaf, the virtual loss
+     *                 of a descent is kept until the end of the call and a descent reaching a node still waiting for
+     *                 its inference is a collision: it is not searched again and the next descent takes another path
+     */
+    public MCTSSearchWalker withLeaves(int nbLeaves) {
+        this.nbLeaves = Math.max(1, nbLeaves);
+        return this;
+    }
+
+    public MCTSSearchWalker withSmartStop(final MCTSSmartStop smartStop) {
+        this.smartStop = smartStop;
+        return this;
+    }
+
+    /**
+     * @param deadline time (see {@link System#currentTimeMillis()}) the walker stops descending, the descent in
+     *                 progress returns without searching deeper. 0 if none
+     */
+    public MCTSSearchWalker withDeadline(long deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    /**
+     * @param blockingEvaluation if true, a created node is not propagated by the {@link ServiceNN}: the walker waits
+     *                           for its inference (see {@link ServiceNN#getInference(long)}) and backs up the value
+     *                           until the root before releasing its virtual losses. The inferences have to be run by
+     *                           another thread, the {@link InferenceDispatcher} or the search coordinator
+     */
+    public MCTSSearchWalker withBlockingEvaluation(boolean blockingEvaluation) {
+        this.blockingEvaluation = blockingEvaluation;
+        return this;
+    }
+
+    /**
+     * @param independentTree if true, the cache values are shared with the other trees of a root parallel search:
+     *                        the node of a path is always created, never taken from its cache value
+     */
+    public MCTSSearchWalker withIndependentTree(boolean independentTree) {
+        this.independentTree = independentTree;
+        return this;
+    }
+
+    private boolean isDeadlinePassed() {
+        return deadline > 0 && System.currentTimeMillis() >= deadline;
     }
 
+    /**
+     * Descend from the root until {@link #nbLeaves} leaves are gathered or as many collisions are detected.
+     * The jobs of the gathered leaves are in the batch of the {@link ServiceNN}, it is flushed once at the end
+     *
+     * @return number of search calls
+     */
     @Override
     public Integer call() throws Exception {
-        Thread.currentThread().setName(String.format("Worker:%d Submit:%d", numThread, nbSubmit));
-        SearchResult searchResult = search(currentRoot, 0);
-        if (searchResult == null) {
-            log.debug("[{}] END SEARCH: NULL", nbStep);
+        if (log.isDebugEnabled())
+            log.debug("[{}] WALKER numThread:{} submit:{} on {}", nbStep, numThread, nbSubmit, Thread.currentThread().getName());
+        path = descentPaths.get();
+        int nbSearchCalls = 0;
+        try {
+            for (int nbDescents = 0; nbDescents < nbLeaves && nbCollisions < nbLeaves; nbDescents++) {
+                if (isDeadlinePassed()) {
+                    statistic.nbDeadlineStops++;
+                    break;
+                }
+                mctsGame = descentGame();
+                SearchResult searchResult = search(currentRoot, 0);
+                if (log.isDebugEnabled()) log.debug("[{}] END SEARCH: {}", nbStep, searchResult);
+                getStatistic().nbCalls++;
+                nbSearchCalls += searchResult.nbSearchCalls;
+            }
+        } finally {
+            virtualLossNodes.forEach(MCTSNode::decVirtualLoss);
+            virtualLossNodes.clear();
+        }
+        if (nbLeaves > 1) deepLearning.flushJob(false);
+        return nbSearchCalls;
+    }
+
+    /**
+     * @return the game of the current thread, reset to {@link #gameRoot}. A new game is only created for the first
+     * descent of the thread, or if the previous one does not use the same inputs manager or the same position mode
+     */
+    private MCTSGame descentGame() {
+        MCTSGame game = descentGames.get();
+        if (game == null ||
+                game.getInputsManager().getClass() != gameRoot.getInputsManager().getClass() ||
+                game.isMutablePosition() != gameRoot.isMutablePosition()) {
+            game = new MCTSGame(gameRoot, gameRoot.isMutablePosition() ?
+                    MCTSSearchExecutor.scratchPosition(gameRoot.getBoard()) :
+                    null);
+            descentGames.set(game);
         } else {
-            log.debug("[{}] END SEARCH: {}", nbStep, searchResult.getLabel());
+            game.reset(gameRoot);
         }
-        getStatistic().nbCalls++;
-        log.debug("SEARCH RESULT:{}", searchResult);
-        return searchResult.nbSearchCalls;
+        return game;
     }
 
-    protected SearchResult search(final MCTSNode opponentNode, int depth) throws Exception {
-        log.debug("MCTS SEARCH: depth:{} opponentNode:{}", depth, opponentNode);
-        final Alliance colorOpponent = opponentNode.getColorState();
-        final Alliance moveColor = colorOpponent.complementary();
+    private void releaseVirtualLoss(final MCTSNode node) {
+        if (nbLeaves > 1) virtualLossNodes.add(node);
+        else node.decVirtualLoss();
+    }
 
-        MCTSNode selectedNode;
-        Move selectedMove;
-        long key = 0;
-        boolean newNodeCreated = false;
-        synchronized (opponentNode) {
-            if (opponentNode.isLeaf()) {
-                log.debug("OPPONENT NODE IS A LEAF: {}", opponentNode);
-                return new SearchResult("OPPONENT NODE IS A LEAF NODE", 0);
-            }
-            log.debug("detectAndCreateLeaf({})", opponentNode);
-            int nbCreatedLeafNodes = detectAndCreateLeaf(opponentNode);
-            if (nbCreatedLeafNodes < 0) {
-                log.debug("DETECTED {} LOOSE LEAF NODES", nbCreatedLeafNodes);
-                return new SearchResult("DETECTED LEAF NODES", -(nbCreatedLeafNodes - 1));
-            }
-            List<Move> looseMoves = opponentNode.getChildsAsCollection().stream().
-                    filter(node -> node != null && node.getState() == LOOSE).
-                    map(MCTSNode::getMove).
-                    collect(Collectors.toList());
-            if (looseMoves.size() == opponentNode.getChildNodes().size())
-                return new SearchResult("DETECTED LEAF NODES", 1);
-            selectedMove = selection(opponentNode, depth, looseMoves);
-            log.debug("SELECTION: {}", selectedMove);
-            if (selectedMove == null) return new SearchResult("NO SELECTION POSSIBLE", 0);
-            selectedNode = opponentNode.findChild(selectedMove);
-            log.debug("MCTS SEARCH END synchronized 1.0 ({})", opponentNode);
-
-            // expansion
-            if (selectedNode == null) {
-                key = mctsGame.hashCode(selectedMove);
-                CacheValue cacheValue = deepLearning.getBatchedValue(key, selectedMove, statistic);
-                log.debug("MCTS SEARCH EXPANSION KEY[{}] MOVE:{} CACHE VALUE:{}", key, selectedMove, cacheValue);
-                log.debug("BEGIN synchronized 1.1 ({})", opponentNode);
-                try {
-                    MCTSNodePath path = new MCTSNodePath(opponentNode.getPathFromRoot(), selectedMove);
-                    log.debug("EXPANSION MCTS CREATE NODE for PATH:{}", path);
-                    selectedNode = cacheValue.getNode(path);
-                    if (selectedNode == null) {
-                        selectedNode = MCTSNode.createNode(mctsGame.getBoard(), null, selectedMove, key, cacheValue);
-                        opponentNode.addChild(selectedNode);
-                        selectedNode.updateCache();
+    /**
+     * Descend from the given node until a node is created, evaluated or found terminal. The descent is a loop: the
+     * nodes of the path keep a virtual loss until the end of the descent and are released in one pass, the values are
+     * backed up by the {@link ServiceNN} (or by {@link #backupInference(MCTSNode)} in blocking evaluation).
+     * Once the path exists in the tree, the descent itself does not allocate
+     */
+    protected SearchResult search(final MCTSNode root, int depth) throws Exception {
+        MCTSNode opponentNode = root;
+        try {
+            while (true) {
+                log.debug("MCTS SEARCH: depth:{} opponentNode:{}", depth, opponentNode);
+                final Alliance colorOpponent = opponentNode.getColorState();
+                final Alliance moveColor = colorOpponent.complementary();
+
+                MCTSNode selectedNode;
+                Move selectedMove;
+                long key = 0;
+                boolean newNodeCreated = false;
+                boolean blockingBackup = false;
+                if (depth > 0 && isDeadlinePassed()) {
+                    statistic.nbDeadlineStops++;
+                    return SearchResult.DEADLINE;
+                }
+                if (opponentNode.isSolved())
+                    return depth == 0 ? SearchResult.SOLVED_NODE : backupProof(opponentNode);
+                if (opponentNode.isLeaf()) {
+                    log.debug("OPPONENT NODE IS A LEAF: {}", opponentNode);
+                    return SearchResult.OPPONENT_LEAF_NODE;
+                }
+                log.debug("detectAndCreateLeaf({})", opponentNode);
+                int nbCreatedLeafNodes = detectAndCreateLeaf(opponentNode);
+                if (nbCreatedLeafNodes < 0) {
+                    log.debug("DETECTED {} LOOSE LEAF NODES", nbCreatedLeafNodes);
+                    return new SearchResult("DETECTED LEAF NODES", -(nbCreatedLeafNodes - 1));
+                }
+                if (isAllChildsLoose(opponentNode)) return SearchResult.DETECTED_LEAF_NODES;
+                // the selection only reads the atomic statistics of the nodes, without holding any monitor
+                selectedMove = selection(opponentNode, depth);
+                log.debug("SELECTION: {}", selectedMove);
+                if (selectedMove == null) return SearchResult.NO_SELECTION;
+                final MCTSNode.ChildNode selectedChildNode = opponentNode.findChildNode(selectedMove);
+                if (selectedChildNode != null && selectedChildNode.transposition != null) {
+                    return searchTransposition(opponentNode, selectedMove, selectedChildNode.transposition);
+                }
+                selectedNode = opponentNode.findChild(selectedMove);
+
+                // expansion, the only step guarded by the monitor of the node
+                if (selectedNode == null) {
+                    final MCTSNode transposition = findTransposition(opponentNode, selectedMove);
+                    if (transposition != null) return searchTransposition(opponentNode, selectedMove, transposition);
+                    // the state of a child is only submitted to the NN when the child is chosen, see selection()
+                    final String label = log.isDebugEnabled() ?
+                            String.format("[S:%d|D:%d] PARENT:%s CHILD-SELECTION:%s", mctsGame.getNbStep(), depth, opponentNode.getMove(), selectedMove) :
+                            "CHILD-SELECTION";
+                    key = deepLearning.addState(mctsGame, label, firstPlayUrgency(opponentNode), selectedMove, statistic);
+                    CacheValue cacheValue = deepLearning.getBatchedValue(key, selectedMove, statistic);
+                    log.debug("MCTS SEARCH EXPANSION KEY[{}] MOVE:{} CACHE VALUE:{}", key, selectedMove, cacheValue);
+                    synchronized (opponentNode) {
+                        if (opponentNode.isLeaf()) return SearchResult.OPPONENT_LEAF_NODE;
+                        selectedNode = opponentNode.findChild(selectedMove);
+                        if (selectedNode == null) {
+                            try {
+                                if (transpositions == null && !independentTree) {
+                                    MCTSNodePath nodePath = new MCTSNodePath(opponentNode.getPathFromRoot(), selectedMove);
+                                    log.debug("EXPANSION MCTS CREATE NODE for PATH:{}", nodePath);
+                                    selectedNode = cacheValue.getNode(nodePath);
+                                }
+                                if (selectedNode == null) {
+                                    selectedNode = MCTSNode.createNode(mctsGame.getBoard(), null, selectedMove, key, cacheValue);
+                                    opponentNode.addChild(selectedNode);
+                                    // the ServiceNN does not propagate the nodes already propagated, see backupInference()
+                                    if (blockingEvaluation) {
+                                        selectedNode.setPropagated(true);
+                                        blockingBackup = true;
+                                    }
+                                    selectedNode.updateCache();
+                                    if (transpositions != null)
+                                        transpositions.register(selectedMove.calculateZobristKey(), selectedNode);
+                                    if (treeBudget != null) treeBudget.nodeCreated();
+                                }
+                                assert (selectedNode != opponentNode);
+                            } catch (Exception e) {
+                                log.error(String.format("[%s] [S:%d D:%d] Error during the creation of a new MCTSNode", this.colorStrategy, mctsGame.getNbStep(), depth), e);
+                                throw e;
+                            }
+                            selectedNode.syncSum();
+                            newNodeCreated = true;
+                        } else {
+                            log.debug("MCTS SEARCH child:{} created by another walker", selectedMove);
+                        }
+                    }
+                } else {
+                    log.debug("MCTS SEARCH found child:{} node:{}", selectedMove, selectedNode);
+                    if (nbLeaves > 1 && isWaitingInference(selectedNode)) {
+                        log.debug("MCTS SEARCH COLLISION child:{}", selectedMove);
+                        nbCollisions++;
+                        statistic.nbCollisions++;
+                        selectedNode.incVirtualLoss();
+                        virtualLossNodes.add(selectedNode);
+                        return SearchResult.COLLISION;
+                    }
+                    // the values backed up through a node are reset by its synchronisation, see MCTSNode.syncSum()
+                    if (blockingEvaluation && isWaitingInference(selectedNode)) {
+                        if (waitInference(selectedNode) == null) return SearchResult.INFERENCE_NOT_SUBMITTED;
+                        selectedNode.syncSum();
                     }
-                    assert (selectedNode != opponentNode);
-                } catch (Exception e) {
-                    log.error(String.format("[%s] [S:%d D:%d] Error during the creation of a new MCTSNode", this.colorStrategy, mctsGame.getNbStep(), depth), e);
-                    throw e;
                 }
-                selectedNode.syncSum();
-                log.debug("END synchronized 1.1 ({})", opponentNode);
-                newNodeCreated = true;
-            } else {
-                log.debug("MCTS SEARCH found child:{} node:{}", selectedMove, selectedNode);
+                // evaluate
+                selectedNode.incVirtualLoss();
+                path.push(selectedNode);
+                log.debug("SIMULATE PLAY: {}", selectedMove);
+                Game.GameStatus gameStatus = mctsGame.play(selectedMove);
+                getStatistic().nbPlay++;
+                if (gameStatus != Game.GameStatus.IN_PROGRESS) {
+                    deepLearning.removeState(mctsGame, moveColor, selectedMove);
+                    releaseVirtualLoss(path.pop());
+                    return returnEndOfSimulatedGame(selectedNode, depth, moveColor, selectedMove, gameStatus);
+                }
+                if (blockingBackup) return backupInference(selectedNode);
+                log.debug("ADD NODE TO PROPAGATE: selectedNode:{}", selectedNode);
+                log.debug("\tparent:{}", opponentNode);
+                this.deepLearning.getServiceNN().addNodeToPropagate(selectedNode);
+                if (newNodeCreated) return SearchResult.CREATED_NODE;
+                if (selectedNode.isLeaf()) return SearchResult.LEAF_NODE;
+                // next ply, the retro-propagation is done in ServiceNN
+                opponentNode = selectedNode;
+                depth++;
             }
+        } finally {
+            // the virtual losses of the path are released from the deepest node to the root
+            while (!path.isEmpty()) releaseVirtualLoss(path.pop());
         }
-        // evaluate
-        selectedNode.incVirtualLoss();
-        log.debug("SIMULATE PLAY: {}", selectedMove);
-        Game.GameStatus gameStatus = mctsGame.play(selectedMove);
-        getStatistic().nbPlay++;
-        if (gameStatus != Game.GameStatus.IN_PROGRESS) {
-            deepLearning.removeState(mctsGame, moveColor, selectedMove);
-            selectedNode.decVirtualLoss();
-            return returnEndOfSimulatedGame(selectedNode, depth, moveColor, selectedMove, gameStatus);
-        }
-        log.debug("ADD NODE TO PROPAGATE: selectedNode:{}", selectedNode);
-        log.debug("\tparent:{}", opponentNode);
-        this.deepLearning.getServiceNN().addNodeToPropagate(selectedNode);
-        // }
-        if (newNodeCreated) {
-            selectedNode.decVirtualLoss();
-            return new SearchResult("CREATED NODE", 1);
-        } else if (selectedNode.isLeaf()) {
-            selectedNode.decVirtualLoss();
-            return new SearchResult("LEAF NODE", 1);
-        } else {
-            // recursive calls
-            SearchResult searchResult = search(selectedNode, depth + 1);
-            // retro-propagate done in ServiceNN
-            selectedNode.decVirtualLoss();
-            log.debug("RETRO-PROPAGATION: {}", selectedNode);
-            return searchResult;
+    }
+
+    /**
+     * MCTS-solver: a solved node is not searched, its proven value is backed up from the node to the root so its
+     * visits keep growing with the selections, like a terminal node
+     */
+    private SearchResult backupProof(final MCTSNode node) {
+        for (MCTSNode parent = node; parent != null; parent = parent.getParent()) {
+            if (!parent.isSync()) return SearchResult.PROOF_POSTPONED;
+            if (parent.getState() == ROOT) break;
+        }
+        double value = node.getProof().getValue();
+        for (MCTSNode parent = node; parent != null; parent = parent.getParent()) {
+            parent.propagateOneTime(value);
+            if (parent.getState() == ROOT) break;
+            value = -value;
+        }
+        return SearchResult.PROVEN_NODE;
+    }
+
+    /**
+     * @return true if all the children of the node are LOOSE nodes, or if it has no child
+     */
+    private static boolean isAllChildsLoose(final MCTSNode node) {
+        for (MCTSNode.ChildNode childNode : node.getChildNodes().values()) {
+            if (childNode.node == null || childNode.node.getState() != LOOSE) return false;
+        }
+        return true;
+    }
+
+    private static List<Move> looseMoves(final MCTSNode node) {
+        return node.getChildsAsCollection().stream().
+                filter(child -> child != null && child.getState() == LOOSE).
+                map(MCTSNode::getMove).
+                collect(Collectors.toList());
+    }
+
+    /**
+     * Blocking evaluation: wait for the inference of the created node, then propagate its value from its parent to
+     * the root, with the sign of each player. The node was marked as propagated at its creation so the
+     * {@link ServiceNN} does not propagate it again, unless its job was dropped from the batch
+     */
+    private SearchResult backupInference(final MCTSNode node) throws Exception {
+        final CacheValue cacheValue = waitInference(node);
+        if (cacheValue == null) {
+            log.debug("BLOCKING EVALUATION CANCELLED node:{}", node);
+            node.setPropagated(false);
+            this.deepLearning.getServiceNN().addNodeToPropagate(node);
+            return SearchResult.CREATED_NODE;
+        }
+        statistic.nbBlockingEvaluations++;
+        node.syncSum();
+        double value = cacheValue.getValue();
+        for (MCTSNode parent = node.getParent(); parent != null; parent = parent.getParent()) {
+            value = -value;
+            parent.propagateOneTime(value);
+            if (parent.getState() == ROOT) break;
+        }
+        return SearchResult.EVALUATED_NODE;
+    }
+
+    /**
+     * Park the walker until the inference of the node is done
+     *
+     * @return the evaluated cache value, null if the job of the node is no longer in the batch
+     */
+    private CacheValue waitInference(final MCTSNode node) throws Exception {
+        final CompletableFuture<CacheValue> inference = deepLearning.getInference(node.getKey());
+        while (true) {
+            try {
+                return inference.get(WAIT_INFERENCE_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (CancellationException e) {
+                return null;
+            } catch (TimeoutException e) {
+                if (!deepLearning.getServiceNN().containsJob(node.getKey()) && !node.getCacheValue().isInitialized())
+                    return null;
+            }
         }
     }
 
+    /**
+     * @return true if the inference of the node is not done yet
+     */
+    private boolean isWaitingInference(final MCTSNode node) {
+        if (node.isLeaf()) return false;
+        node.syncSum();
+        return !node.isSync();
+    }
+
+    /**
+     * DAG mode: find a node of the tree for the position reached by the move from the opponentNode.
+     * The children of the root are always expanded, so the best move keeps a node
+     *
+     * @return the node of the same position, null if the move has to be expanded
+     */
+    private MCTSNode findTransposition(final MCTSNode opponentNode, final Move selectedMove) {
+        if (transpositions == null || opponentNode.getState() == ROOT) return null;
+        final MCTSNode ret = transpositions.get(selectedMove.calculateZobristKey());
+        if (ret == null || !ret.isSync() || ret.getState() == LOOSE) return null;
+        // a repetition of a position of the current line is not a transposition
+        for (MCTSNode node = opponentNode; node != null; node = node.getParent()) {
+            if (node == ret) return null;
+            if (node.getState() == ROOT) break;
+        }
+        return ret;
+    }
+
+    /**
+     * DAG mode: link the transposition to the move of the opponentNode and backup its expected reward until the root.
+     * The transposition is not searched through this edge, its value is refined by the visits from its own parent.
+     * The selection uses the visits of the edge, so the exploration of the opponentNode stays correct
+     */
+    private SearchResult searchTransposition(final MCTSNode opponentNode, final Move selectedMove, final MCTSNode transposition) {
+        // the link is only published with the visit it backs up, so the path has to be synchronised first
+        for (MCTSNode node = opponentNode; node != null; node = node.getParent()) {
+            if (!node.isSync()) return SearchResult.TRANSPOSITION_POSTPONED;
+            if (node.getState() == ROOT) break;
+        }
+        final MCTSNode linkedNode;
+        synchronized (opponentNode) {
+            if (opponentNode.isLeaf()) return SearchResult.OPPONENT_LEAF_NODE;
+            final MCTSNode.ChildNode childNode = opponentNode.findChildNode(selectedMove);
+            if (childNode.node != null) return SearchResult.CHILD_CREATED_BY_ANOTHER_WALKER;
+            // the node of the position can be detached from the tree since the link, by a leaf created on one of its parents
+            linkedNode = childNode.transposition == null ? transposition : childNode.transposition;
+            if (!linkedNode.isAttachedTo(currentRoot)) {
+                childNode.transposition = null;
+                return SearchResult.TRANSPOSITION_REMOVED;
+            }
+            if (childNode.transposition == null) {
+                log.debug("LINK TRANSPOSITION move:{} -> {}", selectedMove, linkedNode);
+                childNode.transposition = linkedNode;
+            }
+            childNode.incVisits();
+        }
+        double value = linkedNode.getExpectedReward(false);
+        statistic.nbTranspositions++;
+        MCTSNode node = opponentNode;
+        do {
+            value = -value;
+            node.propagateOneTime(value);
+            if (node.getState() == ROOT) break;
+            node = node.getParent();
+        } while (node != null);
+        return SearchResult.TRANSPOSITION;
+    }
+
     /**
      * Create possible WIN / DRAWN / LOST node found as child of the current opponentNode
      *
@@ -190,58 +547,94 @@ public class MCTSSearchWalker implements Callable<Integer> {
      */
     private int detectAndCreateLeaf(final MCTSNode opponentNode) {
         if (opponentNode.isContainsChildleaf()) return 0;
-        opponentNode.setContainsChildleaf(true);
+        synchronized (opponentNode) {
+            if (opponentNode.isContainsChildleaf()) return 0;
+            try {
+                return createLeafChilds(opponentNode);
+            } finally {
+                opponentNode.setContainsChildleaf(true);
+            }
+        }
+    }
+
+    /**
+     * Done once per node, by the walker holding the monitor of the node
+     */
+    private int createLeafChilds(final MCTSNode opponentNode) {
         if (opponentNode.getChildNodes().isEmpty()) return 0;
         if (opponentNode.allChildNodes().stream().filter(MCTSNode::isLeaf).count() == opponentNode.getChildNodes().size()) {
             log.warn("[{}] TERMINAL NODE: {}", this.colorStrategy, opponentNode);
             return -1;
         }
-        synchronized (opponentNode) {
-            final Collection<Move> moves = opponentNode.getChildMoves();
-            assert moves.size() > 0;
-            final List<Move> movesCreatingLeaf = new ArrayList<>();
-            for (Move possibleMove : moves) {
-                final Player childPlayer = possibleMove.execute().currentPlayer();
-                final List<Move> currentAllLegalMoves = childPlayer.getLegalMoves(Move.MoveStatus.DONE);
-                if (currentAllLegalMoves.isEmpty()) {
-                    if (Utils.isDebuggerPresent()) {
-                        log.info("[{}] prepareChilds:\n{}", this.colorStrategy, DotGenerator.toString(opponentNode.getRoot(), 5, true));
-                    }
-                    movesCreatingLeaf.add(possibleMove);
-                }
-            }
-            if (movesCreatingLeaf.isEmpty()) return 0;
-            // Loose
-            boolean stop = false;
-            for (Move move : movesCreatingLeaf) {
-                if (opponentNode.getColorState() == this.colorStrategy && opponentNode.getState() != ROOT) {
-                    log.warn("[{}] DETECT LOSS MOVE: {} last:{}", this.colorStrategy, opponentNode, move);
-                    stop = true;
-                    break;
+        final Collection<Move> moves = opponentNode.getChildMoves();
+        assert moves.size() > 0;
+        final List<Move> movesCreatingLeaf = new ArrayList<>();
+        for (Move possibleMove : moves) {
+            if (isWithoutLegalMoves(possibleMove)) {
+                if (Utils.isDebuggerPresent()) {
+                    log.info("[{}] prepareChilds:\n{}", this.colorStrategy, DotGenerator.toString(opponentNode.getRoot(), 5, true));
                 }
+                movesCreatingLeaf.add(possibleMove);
             }
-            if (stop) {
-                statistic.nbGoodSelection++;
-                int nbRemovedChild = opponentNode.getNumberOfAllNodes();
-                log.debug("[{}] CLEAN UP child:{}", this.colorStrategy, nbRemovedChild);
-                createLooseNode(opponentNode);
-                return -nbRemovedChild;
+        }
+        if (movesCreatingLeaf.isEmpty()) return 0;
+        // Loose
+        boolean stop = false;
+        for (Move move : movesCreatingLeaf) {
+            if (opponentNode.getColorState() == this.colorStrategy && opponentNode.getState() != ROOT) {
+                log.warn("[{}] DETECT LOSS MOVE: {} last:{}", this.colorStrategy, opponentNode, move);
+                stop = true;
+                break;
             }
-            int nbCreatedNodes = 0;
-            for (Move move : movesCreatingLeaf) {
-                final Player childPlayer = move.execute().currentPlayer();
-                if (!childPlayer.isInCheck()) {
-                    // PAT
-                    nbCreatedNodes++;
-                    createDrawnNode(opponentNode, move);
-                } else if (opponentNode.getColorState() != this.colorStrategy) {
-                    // WIN
-                    nbCreatedNodes++;
-                    createWinNode(opponentNode, move);
-                }
+        }
+        if (stop) {
+            statistic.nbGoodSelection++;
+            int nbRemovedChild = opponentNode.getNumberOfAllNodes();
+            log.debug("[{}] CLEAN UP child:{}", this.colorStrategy, nbRemovedChild);
+            createLooseNode(opponentNode);
+            return -nbRemovedChild;
+        }
+        int nbCreatedNodes = 0;
+        for (Move move : movesCreatingLeaf) {
+            if (!isInCheck(move)) {
+                // PAT
+                nbCreatedNodes++;
+                createDrawnNode(opponentNode, move);
+            } else if (opponentNode.getColorState() != this.colorStrategy) {
+                // WIN
+                nbCreatedNodes++;
+                createWinNode(opponentNode, move);
             }
-            return nbCreatedNodes;
         }
+        return nbCreatedNodes;
+    }
+
+    /**
+     * @return true if the opponent has no legal move after the given move
+     */
+    private boolean isWithoutLegalMoves(final Move move) {
+        final MutableBoard position = mctsGame.getPosition();
+        if (position == null) {
+            return move.execute().currentPlayer().generateLegalMoves().isEmpty();
+        }
+        position.makeMove(move);
+        final boolean ret = !position.hasLegalMoves();
+        position.unmakeMove();
+        return ret;
+    }
+
+    /**
+     * @return true if the opponent is in check after the given move
+     */
+    private boolean isInCheck(final Move move) {
+        final MutableBoard position = mctsGame.getPosition();
+        if (position == null) {
+            return move.execute().currentPlayer().isInCheck();
+        }
+        position.makeMove(move);
+        final boolean ret = position.isInCheck();
+        position.unmakeMove();
+        return ret;
     }
 
     protected MCTSNode createStopLeafChild(final MCTSNode opponentNode, final Move possibleMove, final MCTSNode.State state) {
@@ -258,10 +651,11 @@ public class MCTSSearchWalker implements Callable<Integer> {
                     child = new MCTSNode(possibleMove, new ArrayList<>(), 0, cacheValue);
                 }
             }
-            synchronized (opponentNode.getChildNodes()) {
+            synchronized (opponentNode) {
                 if (opponentNode.findChild(possibleMove) == null) {
                     log.debug("[{}] CREATE NEW {} NODE path:{} :{}", this.colorStrategy, state, child.getMovesFromRootAsString(), child.getCacheValue().getValue());
                     opponentNode.addChild(child);
+                    if (treeBudget != null) treeBudget.nodeCreated();
                 }
             }
             child.updateCache();
@@ -274,6 +668,7 @@ public class MCTSSearchWalker implements Callable<Integer> {
 
     protected void createDrawnNode(final MCTSNode opponentNode, final Move possibleMove) {
         final MCTSNode child = createStopLeafChild(opponentNode, possibleMove, PAT);
+        solve(child, MCTSNode.Proof.DRAW);
         if (child.getState() != PAT) {
             log.info("[{}] DETECT DRAWN MOVE {} -> DRAWN-NODE:{} OLD_VALUE:{}", this.colorStrategy, opponentNode.getMovesFromRootAsString(), possibleMove, child.getCacheValue().getValue());
             child.setState(PAT);
@@ -285,6 +680,7 @@ public class MCTSSearchWalker implements Callable<Integer> {
 
     protected void createWinNode(final MCTSNode opponentNode, final Move possibleMove) {
         final MCTSNode child = createStopLeafChild(opponentNode, possibleMove, WIN);
+        solve(child, MCTSNode.Proof.WIN);
         if (child.getState() != WIN) {
             log.info("[{}] DETECT WIN MOVE: {} -> WIN-NODE {} OLD_VALUE:{}", this.colorStrategy, opponentNode.getMovesFromRootAsString(), possibleMove, child.getCacheValue().getValue());
             child.setState(WIN);
@@ -295,6 +691,8 @@ public class MCTSSearchWalker implements Callable<Integer> {
     }
 
     protected void createLooseNode(final MCTSNode opponentNode) {
+        // the opponent has a mate after the move of the opponentNode
+        solve(opponentNode, MCTSNode.Proof.LOSS);
         if (opponentNode.getState() != LOOSE) {
             log.info("[{}] STOP LOSS NODE {} LOOSE-NODE:{} OLD_VALUE:{}", this.colorStrategy, opponentNode.getMovesFromRootAsString(), opponentNode, opponentNode.getCacheValue().getValue());
             undoPropagation(opponentNode, opponentNode.getColorState(), opponentNode.getMove());
@@ -305,7 +703,14 @@ public class MCTSSearchWalker implements Callable<Integer> {
         }
     }
 
-    protected Move selection(final MCTSNode opponentNode, int depth, List<Move> looseMoves) {
+    /**
+     * MCTS-solver: prove the node and solve its ancestors, see {@link MCTSNode#prove(MCTSNode.Proof)}
+     */
+    private void solve(final MCTSNode node, final MCTSNode.Proof proof) {
+        statistic.nbSolvedNodes += node.prove(proof);
+    }
+
+    protected Move selection(final MCTSNode opponentNode, int depth) {
         double maxUcb = Double.NEGATIVE_INFINITY;
         double ucb;
         double policy;
@@ -320,45 +725,41 @@ public class MCTSSearchWalker implements Callable<Integer> {
             log.debug("graph:-----------------------------------\n{}\n-----------------------------------",
                     DotGenerator.toString(opponentNode.getRoot(), 10, true));
         }
-        final List<Move> bestMoves = new ArrayList<>();
-
-        String label;
-        synchronized (moves) {
-            for (final Move possibleMove : moves) {
-                int childVisits = 0;
-                final MCTSNode.ChildNode childNode = opponentNode.findChildNode(possibleMove);
-                if (childNode == null || childNode.node == null) {
-                    label = String.format("[S:%d|D:%d] PARENT:%s CHILD-SELECTION:%s", mctsGame.getNbStep(), depth, opponentNode.getMove(), possibleMove == null ? "BasicMove(null)" : possibleMove.toString());
-                    MCTSNode parentOpponentNode = opponentNode.getParent();
-                    double initValue = parentOpponentNode == null ?
-                            opponentNode.getExpectedReward(false) :
-                            parentOpponentNode.getExpectedReward(false);
-                    initValue -= MCTSConfig.mctsConfig.getFpuReduction();
-                    long key = deepLearning.addState(mctsGame, label, initValue, possibleMove, statistic);
-                    CacheValue cacheValue = deepLearning.getCacheValues().get(key);
-                    log.debug("GET CACHE VALUE[key:{}] possibleMove:{}", key, possibleMove);
-                    exploitation = cacheValue.getValue();
-                } else {
-                    child = childNode.node;
-                    if (child.getState() == LOOSE) continue;
-                    exploitation = child.getExpectedReward(true);
-                    childVisits = child.getVisits();
-                }
+        bestMoves.clear();
+        // the children without node are scored with the FPU and their prior, they are neither hashed nor evaluated
+        final double fpu = firstPlayUrgency(opponentNode);
+        for (final Move possibleMove : moves) {
+            if (smartStop != null && opponentNode == currentRoot && smartStop.isExcluded(possibleMove)) continue;
+            int childVisits = 0;
+            final MCTSNode.ChildNode childNode = opponentNode.findChildNode(possibleMove);
+            child = childNode == null ? null : childNode.node;
+            final MCTSNode transposition = childNode == null ? null : childNode.transposition;
+            // the proven losses are not searched anymore, the other solved children are scored at their proven value
+            if (transposition != null) {
+                if (transposition.getState() == LOOSE || transposition.getProof() == MCTSNode.Proof.LOSS) continue;
+                exploitation = transposition.isSolved() ? transposition.getProof().getValue() : transposition.getExpectedReward(true);
+                childVisits = childNode.getVisits();
+            } else if (child == null) {
+                exploitation = fpu;
+            } else {
+                if (child.getState() == LOOSE || child.getProof() == MCTSNode.Proof.LOSS) continue;
+                exploitation = child.isSolved() ? child.getProof().getValue() : child.getExpectedReward(true);
+                childVisits = child.getVisits();
+            }
+            policy = childNode == null ? 0 : childNode.policy;
+            if (log.isDebugEnabled()) {
                 log.debug("exploitation({})={}", possibleMove, exploitation);
-                policy = childNode == null ? 0 : childNode.policy;
-                if (log.isDebugEnabled()) {
-                    log.debug("BATCH deepLearning.getPolicy({})", possibleMove);
-                    log.debug("policy:{}", policy);
-                }
-                exploration = exploration(opponentNode, cpuct, childVisits, policy);
-                ucb = exploitation + exploration;
-                if (ucb > maxUcb) {
-                    maxUcb = ucb;
-                    bestMoves.clear();
-                    bestMoves.add(possibleMove);
-                } else if (ucb == maxUcb) {
-                    bestMoves.add(possibleMove);
-                }
+                log.debug("BATCH deepLearning.getPolicy({})", possibleMove);
+                log.debug("policy:{}", policy);
+            }
+            exploration = exploration(opponentNode, cpuct, childVisits, policy);
+            ucb = exploitation + exploration;
+            if (ucb > maxUcb) {
+                maxUcb = ucb;
+                bestMoves.clear();
+                bestMoves.add(possibleMove);
+            } else if (ucb == maxUcb) {
+                bestMoves.add(possibleMove);
             }
         }
         int nbBestMoves = bestMoves.size();
@@ -373,14 +774,26 @@ public class MCTSSearchWalker implements Callable<Integer> {
                 statistic.maxRandomSelectionBestMoves = nbBestMoves;
             if (nbBestMoves < statistic.minRandomSelectionBestMoves)
                 statistic.minRandomSelectionBestMoves = nbBestMoves;
-            bestMove = getRandomMove(bestMoves, looseMoves);
+            bestMove = getRandomMove(bestMoves, looseMoves(opponentNode));
         } else if (nbBestMoves == 0) {
             statistic.nbRandomSelection++;
-            bestMove = getRandomMove(moves, looseMoves);
+            bestMove = getRandomMove(moves, looseMoves(opponentNode));
         }
         return bestMove;
     }
 
+    /**
+     * @return the value of the children of the opponentNode not expanded yet: the reward of the parent of the
+     * opponentNode (of the opponentNode for the root) minus the FPU reduction
+     */
+    private double firstPlayUrgency(final MCTSNode opponentNode) {
+        final MCTSNode parentOpponentNode = opponentNode.getParent();
+        final double initValue = parentOpponentNode == null ?
+                -opponentNode.getExpectedReward(false) :
+                parentOpponentNode.getExpectedReward(false);
+        return initValue - MCTSConfig.mctsConfig.getFpuReduction();
+    }
+
     /**
      * From https://colab.research.google.com/github/es2mac/SwiftDigger/blob/master/TetrisField.ipynb
      *
@@ -391,7 +804,8 @@ public class MCTSSearchWalker implements Callable<Integer> {
      * @return
      */
     static public double exploration(final MCTSNode opponentNode, double cpuct, int childVisits, double policy) {
-        return cpuct * policy * Math.sqrt(opponentNode.getVisits()) / (1 + childVisits);
+        // at least one parent visit: before the first propagation, the prior still orders the children scored with the FPU
+        return cpuct * policy * Math.sqrt(Math.max(opponentNode.getVisits(), 1)) / (1 + childVisits);
     }
 
     public SearchResult returnEndOfSimulatedGame(final MCTSNode node,
@@ -399,6 +813,11 @@ public class MCTSSearchWalker implements Callable<Integer> {
                                                  final Alliance simulatedPlayerColor,
                                                  final Move selectedMove,
                                                  final Game.GameStatus gameStatus) {
+        solve(node, switch (gameStatus) {
+            case BLACK_CHESSMATE, WHITE_CHESSMATE -> MCTSNode.Proof.WIN;
+            case IN_PROGRESS -> MCTSNode.Proof.UNKNOWN;
+            default -> MCTSNode.Proof.DRAW;
+        });
         switch (gameStatus) {
             case BLACK_CHESSMATE:
             case WHITE_CHESSMATE:
@@ -415,7 +834,7 @@ public class MCTSSearchWalker implements Callable<Integer> {
                         node.setPropagated(false);
                     } else node.incNbPropationsToExecute();
                     this.deepLearning.addDefinedNodeToPropagate(node);
-                    return new SearchResult("RETURN WIN NODE", 1);
+                    return SearchResult.RETURN_WIN_NODE;
                 } else {
                     if (node.getState() != LOOSE) {
                         if (log.isDebugEnabled()) {
@@ -429,7 +848,7 @@ public class MCTSSearchWalker implements Callable<Integer> {
                         node.setPropagated(false);
                     } else node.incNbPropationsToExecute();
                     this.deepLearning.addDefinedNodeToPropagate(node);
-                    return new SearchResult("RETURN LOOSE NODE", 1);
+                    return SearchResult.RETURN_LOOSE_NODE;
                 }
             case PAT:
                 node.setState(PAT);
@@ -457,7 +876,7 @@ public class MCTSSearchWalker implements Callable<Integer> {
             node.setPropagated(false);
         } else node.incNbPropationsToExecute();
         this.deepLearning.addDefinedNodeToPropagate(node);
-        return new SearchResult("RETURN " + node.getState() + " NODE", 1);
+        return SearchResult.returnNode(node.getState());
     }
 
     private void undoPropagation(final MCTSNode node) {
@@ -487,8 +906,62 @@ public class MCTSSearchWalker implements Callable<Integer> {
     @Getter
     @ToString
     static public class SearchResult {
-        private String label;
-        private int nbSearchCalls;
+        static final SearchResult DEADLINE = new SearchResult("DEADLINE", 0);
+        static final SearchResult SOLVED_NODE = new SearchResult("SOLVED NODE", 0);
+        static final SearchResult PROVEN_NODE = new SearchResult("PROVEN NODE", 1);
+        static final SearchResult PROOF_POSTPONED = new SearchResult("PROOF POSTPONED", 0);
+        static final SearchResult OPPONENT_LEAF_NODE = new SearchResult("OPPONENT NODE IS A LEAF NODE", 0);
+        static final SearchResult DETECTED_LEAF_NODES = new SearchResult("DETECTED LEAF NODES", 1);
+        static final SearchResult NO_SELECTION = new SearchResult("NO SELECTION POSSIBLE", 0);
+        static final SearchResult COLLISION = new SearchResult("COLLISION", 0);
+        static final SearchResult INFERENCE_NOT_SUBMITTED = new SearchResult("INFERENCE NOT SUBMITTED", 0);
+        static final SearchResult CREATED_NODE = new SearchResult("CREATED NODE", 1);
+        static final SearchResult EVALUATED_NODE = new SearchResult("EVALUATED NODE", 1);
+        static final SearchResult LEAF_NODE = new SearchResult("LEAF NODE", 1);
+        static final SearchResult CHILD_CREATED_BY_ANOTHER_WALKER = new SearchResult("CHILD CREATED BY ANOTHER WALKER", 0);
+        static final SearchResult TRANSPOSITION_REMOVED = new SearchResult("TRANSPOSITION REMOVED", 0);
+        static final SearchResult TRANSPOSITION_POSTPONED = new SearchResult("TRANSPOSITION POSTPONED", 0);
+        static final SearchResult TRANSPOSITION = new SearchResult("TRANSPOSITION", 1);
+        static final SearchResult RETURN_WIN_NODE = new SearchResult("RETURN WIN NODE", 1);
+        static final SearchResult RETURN_LOOSE_NODE = new SearchResult("RETURN LOOSE NODE", 1);
+        private static final SearchResult[] RETURN_STATE_NODES = Arrays.stream(MCTSNode.State.values()).
+                map(state -> new SearchResult("RETURN " + state + " NODE", 1)).
+                toArray(SearchResult[]::new);
+
+        private final String label;
+        private final int nbSearchCalls;
+
+        /**
+         * @return the shared result of a simulated game ended on a node of the given state
+         */
+        static SearchResult returnNode(final MCTSNode.State state) {
+            return RETURN_STATE_NODES[state.ordinal()];
+        }
+    }
+
+    /**
+     * Nodes of the current descent keeping a virtual loss, from the child of the root to the deepest one.
+     * One buffer per worker thread, reused by all the descents of the thread
+     */
+    static final class DescentPath {
+        private MCTSNode[] nodes = new MCTSNode[64];
+        private int size = 0;
+
+        void push(final MCTSNode node) {
+            if (size == nodes.length) nodes = Arrays.copyOf(nodes, size * 2);
+            nodes[size++] = node;
+        }
+
+        MCTSNode pop() {
+            final MCTSNode ret = nodes[--size];
+            // the buffer outlives the search, it must not keep the tree
+            nodes[size] = null;
+            return ret;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
     }
 
     protected String sequenceMoves(MCTSNode node) {
@@ -0,0 +1,63 @@
+package com.aquila.chess.strategy.mcts;
+
+import com.chess.engine.classic.board.Move;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Smart stop of a search: the best move is the most visited child of the root (see
+ * {@link MCTSStrategy#findBestReward}), so a child can not become the best one if its visits plus the remaining
+ * simulations are below the visits of the best child.
+ * <ul>
+ *     <li>the children that can no longer win are excluded from the selection of the root</li>
+ *     <li>the search can stop when only the best child can still win</li>
+ * </ul>
+ * One instance per search, updated by the search coordinator and read by the walkers.
+ */
+@Slf4j
+public class MCTSSmartStop {
+
+    private final Set<Move> excludedRootMoves = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param root                 root of the search
+     * @param remainingSimulations the simulations the search can still do, including the ones not propagated yet.
+     *                             Nothing is decided if < 0 (unknown)
+     * @return true if the search can stop
+     */
+    public boolean update(final MCTSNode root, long remainingSimulations) {
+        if (remainingSimulations < 0) return false;
+        int bestVisits = 0;
+        for (MCTSNode child : root.getNonNullChildsAsCollection()) {
+            // a winning move is always chosen, it is not a matter of visits
+            if (child.getState() == MCTSNode.State.WIN) return false;
+            bestVisits = Math.max(bestVisits, child.getVisits());
+        }
+        if (bestVisits == 0) return false;
+        boolean ret = true;
+        boolean isBestFound = false;
+        for (Map.Entry<Move, MCTSNode.ChildNode> entry : root.getChildNodes().entrySet()) {
+            final MCTSNode child = entry.getValue().getNode();
+            final int visits = child == null ? 0 : child.getVisits();
+            if (!isBestFound && visits == bestVisits) {
+                isBestFound = true;
+            } else if (visits + remainingSimulations >= bestVisits) {
+                ret = false;
+            } else if (excludedRootMoves.add(entry.getKey())) {
+                log.debug("SMART STOP exclude:{} visits:{} best:{} remaining:{}", entry.getKey(), visits, bestVisits, remainingSimulations);
+            }
+        }
+        return ret;
+    }
+
+    public boolean isExcluded(final Move rootMove) {
+        return excludedRootMoves.contains(rootMove);
+    }
+
+    public int getNbExcludedRootMoves() {
+        return excludedRootMoves.size();
+    }
+}
@@ -18,6 +18,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -34,6 +35,39 @@ public class MCTSStrategy extends FixMCTSTreeStrategy {
     @Getter
     private long nbSearchCalls = -1;
     private Dirichlet dirichlet = nbStep1 -> false;
+    private boolean treeReuse = false;
+    private Dirichlet reuseDirichlet = nbStep1 -> true;
+    /**
+     * positions of the tree of {@link #directRoot}, null if the search does not share the transpositions
+     */
+    @Getter
+    private MCTSTranspositionTable transpositions = null;
+    @Getter
+    private MCTSTreeBudget treeBudget = new MCTSTreeBudget(-1);
+    private int nbLeavesPerWalker = 1;
+    private boolean smartStop = false;
+    private boolean blockingEvaluation = false;
+    private int nbRootTrees = 1;
+    /**
+     * maximum number of search calls of a ponder search, the tree budget also applies
+     */
+    static final long MAX_PONDER_SEARCH_CALLS = 100_000;
+    private boolean ponder = false;
+    /**
+     * the predicted reply of the opponent searched during its time, null if not pondering
+     */
+    @Getter
+    private MCTSNode ponderNode = null;
+    private int ponderStartVisits = 0;
+    private MCTSSearchMultiThread ponderSearch = null;
+    private Thread ponderThread = null;
+    /**
+     * allocates the time of each move from the game clock, null to use {@link #timeMillisPerStep} or {@link #nbSearchCalls}
+     */
+    @Getter
+    private MCTSTimeManager timeManager = null;
+    private boolean mutablePosition = false;
+    private MCTSSearchExecutor searchExecutor = null;
 
     private final Random rand;
 
@@ -48,6 +82,11 @@ public class MCTSStrategy extends FixMCTSTreeStrategy {
     @Getter
     private MCTSNode directRoot = null;
 
+    /**
+     * last move played by this strategy, child of {@link #directRoot}
+     */
+    private Move lastMove = null;
+
     @Getter
     private Game.GameStatus currentGameStatus;
 
@@ -92,6 +131,116 @@ public class MCTSStrategy extends FixMCTSTreeStrategy {
         return this;
     }
 
+    /**
+     * @param treeReuse if true, the subtree of the played move and of the opponent reply becomes the next root,
+     *                  keeping the visits already done on it, see {@link #createRootNode}
+     */
+    public MCTSStrategy withTreeReuse(boolean treeReuse) {
+        this.treeReuse = treeReuse;
+        return this;
+    }
+
+    /**
+     * @param reuseDirichlet true if the dirichlet noise has to be applied again on the policies of a reused root.
+     *                       If false, the reused root keeps the policies used during the previous search
+     */
+    public MCTSStrategy withReuseDirichlet(Dirichlet reuseDirichlet) {
+        this.reuseDirichlet = reuseDirichlet;
+        return this;
+    }
+
+    /**
+     * @param transpositions if true, the search is done on a DAG: a position reached by another move order reuses the
+     *                       node already in the tree, see {@link MCTSTranspositionTable}
+     */
+    public MCTSStrategy withTranspositions(boolean transpositions) {
+        this.transpositions = transpositions ? new MCTSTranspositionTable() : null;
+        return this;
+    }
+
+    /**
+     * @param maxNodes maximum number of nodes of the tree during a search, the low-visit subtrees far from the principal
+     *                 variation are reclaimed when it is exceeded, see {@link MCTSTreeBudget}. No limit if < 1
+     */
+    public MCTSStrategy withMaxNodes(int maxNodes) {
+        this.treeBudget = new MCTSTreeBudget(maxNodes);
+        return this;
+    }
+
+    /**
+     * @param nbLeavesPerWalker number of leaves gathered by each search walker, see {@link MCTSSearchWalker#withLeaves(int)}
+     */
+    public MCTSStrategy withLeavesPerWalker(int nbLeavesPerWalker) {
+        this.nbLeavesPerWalker = nbLeavesPerWalker;
+        return this;
+    }
+
+    /**
+     * @param smartStop if true, a search stops as soon as its best move can not change, see {@link MCTSSmartStop}
+     */
+    public MCTSStrategy withSmartStop(boolean smartStop) {
+        this.smartStop = smartStop;
+        return this;
+    }
+
+    /**
+     * @param blockingEvaluation if true, each search walker waits for the inference of its leaf and backs up the value
+     *                           itself, see {@link MCTSSearchWalker#withBlockingEvaluation(boolean)}. The number of
+     *                           threads sets the number of simulations in flight
+     */
+    public MCTSStrategy withBlockingEvaluation(boolean blockingEvaluation) {
+        this.blockingEvaluation = blockingEvaluation;
+        return this;
+    }
+
+    /**
+     * @param nbRootTrees number of independent trees searched in parallel for each move, their root statistics are
+     *                    merged, see {@link MCTSSearchMultiThread#withRootParallel(int)}. A single shared tree if < 2
+     */
+    public MCTSStrategy withRootParallel(int nbRootTrees) {
+        this.nbRootTrees = nbRootTrees;
+        return this;
+    }
+
+    /**
+     * @param ponder if true, after each move the subtree of the most visited reply of the opponent is searched in the
+     *               background until the opponent plays. On a ponder hit the next search starts from this subtree,
+     *               see {@link #createRootNode}. Needs the tree reuse
+     */
+    public MCTSStrategy withPonder(boolean ponder) {
+        this.ponder = ponder;
+        return this;
+    }
+
+    /**
+     * @param gameMillis      time of the clock of this strategy for the whole game, the time of each move is allocated
+     *                        by a {@link MCTSTimeManager} instead of <code>timeMillisPerStep</code> and the number of
+     *                        search calls. No game clock if < 1
+     * @param incrementMillis time added to the clock after each move
+     */
+    public MCTSStrategy withGameClock(long gameMillis, long incrementMillis) {
+        this.timeManager = gameMillis > 0 ? new MCTSTimeManager(gameMillis, incrementMillis) : null;
+        return this;
+    }
+
+    /**
+     * @param mutablePosition if true, the search walkers play their moves on a {@link com.chess.engine.bitboards.MutableBoard}
+     *                        to detect the end of games, see {@link MCTSGame#MCTSGame(com.aquila.chess.AbstractGame, boolean)}
+     */
+    public MCTSStrategy withMutablePosition(boolean mutablePosition) {
+        this.mutablePosition = mutablePosition;
+        return this;
+    }
+
+    /**
+     * @param searchExecutor the pool running the search walkers, owned by the caller. By default the strategies share
+     *                       {@link MCTSSearchExecutor#get(int)}
+     */
+    public MCTSStrategy withSearchExecutor(final MCTSSearchExecutor searchExecutor) {
+        this.searchExecutor = searchExecutor;
+        return this;
+    }
+
     /**
      * @deprecated
      */
@@ -105,6 +254,8 @@ public class MCTSStrategy extends FixMCTSTreeStrategy {
     public Move evaluateNextMove(final Game game,
                                  final Move moveOpponent,
                                  final List<Move> possibleMoves) throws InterruptedException {
+        if (timeManager != null) timeManager.startMove(possibleMoves.size());
+        stopPonder(moveOpponent);
         createRootNode(originalGame, moveOpponent, parentReward, possibleMoves);
         assert (directRoot != null);
         final Move move = mctsStep(moveOpponent, possibleMoves);
@@ -117,6 +268,7 @@ public class MCTSStrategy extends FixMCTSTreeStrategy {
             trainGame.add(lastOneStepRecord);
         }
         currentGameStatus = this.mctsGame.play(move);
+        this.lastMove = move;
         double cpuct = this.updateCpuct.update(this.mctsGame.getNbStep(), possibleMoves.size());
         // this.nbStep++;
         log.info("[{}] -------------------------------------------------------", this.getAlliance());
@@ -127,11 +279,120 @@ public class MCTSStrategy extends FixMCTSTreeStrategy {
         log.info("[{}] Childs:{} nextPlay() -> {}", this.getAlliance(), directRoot != null ? directRoot.getNumberOfAllNodes() : 0, move);
         log.info("[{}] -------------------------------------------------------", this.getAlliance());
         this.parentReward = -directRoot.getExpectedReward(false) - MCTSConfig.mctsConfig.getFpuReduction();
+        if (timeManager != null) timeManager.endMove();
+        if (ponder && currentGameStatus == Game.GameStatus.IN_PROGRESS) startPonder(move);
         return move;
     }
 
+    /**
+     * Search in the background the most visited reply of the opponent to our move, the search uses the walkers and
+     * the NN batches of this strategy while the opponent is thinking
+     */
+    private void startPonder(final Move move) {
+        if (!treeReuse) {
+            log.warn("[{}] PONDER needs the tree reuse", this.alliance);
+            return;
+        }
+        final MCTSNode playedNode = directRoot.findChild(move);
+        if (playedNode == null || playedNode.isLeaf()) return;
+        final MCTSNode predictedNode = playedNode.getNonNullChildsAsCollection().stream()
+                .filter(node -> !node.isLeaf() && node.isSync())
+                .max(Comparator.comparingInt(MCTSNode::getVisits))
+                .orElse(null);
+        if (predictedNode == null) return;
+        final MCTSGame ponderGame = new MCTSGame(this.mctsGame);
+        if (ponderGame.play(predictedNode.getMove()) != Game.GameStatus.IN_PROGRESS) return;
+        // the backups of the ponder search stop at the predicted node, it stays linked to be found by the tree reuse
+        predictedNode.setState(MCTSNode.State.ROOT);
+        this.ponderNode = predictedNode;
+        this.ponderStartVisits = predictedNode.getVisits();
+        this.ponderSearch = new MCTSSearchMultiThread(
+                this.searchExecutor,
+                ponderGame.getNbStep(),
+                this.nbThreads,
+                -1,
+                MAX_PONDER_SEARCH_CALLS,
+                new Statistic(),
+                this.deepLearning,
+                predictedNode,
+                ponderGame,
+                this.alliance,
+                this.updateCpuct,
+                nbStep1 -> false,
+                this.rand)
+                .withTranspositions(this.transpositions)
+                .withTreeBudget(this.treeBudget)
+                .withLeaves(this.nbLeavesPerWalker)
+                .withBlockingEvaluation(this.blockingEvaluation)
+                .withPonder(true);
+        final MCTSSearchMultiThread search = this.ponderSearch;
+        this.ponderThread = new Thread(() -> {
+            try {
+                search.search();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error(String.format("[%s] PONDER SEARCH FAILED", this.alliance), e);
+            }
+        }, String.format("mcts-ponder-%s", this.alliance));
+        this.ponderThread.setDaemon(true);
+        this.ponderThread.start();
+        log.info("[{}] PONDER on {} visits:{}", this.alliance, predictedNode.getMove(), ponderStartVisits);
+    }
+
+    /**
+     * Back up the values still waiting in the ServiceNN at the end of a search. The tree of the played move is then
+     * complete when it is reused, and no propagation of the search goes through the parents of a pondered node
+     */
+    private void flushPropagations() {
+        final Map<Long, MCTSNode> nodesToPropagate = deepLearning.getServiceNN().getNodesToPropagate();
+        int nbNodes;
+        try {
+            do {
+                nbNodes = nodesToPropagate.size();
+                deepLearning.flushJob(true);
+            } while (!nodesToPropagate.isEmpty() && nodesToPropagate.size() < nbNodes);
+        } catch (ExecutionException e) {
+            log.error("Error during last flushJobs", e);
+        }
+        log.debug("[{}] remaining propagations:{}", this.alliance, nodesToPropagate.size());
+    }
+
+    /**
+     * Stop the ponder search and wait for its walkers, before the tree is modified
+     *
+     * @param opponentMove the reply played by the opponent, null if the game is over
+     */
+    private void stopPonder(final Move opponentMove) throws InterruptedException {
+        if (ponderThread == null) return;
+        ponderSearch.stop();
+        ponderThread.join();
+        final boolean hit = opponentMove != null && opponentMove.equals(ponderNode.getMove());
+        if (opponentMove != null) {
+            final int ponderVisits = ponderNode.getVisits() - ponderStartVisits;
+            if (hit) {
+                statistic.nbPonderHits++;
+                statistic.nbPonderVisits += ponderVisits;
+                log.info("[{}] PONDER HIT {} ponder visits:{}", this.alliance, opponentMove, ponderVisits);
+            } else {
+                statistic.nbPonderMisses++;
+                log.info("[{}] PONDER MISS predicted:{} played:{} ponder visits:{}", this.alliance, ponderNode.getMove(), opponentMove, ponderVisits);
+            }
+        }
+        // the pondered node stays in the old tree: the paths of its subtree go again through its parents
+        if (!hit) ponderNode.setState(MCTSNode.State.INTERMEDIATE);
+        this.ponderThread = null;
+        this.ponderSearch = null;
+        this.ponderNode = null;
+    }
+
     @Override
     public void end(final Move move) {
+        try {
+            stopPonder(null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         if (trainGame != null) {
             OneStepRecord finalOneStepRecord = createStepTraining(
                     move,
@@ -143,7 +404,7 @@ public class MCTSStrategy extends FixMCTSTreeStrategy {
     }
 
     /**
-     * Modify the directRoot
+     * Modify the directRoot. With the tree reuse, the node of the opponent move under our last move becomes the root
      *
      * @param game
      * @param opponentMove
@@ -155,22 +416,78 @@ public class MCTSStrategy extends FixMCTSTreeStrategy {
         assert opponentMove.isInitMove() || opponentMove.getAllegiance() != this.alliance;
         log.info("[{}] opponentMove:{} directRoot:{}", this.alliance, opponentMove, directRoot);
         deepLearning.getServiceNN().clearAll();
-        this.mctsGame = new MCTSGame(game);
+        deepLearning.getCacheValues().removeNotInitialized();
+        this.mctsGame = new MCTSGame(game, mutablePosition);
+        final MCTSNode reusedRoot = treeReuse ? findReusableRoot(opponentMove, possibleMoves) : null;
+        this.lastMove = null;
+        if (transpositions != null) transpositions.clear();
+        if (reusedRoot != null) {
+            reusedRoot.setAsRoot();
+            final int nbRemovedNodes = reusedRoot.removeNotSyncChilds();
+            if (transpositions != null) {
+                reusedRoot.clearTranspositions();
+                transpositions.registerTree(reusedRoot);
+            }
+            reusedRoot.dirichletDone = !reuseDirichlet.update(this.mctsGame.getNbStep());
+            statistic.nbReusedVisits = reusedRoot.getVisits();
+            log.info("[{}] REUSED ROOT visits:{} nodes:{} removed not sync:{} dirichlet:{}", this.alliance,
+                    reusedRoot.getVisits(), reusedRoot.getNumberOfAllNodes(), nbRemovedNodes, !reusedRoot.dirichletDone);
+            this.directRoot = reusedRoot;
+            return;
+        }
+        statistic.nbReusedVisits = 0;
         long key = deepLearning.addRootCacheValue(mctsGame, "STRATEGY-ROOT", parentReward, alliance.complementary(), statistic);
         CacheValue cacheValue = deepLearning.getCacheValues().get(key);
         cacheValue.verifyAlliance(alliance.complementary());
         this.directRoot = MCTSNode.createRootNode(possibleMoves, opponentMove, key, cacheValue);
+        this.directRoot.dirichletDone = false;
+        // the root is evaluated before the search: the first selections are ordered by its priors
+        try {
+            deepLearning.flushJob(true);
+        } catch (ExecutionException e) {
+            log.error("Error during the root evaluation", e);
+        }
+    }
+
+    /**
+     * @return the node reached by our last move and the opponent move if it was expanded by the previous search,
+     * null if it can not be used as root
+     */
+    private MCTSNode findReusableRoot(final Move opponentMove, final List<Move> possibleMoves) {
+        if (directRoot == null || lastMove == null) return null;
+        final MCTSNode playedNode = directRoot.findChild(lastMove);
+        if (playedNode == null || playedNode.isLeaf()) return null;
+        final MCTSNode ret = playedNode.findChild(opponentMove);
+        if (ret == null || ret.isLeaf() || !ret.isSync() || ret.getVisits() == 0) return null;
+        if (ret.getChildNodes().size() != possibleMoves.size() || !possibleMoves.stream().allMatch(move -> ret.getChildNodes().containsKey(move))) {
+            log.warn("[{}] CAN NOT REUSE node:{} legal moves:{}", this.alliance, ret, possibleMoves);
+            return null;
+        }
+        return ret;
+    }
+
+    /**
+     * Report the memory used by the tree and the cache at the end of the search
+     */
+    private void updateMemoryStatistic() {
+        final Runtime runtime = Runtime.getRuntime();
+        statistic.nbNodes = directRoot.getNumberOfAllNodes();
+        statistic.nbCacheValues = deepLearning.getCacheSize();
+        statistic.treeMBytes = MCTSTreeBudget.estimatedBytes(statistic.nbNodes, statistic.nbCacheValues) >> 20;
+        statistic.heapMBytes = (runtime.totalMemory() - runtime.freeMemory()) >> 20;
     }
 
     protected Move mctsStep(final Move moveOpponent,
                             final List<Move> currentPossibleMoves)
             throws InterruptedException {
         statistic.clearEachStep();
+        if (this.searchExecutor == null) this.searchExecutor = MCTSSearchExecutor.get(this.nbThreads);
         IMCTSSearch mctsSearchMultiThread = new MCTSSearchMultiThread(
+                this.searchExecutor,
                 this.mctsGame.getNbStep(),
                 this.nbThreads,
-                this.timeMillisPerStep,
-                this.nbSearchCalls,
+                timeManager != null ? timeManager.getHardMillis() : this.timeMillisPerStep,
+                timeManager != null ? -1 : this.nbSearchCalls,
                 this.statistic,
                 this.deepLearning,
                 this.directRoot,
@@ -178,9 +495,17 @@ public class MCTSStrategy extends FixMCTSTreeStrategy {
                 this.alliance,
                 this.updateCpuct,
                 this.dirichlet,
-                this.rand);
+                this.rand)
+                .withTranspositions(this.transpositions)
+                .withTreeBudget(this.treeBudget)
+                .withLeaves(this.nbLeavesPerWalker)
+                .withSmartStop(this.smartStop)
+                .withTimeManager(this.timeManager)
+                .withBlockingEvaluation(this.blockingEvaluation)
+                .withRootParallel(this.nbRootTrees);
         final long startTime = System.currentTimeMillis();
         long nbNumberSearchCalls = mctsSearchMultiThread.search();
+        flushPropagations();
         final long endTime = System.currentTimeMillis();
         final long length = endTime > startTime ? endTime - startTime : Long.MIN_VALUE;
         final long speed = (nbNumberSearchCalls * 1000) / length;
@@ -192,6 +517,12 @@ public class MCTSStrategy extends FixMCTSTreeStrategy {
             assert false;
         }
         PolicyUtils.logPolicies(bestNode.getParent(), currentPossibleMoves);
+        updateMemoryStatistic();
+        if (timeManager != null) {
+            statistic.softMillis = timeManager.getSoftMillis();
+            statistic.hardMillis = timeManager.getHardMillis();
+            statistic.usedMillis = timeManager.getElapsedMillis();
+        }
         log.warn("[{}] bestNode: {}", this.getAlliance(), bestNode);
         log.warn("[{}] CacheSize: {} STATS: {}", this.getAlliance(), this.deepLearning.getCacheSize(), statistic);
         statistic.incNodes(this.deepLearning.getCacheValues());
@@ -204,6 +535,7 @@ public class MCTSStrategy extends FixMCTSTreeStrategy {
                 this.deepLearning.getCacheValues().getWinCacheValue().getNbNodes(),
                 this.deepLearning.getCacheValues().getLostCacheValue().getNbNodes(),
                 this.deepLearning.getCacheValues().getDrawnCacheValue().getNbNodes()));
+        // the nodes keep their cacheValue, only the index from the cacheValues to the nodes of this search is dropped
         this.deepLearning.getCacheValues().clearNodes();// clearCache();
         log.warn("[{}] nbSearch calls:{} - term:{} ms - speed:{} calls/s visitsRoot:{} - BESTNODES.visits:{} - BESTNODES.value:{} - BESTNODES.reward:{}", this.getAlliance(), nbNumberSearchCalls,
                 length, speed, directRoot.getVisits(), bestNode.getVisits(), bestNode.getCacheValue().getValue(), bestNode.getExpectedReward(false));
@@ -232,15 +564,18 @@ public class MCTSStrategy extends FixMCTSTreeStrategy {
             case WHITE -> MCTSConfig.mctsConfig.getMctsBlackStrategyConfig().getSteps();
             case BLACK -> MCTSConfig.mctsConfig.getMctsWhiteStrategyConfig().getSteps();
         };
-        initializeNodes.stream().filter(mctsNode -> mctsNode.getState() == MCTSNode.State.WIN).forEach(mctsNode -> {
+        // a proven win is played immediately, a proven loss only if all the moves are lost
+        initializeNodes.stream().filter(mctsNode -> mctsNode.getState() == MCTSNode.State.WIN || mctsNode.getProof() == MCTSNode.Proof.WIN).forEach(mctsNode -> {
             mctsNode.setVisits(maxSteps);
             bestNodes.add(mctsNode);
         });
         if (bestNodes.isEmpty()) {
             double maxExpectedReward = Double.NEGATIVE_INFINITY;
             int maxVisits = Integer.MIN_VALUE;
+            final boolean isLossAvoidable = initializeNodes.stream().anyMatch(mctsNode -> mctsNode.getProof() != MCTSNode.Proof.LOSS);
             for (MCTSNode mctsNode : initializeNodes) {
                 final Move currentMove = mctsNode.getMove();
+                if (isLossAvoidable && mctsNode.getProof() == MCTSNode.Proof.LOSS) continue;
                 if (currentPossibleMoves.stream().filter(move1 -> move1.toString().equals(currentMove.toString())).findFirst().isEmpty()) {
                     log.error("move:{} not in possible.\n - Board moves:{}.\n - MCTSTree nodes:{}",
                             currentMove,
@@ -256,6 +591,13 @@ public class MCTSStrategy extends FixMCTSTreeStrategy {
                 maxExpectedReward = retrieveBestNodesWithExpectedRewards(mctsNode, maxExpectedReward, bestExpectedRewardsNodes);
                 maxVisits = retrieveBestNodesWithBestVisits(mctsNode, maxVisits, bestNodes);
             }
+            // a proven draw is better than the lines expected to lose
+            final Optional<MCTSNode> drawnNode = initializeNodes.stream().filter(mctsNode -> mctsNode.getProof() == MCTSNode.Proof.DRAW).findAny();
+            if (drawnNode.isPresent() && bestNodes.stream().allMatch(mctsNode -> mctsNode.getProof() != MCTSNode.Proof.DRAW && mctsNode.getExpectedReward(false) < 0)) {
+                log.info("[{}] PROVEN DRAW preferred: {}", getAlliance(), drawnNode.get());
+                bestNodes.clear();
+                bestNodes.add(drawnNode.get());
+            }
         }
         int nbBests = bestNodes.size();
         MCTSNode ret;
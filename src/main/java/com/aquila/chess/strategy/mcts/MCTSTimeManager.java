@@ -0,0 +1,162 @@
+package com.aquila.chess.strategy.mcts;
+
+import com.chess.engine.classic.board.Move;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * Time management of a {@link MCTSStrategy} playing with a game clock and an increment.
+ * <p>
+ * For each move ({@link #startMove(int)}):
+ * <ul>
+ *     <li>a soft time is allocated from the clock, a share of the remaining time plus most of the increment</li>
+ *     <li>the soft time is extended when the most visited root child changes or is close to the second one</li>
+ *     <li>the search is cut short for a forced move, or when one root child has most of the visits</li>
+ *     <li>the hard time is never exceeded, the walkers still running stop at {@link #getHardDeadline()}</li>
+ * </ul>
+ * The clock is updated with the time really used by {@link #endMove()}.
+ */
+@Slf4j
+public class MCTSTimeManager {
+
+    /**
+     * number of moves the remaining time is shared with
+     */
+    static final int MOVES_TO_GO = 30;
+
+    /**
+     * time kept on the clock for the moves of the game and the latency of the caller
+     */
+    static final long MOVE_OVERHEAD_MILLIS = 50;
+
+    /**
+     * time of a forced move, enough to evaluate the position for the training records
+     */
+    static final long FORCED_MOVE_MILLIS = 20;
+
+    static final double MAX_EXTENSION = 3.0;
+
+    static final double EXTENSION_PER_BEST_CHANGE = 0.25;
+
+    static final int MAX_BEST_CHANGES = 4;
+
+    /**
+     * the best move is obvious if it has this share of the visits of the root children, after this ratio of the soft time
+     */
+    static final double OBVIOUS_SHARE = 0.9;
+
+    static final double OBVIOUS_MIN_TIME_RATIO = 0.25;
+
+    static final int OBVIOUS_MIN_VISITS = 100;
+
+    @Getter
+    private long remainingMillis;
+
+    @Getter
+    private final long incrementMillis;
+
+    @Getter
+    private long softMillis;
+
+    @Getter
+    private long hardMillis;
+
+    @Getter
+    private long usedMillis;
+
+    private long startMillis;
+
+    private Move lastBestMove = null;
+
+    private int nbBestChanges = 0;
+
+    /**
+     * @param gameMillis      time of the clock at the start of the game
+     * @param incrementMillis time added to the clock after each move
+     */
+    public MCTSTimeManager(long gameMillis, long incrementMillis) {
+        this.remainingMillis = gameMillis;
+        this.incrementMillis = incrementMillis;
+    }
+
+    /**
+     * Allocate the soft and hard time of the move to search
+     *
+     * @param nbLegalMoves number of legal moves, a forced move gets a minimal time
+     */
+    public void startMove(int nbLegalMoves) {
+        this.startMillis = System.currentTimeMillis();
+        this.lastBestMove = null;
+        this.nbBestChanges = 0;
+        final long available = Math.max(1, remainingMillis - MOVE_OVERHEAD_MILLIS);
+        this.softMillis = Math.min(available, remainingMillis / MOVES_TO_GO + incrementMillis * 3 / 4);
+        this.hardMillis = Math.min(available, Math.max(softMillis, Math.min((long) (softMillis * MAX_EXTENSION), available / 4 + incrementMillis)));
+        if (nbLegalMoves <= 1) {
+            this.softMillis = Math.min(softMillis, FORCED_MOVE_MILLIS);
+            this.hardMillis = softMillis;
+        }
+        this.softMillis = Math.max(1, softMillis);
+        this.hardMillis = Math.max(softMillis, hardMillis);
+        log.info("TIME MANAGER clock:{} ms increment:{} ms -> soft:{} ms hard:{} ms", remainingMillis, incrementMillis, softMillis, hardMillis);
+    }
+
+    /**
+     * @return the absolute time the walkers of the current move have to stop
+     */
+    public long getHardDeadline() {
+        return startMillis + hardMillis;
+    }
+
+    public long getElapsedMillis() {
+        return System.currentTimeMillis() - startMillis;
+    }
+
+    /**
+     * Check the time of the current search, called by the search coordinator after each walker
+     *
+     * @param root the root of the search
+     * @return true if the search has to stop
+     */
+    public boolean isTimeOver(final MCTSNode root) {
+        final long elapsed = getElapsedMillis();
+        if (elapsed >= hardMillis) return true;
+        final List<MCTSNode> childs = root.getNonNullChildsAsCollection();
+        MCTSNode best = null;
+        int secondVisits = 0;
+        int totalVisits = 0;
+        for (MCTSNode child : childs) {
+            final int visits = child.getVisits();
+            totalVisits += visits;
+            if (best == null || visits > best.getVisits()) {
+                if (best != null) secondVisits = best.getVisits();
+                best = child;
+            } else if (visits > secondVisits) {
+                secondVisits = visits;
+            }
+        }
+        if (best == null || best.getVisits() == 0) return elapsed >= softMillis;
+        if (lastBestMove != null && !lastBestMove.equals(best.getMove())) nbBestChanges++;
+        lastBestMove = best.getMove();
+        if (totalVisits >= OBVIOUS_MIN_VISITS &&
+                elapsed >= softMillis * OBVIOUS_MIN_TIME_RATIO &&
+                best.getVisits() >= totalVisits * OBVIOUS_SHARE) {
+            log.info("TIME MANAGER obvious move:{} after {} ms", lastBestMove, elapsed);
+            return true;
+        }
+        // unstable root: the best move changed during the search, or the second move is close to it
+        double extension = 1.0 + EXTENSION_PER_BEST_CHANGE * Math.min(nbBestChanges, MAX_BEST_CHANGES);
+        if (secondVisits * 5 >= best.getVisits() * 4) extension += 0.5;
+        return elapsed >= Math.min(hardMillis, (long) (softMillis * extension));
+    }
+
+    /**
+     * Update the clock with the time used since {@link #startMove(int)} and the increment
+     */
+    public void endMove() {
+        this.usedMillis = getElapsedMillis();
+        this.remainingMillis = remainingMillis - usedMillis + incrementMillis;
+        log.info("TIME MANAGER used:{} ms (soft:{} hard:{}) clock:{} ms", usedMillis, softMillis, hardMillis, remainingMillis);
+    }
+}
@@ -0,0 +1,58 @@
+package com.aquila.chess.strategy.mcts;
+
+import com.chess.engine.classic.board.Move;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Nodes of a MCTS tree indexed by the Zobrist key of their position (see {@link Move#calculateZobristKey()}).
+ * <p>
+ * Used by the DAG mode of the search: a position reached by another move order is linked to the node already
+ * created for it (see {@link MCTSNode.ChildNode#getTransposition()}) instead of building a new subtree.
+ * The table only keeps the first node registered for a position and is cleared with the tree it indexes.
+ */
+@Slf4j
+public class MCTSTranspositionTable {
+
+    private final Map<Long, MCTSNode> nodes = new ConcurrentHashMap<>();
+
+    /**
+     * @return the node registered for the position, null if none
+     */
+    public MCTSNode get(long positionKey) {
+        return nodes.get(positionKey);
+    }
+
+    /**
+     * Register the node if its position is not already known
+     */
+    public void register(long positionKey, final MCTSNode node) {
+        nodes.putIfAbsent(positionKey, node);
+    }
+
+    /**
+     * Remove the node if it is the one registered for the position
+     */
+    public void remove(long positionKey, final MCTSNode node) {
+        nodes.remove(positionKey, node);
+    }
+
+    /**
+     * Register the node and all its descendants, used when a subtree is reused as the new root
+     */
+    public void registerTree(final MCTSNode root) {
+        register(root.getMove().calculateZobristKey(), root);
+        root.allChildNodes().forEach(node -> register(node.getMove().calculateZobristKey(), node));
+        log.info("TRANSPOSITION TABLE: {} positions registered", nodes.size());
+    }
+
+    public void clear() {
+        nodes.clear();
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+}
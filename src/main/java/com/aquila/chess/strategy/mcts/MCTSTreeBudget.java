@@ -0,0 +1,129 @@
+package com.aquila.chess.strategy.mcts;
+
+import com.aquila.chess.strategy.mcts.utils.PolicyUtils;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Node budget of a MCTS search.
+ * <p>
+ * The walkers count the nodes they create, when the budget is exceeded the search coordinator calls
+ * {@link #reclaim(MCTSNode, MCTSTranspositionTable, CacheValues)}: the children of the nodes with the fewest visits,
+ * outside of the principal variation, are removed until the tree is back to {@link #RECLAIM_RATIO} of the budget.
+ * The reclaimed nodes keep their visits and can be expanded again if they are selected.
+ */
+@Slf4j
+public class MCTSTreeBudget {
+
+    /**
+     * the tree is reduced to this ratio of the budget, so the reclamation is not done after each walker
+     */
+    static final double RECLAIM_RATIO = 0.75;
+
+    /**
+     * estimated size of a node with its map of ~30 legal moves
+     */
+    static final long NODE_BYTES = 2_500;
+
+    /**
+     * estimated size of a {@link CacheValue}, mainly its policies
+     */
+    static final long CACHE_VALUE_BYTES = PolicyUtils.MAX_POLICY_INDEX * Double.BYTES + 100;
+
+    /**
+     * maximum number of nodes of the tree, no limit if < 1
+     */
+    @Getter
+    private final int maxNodes;
+
+    private final AtomicInteger nbNodes = new AtomicInteger();
+
+    public MCTSTreeBudget(int maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    public static long estimatedBytes(int nbNodes, int nbCacheValues) {
+        return nbNodes * NODE_BYTES + nbCacheValues * CACHE_VALUE_BYTES;
+    }
+
+    /**
+     * @param nbNodes number of nodes of the tree at the start of a search
+     */
+    public void reset(int nbNodes) {
+        this.nbNodes.set(nbNodes);
+    }
+
+    public void nodeCreated() {
+        this.nbNodes.incrementAndGet();
+    }
+
+    public int getNbNodes() {
+        return this.nbNodes.get();
+    }
+
+    public boolean isExceeded() {
+        return maxNodes > 0 && nbNodes.get() > maxNodes;
+    }
+
+    /**
+     * Remove the children of the low-visit nodes far from the principal variation.
+     * The root, its children and the nodes of the principal variation are kept.
+     * Can be called while the walkers are running, a node is reclaimed under its monitor.
+     *
+     * @param root           root of the searched tree
+     * @param transpositions positions of the tree (DAG mode), null if not used
+     * @param cacheValues    the cache values of the tree, the values without nodes are trimmed to the budget
+     * @return the number of removed nodes
+     */
+    public int reclaim(final MCTSNode root, final MCTSTranspositionTable transpositions, final CacheValues cacheValues) {
+        final int target = (int) (maxNodes * RECLAIM_RATIO);
+        final Set<MCTSNode> principalVariation = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (MCTSNode node = root; node != null; node = mostVisitedChild(node)) {
+            principalVariation.add(node);
+        }
+        final List<Candidate> candidates = new ArrayList<>();
+        for (MCTSNode child : root.getNonNullChildsAsCollection()) {
+            addCandidates(child, 1, principalVariation, candidates);
+        }
+        candidates.sort(Comparator.comparingInt((Candidate candidate) -> candidate.visits)
+                .thenComparing(Comparator.comparingInt((Candidate candidate) -> candidate.depth).reversed()));
+        int ret = 0;
+        for (Candidate candidate : candidates) {
+            if (nbNodes.get() <= target) break;
+            // the candidate can be in a subtree already reclaimed
+            if (!candidate.node.isAttachedTo(root)) continue;
+            final int nbRemovedNodes = candidate.node.reclaimChilds(transpositions);
+            nbNodes.addAndGet(-nbRemovedNodes);
+            ret += nbRemovedNodes;
+        }
+        final int nbRemovedCacheValues = cacheValues.trim(maxNodes);
+        log.info("RECLAIM nodes:{} cacheValues:{} -> tree nodes:{} budget:{}", ret, nbRemovedCacheValues, nbNodes.get(), maxNodes);
+        return ret;
+    }
+
+    private void addCandidates(final MCTSNode node, int depth, final Set<MCTSNode> principalVariation, final List<Candidate> candidates) {
+        final List<MCTSNode> childs = node.getNonNullChildsAsCollection();
+        if (childs.isEmpty()) return;
+        if (depth > 1 && !principalVariation.contains(node)) candidates.add(new Candidate(node, node.getVisits(), depth));
+        for (MCTSNode child : childs) {
+            addCandidates(child, depth + 1, principalVariation, candidates);
+        }
+    }
+
+    private MCTSNode mostVisitedChild(final MCTSNode node) {
+        return node.getNonNullChildsAsCollection().stream()
+                .max(Comparator.comparingInt(MCTSNode::getVisits))
+                .orElse(null);
+    }
+
+    @AllArgsConstructor
+    private static class Candidate {
+        private final MCTSNode node;
+        private final int visits;
+        private final int depth;
+    }
+}
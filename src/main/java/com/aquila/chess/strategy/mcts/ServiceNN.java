@@ -10,6 +10,8 @@ import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -21,20 +23,37 @@ public class ServiceNN {
     @Getter
     private final Map<Long, MCTSNode> nodesToPropagate = Collections.synchronizedMap(new LinkedHashMap<>());
 
+    /**
+     * completed with the {@link CacheValue} of the key once its inference is done, see {@link #getInference(long)}
+     */
+    private final Map<Long, CompletableFuture<CacheValue>> inferences = new ConcurrentHashMap<>();
+
     private final DeepLearningAGZ deepLearningAGZ;
 
     @Setter
+    @Getter
     private int batchSize;
 
     private final int nbFeaturesPlanes;
 
+    /**
+     * null if the inferences are only done by the calls to {@link #executeJobs(boolean)}
+     */
+    @Getter
+    private final InferenceDispatcher inferenceDispatcher;
+
+    /**
+     * @param inferenceMaxLatencyMillis if > 0, the inferences are run by an {@link InferenceDispatcher} as soon as
+     *                                  a batch is full or its oldest job waited for this latency
+     */
     @Builder
-    public ServiceNN(final DeepLearningAGZ deepLearningAGZ, int nbFeaturesPlanes, int batchSize) {
+    public ServiceNN(final DeepLearningAGZ deepLearningAGZ, int nbFeaturesPlanes, int batchSize, long inferenceMaxLatencyMillis) {
         assert (nbFeaturesPlanes > 0);
         assert (batchSize > 0);
         this.deepLearningAGZ = deepLearningAGZ;
         this.nbFeaturesPlanes = nbFeaturesPlanes;
         this.batchSize = batchSize;
+        this.inferenceDispatcher = inferenceMaxLatencyMillis > 0 ? new InferenceDispatcher(this, inferenceMaxLatencyMillis) : null;
     }
 
     /**
@@ -73,6 +92,31 @@ public class ServiceNN {
 
     public void removeJob(long key) {
         batchJobs2Commit.remove(key);
+        final CompletableFuture<CacheValue> inference = inferences.remove(key);
+        if (inference != null) inference.cancel(false);
+    }
+
+    /**
+     * @return a future completed when the inference of the given key is done, already completed if the value is known
+     */
+    public CompletableFuture<CacheValue> getInference(final long key) {
+        final CacheValue cacheValue = deepLearningAGZ.getCacheValues().get(key);
+        if (cacheValue != null && cacheValue.isInitialized()) return CompletableFuture.completedFuture(cacheValue);
+        final CompletableFuture<CacheValue> ret = inferences.computeIfAbsent(key, key1 -> new CompletableFuture<>());
+        // the inference could have been done before the creation of the future
+        final CacheValue updatedCacheValue = deepLearningAGZ.getCacheValues().get(key);
+        if (updatedCacheValue != null && updatedCacheValue.isInitialized()) completeInference(key, updatedCacheValue);
+        return ret;
+    }
+
+    void cancelInferences(final Throwable cause) {
+        inferences.values().forEach(inference -> inference.completeExceptionally(cause));
+        inferences.clear();
+    }
+
+    private void completeInference(final long key, final CacheValue cacheValue) {
+        final CompletableFuture<CacheValue> inference = inferences.remove(key);
+        if (inference != null) inference.complete(cacheValue);
     }
 
     public boolean containsJob(long key) {
@@ -82,6 +126,8 @@ public class ServiceNN {
     public void clearAll() {
         this.batchJobs2Commit.clear();
         this.getNodesToPropagate().clear();
+        this.inferences.values().forEach(inference -> inference.cancel(false));
+        this.inferences.clear();
     }
 
     /**
@@ -180,7 +226,8 @@ public class ServiceNN {
             }
             log.debug("CREATING PROPAGATION LIST: add:{}", node);
             nodes2propagate.add(node);
-            node = node.getParent();
+            // the propagation of a node created under a ponder root stops at this root
+            node = node.getState() == MCTSNode.State.ROOT ? null : node.getParent();
         } while (node != null && node.getState() != MCTSNode.State.ROOT);
         if (node != null) nodes2propagate.add(node);
         return nodes2propagate;
@@ -210,6 +257,7 @@ public class ServiceNN {
                 double value = outputsNN.get(index).getValue();
                 double[] policies = outputsNN.get(index).getPolicies();
                 CacheValue cacheValue = this.deepLearningAGZ.getCacheValues().updateValueAndPolicies(key, value, policies);
+                completeInference(key, cacheValue);
                 synchronized (nodesToPropagate) {
                     if (nodesToPropagate.containsKey(key)) {
                         MCTSNode propagationNode = nodesToPropagate.get(key);
@@ -269,6 +317,7 @@ public class ServiceNN {
                 isDirichlet,
                 isRootNode));
         log.debug("SERVICENN.submit() batchJobs2Commit:{}", batchJobs2Commit.size());
+        if (inferenceDispatcher != null) inferenceDispatcher.jobSubmitted(batchJobs2Commit.size());
     }
 
 
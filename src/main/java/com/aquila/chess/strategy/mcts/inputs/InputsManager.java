@@ -1,7 +1,8 @@
 package com.aquila.chess.strategy.mcts.inputs;
 
 import com.aquila.chess.AbstractGame;
-import com.aquila.chess.utils.Utils;
+import com.chess.engine.bitboards.MutableBoard;
+import com.chess.engine.bitboards.Zobrist;
 import com.chess.engine.classic.Alliance;
 import com.chess.engine.classic.board.Board;
 import com.chess.engine.classic.board.Move;
@@ -17,7 +18,7 @@ import java.util.stream.Collectors;
 @Slf4j
 public abstract class InputsManager {
 
-    final protected Map<Alliance, Map<Integer, Integer>> lastHashs = new LRUMap<>(7);
+    final protected Map<Alliance, Map<Long, Integer>> lastHashs = new LRUMap<>(7);
 
     public abstract int getNbFeaturesPlanes();
 
@@ -41,21 +42,45 @@ public abstract class InputsManager {
 
     public abstract InputsManager clone();
 
+    /**
+     * Reset this manager to the state of a {@link #clone()} of the given one, of the same class, reusing the
+     * collections of this manager
+     */
+    public abstract void resetFrom(InputsManager inputsManager);
+
+    protected void clearHashs() {
+        lastHashs.get(Alliance.WHITE).clear();
+        lastHashs.get(Alliance.BLACK).clear();
+    }
+
     protected void doClone(InputsManager inputsManager2clone) {
         lastHashs.get(Alliance.WHITE).entrySet().stream().forEach(entry -> {
-            inputsManager2clone.lastHashs.get(Alliance.WHITE).put(Integer.valueOf(entry.getKey()), Integer.valueOf(entry.getValue()));
+            inputsManager2clone.lastHashs.get(Alliance.WHITE).put(entry.getKey(), entry.getValue());
         });
         lastHashs.get(Alliance.BLACK).entrySet().stream().forEach(entry -> {
-            inputsManager2clone.lastHashs.get(Alliance.BLACK).put(Integer.valueOf(entry.getKey()), Integer.valueOf(entry.getValue()));
+            inputsManager2clone.lastHashs.get(Alliance.BLACK).put(entry.getKey(), entry.getValue());
         });
     }
 
     public void updateHashsTables(final Move move, final Board board) {
         if (move.isInitMove() || move.isAttack() || move.isCastlingMove() || move.getMovedPiece().getPieceType() == Piece.PieceType.PAWN)
             return;
+        updateHashsTables(move, Zobrist.calculateKey(board.getBitBoard(), move.getAllegiance()));
+    }
+
+    /**
+     * Same as {@link #updateHashsTables(Move, Board)}, the key of the pieces after the move being computed from the
+     * move only, without building the board reached
+     */
+    public void updateHashsTables(final Move move) {
+        if (move.isInitMove() || move.isAttack() || move.isCastlingMove() || move.getMovedPiece().getPieceType() == Piece.PieceType.PAWN)
+            return;
+        updateHashsTables(move, Zobrist.calculatePiecesKey(move));
+    }
+
+    private void updateHashsTables(final Move move, final long key) {
         Alliance alliance = move.getAllegiance();
-        Map<Integer, Integer> hashs = this.lastHashs.get(alliance);
-        int key = Utils.hashCode1Alliance(board, alliance);
+        Map<Long, Integer> hashs = this.lastHashs.get(alliance);
         log.debug("updateHash move:{}, key:{}", move, key);
         if (hashs.containsKey(key)) {
             log.debug("updateHash SET TO 1 move:{}, key:{}", move, key);
@@ -68,11 +93,10 @@ public abstract class InputsManager {
     public boolean isRepeatMove(final Move move) {
         if (move.isInitMove() || move.isAttack() || move.isCastlingMove() || move.getMovedPiece().getPieceType() == Piece.PieceType.PAWN)
             return false;
-        final Board destBoard = move.execute();
         Alliance alliance = move.getAllegiance();
-        Map<Integer, Integer> hashs = this.lastHashs.get(alliance);
+        Map<Long, Integer> hashs = this.lastHashs.get(alliance);
         log.debug("isRepeatMove: move:{}", move);
-        int key = Utils.hashCode1Alliance(destBoard, alliance);
+        long key = Zobrist.calculatePiecesKey(move);
         if (!hashs.containsKey(key)) return false;
         int ret = hashs.get(key).intValue();
         log.debug("move:{} key:{} ret:{}", move, key, ret);
@@ -87,7 +111,15 @@ public abstract class InputsManager {
      */
     public abstract void registerInput(final Board board, final Move move);
 
-    public List<Integer> getHashs(final Alliance alliance) {
+    /**
+     * Register the input calculated using the given mutable position, the move being already played on it
+     *
+     * @param position
+     * @param move
+     */
+    public abstract void registerInput(final MutableBoard position, final Move move);
+
+    public List<Long> getHashs(final Alliance alliance) {
         return lastHashs.get(alliance).keySet().stream().collect(Collectors.toList());
     }
 }
@@ -6,7 +6,8 @@ import com.aquila.chess.strategy.mcts.inputs.InputRecord;
 import com.aquila.chess.strategy.mcts.inputs.InputsFullNN;
 import com.aquila.chess.strategy.mcts.inputs.InputsManager;
 import com.aquila.chess.utils.Coordinate;
-import com.aquila.chess.utils.Utils;
+import com.chess.engine.bitboards.MutableBoard;
+import com.chess.engine.bitboards.Zobrist;
 import com.chess.engine.classic.Alliance;
 import com.chess.engine.classic.board.Board;
 import com.chess.engine.classic.board.BoardUtils;
@@ -193,9 +194,19 @@ public class AquilaInputsManagerImpl extends InputsManager {
         return new AquilaInputsManagerImpl();
     }
 
+    @Override
+    public void resetFrom(final InputsManager inputsManager) {
+        clearHashs();
+    }
+
     @Override
     public long hashCode(final InputRecord inputRecord) {
-        return Utils.hash(getHashCodeString(inputRecord));
+        final Move move = inputRecord.move();
+        final long boardKey = move != null && move.getMovedPiece() != null ?
+                move.calculateZobristKey() :
+                inputRecord.abstractGame().getBoard().getZobristKey();
+        final long ret = Zobrist.mix(boardKey, Double.doubleToLongBits(inputRecord.abstractGame().ratioPlayer()));
+        return Zobrist.mix(ret, inputRecord.moveColor().ordinal());
     }
 
     @Override
@@ -242,4 +253,9 @@ public class AquilaInputsManagerImpl extends InputsManager {
 
     }
 
+    @Override
+    public void registerInput(MutableBoard position, Move move) {
+
+    }
+
 }
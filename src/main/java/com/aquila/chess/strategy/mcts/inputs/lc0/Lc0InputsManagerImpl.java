@@ -5,6 +5,8 @@ import com.aquila.chess.strategy.mcts.inputs.InputRecord;
 import com.aquila.chess.strategy.mcts.inputs.InputsManager;
 import com.aquila.chess.utils.Coordinate;
 import com.aquila.chess.utils.Utils;
+import com.chess.engine.bitboards.MutableBoard;
+import com.chess.engine.bitboards.Zobrist;
 import com.chess.engine.classic.Alliance;
 import com.chess.engine.classic.board.Board;
 import com.chess.engine.classic.board.BoardUtils;
@@ -84,9 +86,23 @@ public class Lc0InputsManagerImpl extends InputsManager {
 
     @Override
     public long hashCode(final InputRecord inputRecord) {
-        String hashCodeString = getHashCodeString(inputRecord);
-        long ret = Utils.hash(hashCodeString);
-        log.debug("[{}] HASHCODE:{}\n{}", inputRecord.moveColor(), ret, hashCodeString);
+        final Move move = inputRecord.move();
+        long ret = inputRecord.abstractGame().getBoard().getZobristKey();
+        final List<Move> moves8inputs = this.lc0Last8Inputs.stream().map(in -> in.move()).collect(Collectors.toList());
+        if (move != null && !move.isInitMove() && notDuplicate(moves8inputs, move)) {
+            ret = move.calculateZobristKey();
+            moves8inputs.add(move);
+        }
+        // same content as getHashCodeString(): the position, the last 8 moves with their repeat flags and the color
+        for (final Move historyMove : moves8inputs) {
+            ret = Zobrist.mix(ret, Zobrist.moveKey(historyMove));
+        }
+        for (final Lc0Last8Inputs lc0Last8Input : this.lc0Last8Inputs) {
+            ret = Zobrist.mix(ret, lc0Last8Input.repeat() ? 1L : 0L);
+        }
+        ret = Zobrist.mix(ret, inputRecord.moveColor().ordinal());
+        if (log.isDebugEnabled())
+            log.debug("[{}] HASHCODE:{}\n{}", inputRecord.moveColor(), ret, getHashCodeString(inputRecord));
         if (log.isDebugEnabled())
             log.warn("HASHCODE-1() -> [{}] MOVE:{} nbMaxBits:{} - {}", inputRecord.moveColor(), inputRecord.move(), Utils.nbMaxBits(ret), ret);
         return ret;
@@ -123,12 +139,27 @@ public class Lc0InputsManagerImpl extends InputsManager {
         return lc0InputsManagerImpl;
     }
 
+    @Override
+    public void resetFrom(final InputsManager inputsManager) {
+        final Lc0InputsManagerImpl lc0InputsManagerImpl = (Lc0InputsManagerImpl) inputsManager;
+        clearHashs();
+        lc0InputsManagerImpl.doClone(this);
+        this.lc0Last8Inputs.clear();
+        this.lc0Last8Inputs.addAll(lc0InputsManagerImpl.getLc0Last8Inputs());
+    }
+
     @Override
     public void registerInput(final Board board, final Move move) {
         Lc0InputsOneNN inputs = this.createInputsForOnePosition(board, move, isRepeatMove(move));
         this.lc0Last8Inputs.add(new Lc0Last8Inputs(inputs, move, isRepeatMove(move)));
     }
 
+    @Override
+    public void registerInput(final MutableBoard position, final Move move) {
+        final boolean isRepeat = isRepeatMove(move);
+        this.lc0Last8Inputs.add(new Lc0Last8Inputs(this.createInputsForOnePosition(position, isRepeat), move, isRepeat));
+    }
+
     /**
      * <h1>Network Input</h1>
      * <p>
@@ -258,8 +289,7 @@ public class Lc0InputsManagerImpl extends InputsManager {
                 };
                 int offsetBlack = currentPiece.getPieceAllegiance() == Alliance.BLACK ? 1 : 0;
                 for (Move move : legalMoves) {
-                    Move.MoveStatus status = player.makeMove(move).getMoveStatus();
-                    if (status == Move.MoveStatus.DONE) {
+                    if (player.generateLegalMoves().contains(move)) {
                         Coordinate coordinateKingMoves = Coordinate.destinationCoordinate(move);
                         inputs[destinationOffset + 26 + offsetBlack][coordinateKingMoves.getXInput()][coordinateKingMoves.getYInput()] = 1;
                     }
@@ -308,6 +338,37 @@ public class Lc0InputsManagerImpl extends InputsManager {
         return new Lc0InputsOneNN(nbIn);
     }
 
+    /**
+     * Same planes as {@link #createInputsForOnePosition(Board, Move, boolean)}, read from the bitboards of the given
+     * position, without building a board
+     *
+     * @param position - the position, the move already played on it
+     * @param isRepeat
+     * @return the normalize board for 1 position. dimensions: [13][NB_COL][NB_COL]
+     */
+    public Lc0InputsOneNN createInputsForOnePosition(final MutableBoard position, boolean isRepeat) {
+        final var nbIn = new double[SIZE_POSITION][BoardUtils.NUM_TILES_PER_ROW][BoardUtils.NUM_TILES_PER_ROW];
+        for (final Alliance alliance : Alliance.values()) {
+            for (final Piece.PieceType pieceType : Piece.PieceType.values()) {
+                final int currentPieceIndex = getPlanesIndex(alliance, pieceType);
+                long pieces = position.getPieces(alliance, pieceType);
+                while (pieces != 0L) {
+                    // coordinate calculated from the point of view of the player, see Coordinate
+                    final int square = Long.numberOfTrailingZeros(pieces);
+                    final int x = square % BoardUtils.NUM_TILES_PER_ROW;
+                    final int y = BoardUtils.NUM_TILES_PER_ROW - 1 - square / BoardUtils.NUM_TILES_PER_ROW;
+                    if (alliance.isWhite()) nbIn[currentPieceIndex][x][y] = 1;
+                    else nbIn[currentPieceIndex][7 - x][7 - y] = 1;
+                    pieces &= pieces - 1;
+                }
+            }
+        }
+        // Repeat plan
+        if (isRepeat)
+            fill(nbIn[SIZE_POSITION - 1], 1.0);
+        return new Lc0InputsOneNN(nbIn);
+    }
+
     /**
      * @formatter:off <pre>
      * [0-6]: Pawn:0, Bishop:1, Knight:2, Rook:3, Queen:4, King:5
@@ -317,13 +378,17 @@ public class Lc0InputsManagerImpl extends InputsManager {
      * @formatter:on
      */
     private int getPlanesIndex(Piece piece) {
-        int index = piece.getPieceAllegiance().isWhite() ? 0 : 6;
-        if (piece.getPieceType() == Piece.PieceType.PAWN) return index + PAWN_INDEX;
-        if (piece.getPieceType() == Piece.PieceType.BISHOP) return index + BISHOP_INDEX;
-        if (piece.getPieceType() == Piece.PieceType.KNIGHT) return index + KNIGHT_INDEX;
-        if (piece.getPieceType() == Piece.PieceType.ROOK) return index + ROOK_INDEX;
-        if (piece.getPieceType() == Piece.PieceType.QUEEN) return index + QUEEN_INDEX;
-        if (piece.getPieceType() == Piece.PieceType.KING) return index + KING_INDEX;
+        return getPlanesIndex(piece.getPieceAllegiance(), piece.getPieceType());
+    }
+
+    private int getPlanesIndex(final Alliance alliance, final Piece.PieceType pieceType) {
+        int index = alliance.isWhite() ? 0 : 6;
+        if (pieceType == Piece.PieceType.PAWN) return index + PAWN_INDEX;
+        if (pieceType == Piece.PieceType.BISHOP) return index + BISHOP_INDEX;
+        if (pieceType == Piece.PieceType.KNIGHT) return index + KNIGHT_INDEX;
+        if (pieceType == Piece.PieceType.ROOK) return index + ROOK_INDEX;
+        if (pieceType == Piece.PieceType.QUEEN) return index + QUEEN_INDEX;
+        if (pieceType == Piece.PieceType.KING) return index + KING_INDEX;
         return -100; // sure this will failed at least
     }
 
@@ -18,6 +18,54 @@ public class Statistic {
     public int totalWinNodes;
     public int totalLostNodes;
     public int totalDrawnNodes;
+    /**
+     * visits of the reused root at the start of the step, set for each step by the strategy
+     */
+    public int nbReusedVisits;
+    /**
+     * visits backed up through the transpositions of the DAG mode
+     */
+    public int nbTranspositions;
+    /**
+     * nodes removed during the step to stay in the node budget of the tree
+     */
+    public int nbReclaimedNodes;
+    /**
+     * descents of the walkers gathering several leaves that reached a node still waiting for its inference
+     */
+    public int nbCollisions;
+    /**
+     * simulations and time not used when the smart stop ended the search, root moves no longer selected
+     */
+    public long nbSavedSimulations;
+    public long savedMillis;
+    public int nbExcludedRootMoves;
+    public long softMillis;
+    public long hardMillis;
+    public long usedMillis;
+    public int nbDeadlineStops;
+    public int nbBlockingEvaluations;
+    /**
+     * pondering during the game: predicted replies played or not, visits of the ponder searches reused by the next search
+     */
+    public int nbPonderHits;
+    public int nbPonderMisses;
+    public long nbPonderVisits;
+    /**
+     * number of trees of a root parallel search
+     */
+    public int nbRootTrees;
+    /**
+     * nodes proven won, lost or drawn by the MCTS-solver during the step
+     */
+    public int nbSolvedNodes;
+    /**
+     * memory in use at the end of the step: nodes of the tree, cache values, estimated size of both and used heap
+     */
+    public int nbNodes;
+    public int nbCacheValues;
+    public long treeMBytes;
+    public long heapMBytes;
 
     public Statistic() {
         clearEachGame();
@@ -36,12 +84,28 @@ public class Statistic {
         maxRandomSelectionBestMoves = 0;
         minRandomSelectionBestMoves = Integer.MAX_VALUE;
         nbSubmitJobs = 0;
+        nbTranspositions = 0;
+        nbReclaimedNodes = 0;
+        nbCollisions = 0;
+        nbSavedSimulations = 0;
+        savedMillis = 0;
+        nbExcludedRootMoves = 0;
+        softMillis = 0;
+        hardMillis = 0;
+        usedMillis = 0;
+        nbDeadlineStops = 0;
+        nbBlockingEvaluations = 0;
+        nbRootTrees = 1;
+        nbSolvedNodes = 0;
     }
 
     public void clearEachGame() {
         totalWinNodes = 0;
         totalLostNodes = 0;
         totalDrawnNodes = 0;
+        nbPonderHits = 0;
+        nbPonderMisses = 0;
+        nbPonderVisits = 0;
     }
 
     @Override
@@ -54,9 +118,24 @@ public class Statistic {
                 nbCalls,nbPlay,nbPossibleMoves,nbSubmitJobs,nbRetrieveNNCachedValues,nbRetrieveNNCachedPolicies,nbRetrieveNNValues));
         sb.append("----------------------------------------------------------------------------------------------------------\n");
         sb.append(String.format("| %12s | %12s | %12s | %12s | %12s | %12s | %12s |\n",
-                "GoodSelect","maxRndSelect","minRndSelect","RndSelect","RndSelBest","",""));
+                "GoodSelect","maxRndSelect","minRndSelect","RndSelect","RndSelBest","ReusedVisit","Transpos"));
+        sb.append(String.format("| %12d | %12d | %12d | %12d | %12d | %12d | %12d |",
+                nbGoodSelection,maxRandomSelectionBestMoves,minRandomSelectionBestMoves,nbRandomSelection,nbRandomSelectionBestMoves,nbReusedVisits,nbTranspositions));
+        sb.append("\n----------------------------------------------------------------------------------------------------------\n");
+        sb.append(String.format("| %12s | %12s | %12s | %12s | %12s | %12s | %12s |\n",
+                "Nodes","ReclaimNodes","CacheValues","TreeMB","HeapMB","Collisions","BlockingEval"));
+        sb.append(String.format("| %12d | %12d | %12d | %12d | %12d | %12d | %12d |",
+                nbNodes,nbReclaimedNodes,nbCacheValues,treeMBytes,heapMBytes,nbCollisions,nbBlockingEvaluations));
+        sb.append("\n----------------------------------------------------------------------------------------------------------\n");
+        sb.append(String.format("| %12s | %12s | %12s | %12s | %12s | %12s | %12s |\n",
+                "SavedSimul","SavedMillis","ExcludedRoot","SoftMillis","HardMillis","UsedMillis","DeadlineStop"));
+        sb.append(String.format("| %12d | %12d | %12d | %12d | %12d | %12d | %12d |",
+                nbSavedSimulations,savedMillis,nbExcludedRootMoves,softMillis,hardMillis,usedMillis,nbDeadlineStops));
+        sb.append("\n----------------------------------------------------------------------------------------------------------\n");
+        sb.append(String.format("| %12s | %12s | %12s | %12s | %12s | %12s | %12s |\n",
+                "PonderHits","PonderMiss","PonderVisit","RootTrees","SolvedNodes","",""));
         sb.append(String.format("| %12d | %12d | %12d | %12d | %12d | %12s | %12s |",
-                nbGoodSelection,maxRandomSelectionBestMoves,minRandomSelectionBestMoves,nbRandomSelection,nbRandomSelectionBestMoves,"",""));
+                nbPonderHits,nbPonderMisses,nbPonderVisits,nbRootTrees,nbSolvedNodes,"",""));
         return sb.toString();
     }
 
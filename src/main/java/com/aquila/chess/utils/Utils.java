@@ -3,10 +3,6 @@
  */
 package com.aquila.chess.utils;
 
-import com.chess.engine.classic.Alliance;
-import com.chess.engine.classic.board.Board;
-import com.chess.engine.classic.board.BoardUtils;
-import com.chess.engine.classic.pieces.Piece;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
@@ -87,18 +83,6 @@ public class Utils {
         return UUID.nameUUIDFromBytes(md.digest(text.getBytes())).toString();
     }
 
-    public static int hashCode1Alliance(final Board board, final Alliance alliance) {
-        StringBuffer sb = new StringBuffer();
-        for (int position = 0; position < BoardUtils.NUM_TILES; position++) {
-            Piece piece = board.getPiece(position);
-            if (piece != null && piece.getPieceAllegiance() == alliance) {
-                sb.append(String.format("%s=%d", piece.getPieceType(), position));
-            }
-        }
-        log.debug("hashCode1Alliance alliance:{}\n{}", alliance, sb);
-        return sb.toString().hashCode();
-    }
-
     public static double[] convertFloatsToDoubles(double[] input) {
         double[] output = new double[input.length];
         for (int i = 0; i < input.length; i++) {
@@ -1,11 +1,29 @@
 package com.chess.engine.bitboards;
 
-import com.google.common.collect.ImmutableList;
-import com.google.common.primitives.Longs;
-
+import com.chess.engine.classic.Alliance;
+import com.chess.engine.classic.board.Board;
+import com.chess.engine.classic.board.Move;
+import com.chess.engine.classic.board.Move.*;
+import com.chess.engine.classic.pieces.*;
+import com.chess.engine.classic.pieces.Piece.PieceType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
-public class BitBoardV2 {
+/**
+ * Immutable bitboard view of a position: 12 piece bitboards plus occupancy masks.
+ * <p>
+ * Bit <code>i</code> is the classic tile <code>i</code> (0 = a8, 63 = h1), so coordinates can be exchanged with
+ * {@link Board} and {@link Move} without translation. Sliding attacks come from {@link Magics}.
+ */
+public final class BitBoardV2 {
+
+    public static final int WHITE_KING_SIDE = 1;
+    public static final int WHITE_QUEEN_SIDE = 2;
+    public static final int BLACK_KING_SIDE = 4;
+    public static final int BLACK_QUEEN_SIDE = 8;
 
     private final long whitePawns;
     private final long whiteKnights;
@@ -23,23 +41,74 @@ public class BitBoardV2 {
 
     private final long whitePieces;
     private final long blackPieces;
+    private final long allPieces;
+
+    private final Alliance nextMoveMaker;
+    private final int castlingRights;
+    private final int enPassantSquare;
+
+    private static final long WHITE_PAWNS_INITIAL_POSITIONS = 0x00FF000000000000L;
+    private static final long WHITE_KNIGHTS_INITIAL_POSITIONS = 0x4200000000000000L;
+    private static final long WHITE_BISHOPS_INITIAL_POSITIONS = 0x2400000000000000L;
+    private static final long WHITE_ROOKS_INITIAL_POSITIONS = 0x8100000000000000L;
+    private static final long WHITE_QUEEN_INITIAL_POSITION = 0x0800000000000000L;
+    private static final long WHITE_KING_INITIAL_POSITION = 0x1000000000000000L;
+    private static final long BLACK_PAWNS_INITIAL_POSITIONS = 0x000000000000FF00L;
+    private static final long BLACK_KNIGHTS_INITIAL_POSITIONS = 0x0000000000000042L;
+    private static final long BLACK_BISHOPS_INITIAL_POSITIONS = 0x0000000000000024L;
+    private static final long BLACK_ROOKS_INITIAL_POSITIONS = 0x0000000000000081L;
+    private static final long BLACK_QUEEN_INITIAL_POSITION = 0x0000000000000008L;
+    private static final long BLACK_KING_INITIAL_POSITION = 0x0000000000000010L;
+
+    static final long RANK_2 = 0x00FF000000000000L;
+    static final long RANK_7 = 0x000000000000FF00L;
+
+    static final long[] KNIGHT_ATTACKS = calculateStepAttacks(new int[][]{
+            {-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}});
+    static final long[] KING_ATTACKS = calculateStepAttacks(new int[][]{
+            {-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}});
+    static final long[] WHITE_PAWN_ATTACKS = calculateStepAttacks(new int[][]{{-1, -1}, {-1, 1}});
+    static final long[] BLACK_PAWN_ATTACKS = calculateStepAttacks(new int[][]{{1, -1}, {1, 1}});
+
+    /**
+     * castling rights kept when a piece leaves or lands on a tile
+     */
+    static final int[] CASTLING_MASKS = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASKS, WHITE_KING_SIDE | WHITE_QUEEN_SIDE | BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+        CASTLING_MASKS[60] &= ~(WHITE_KING_SIDE | WHITE_QUEEN_SIDE);
+        CASTLING_MASKS[63] &= ~WHITE_KING_SIDE;
+        CASTLING_MASKS[56] &= ~WHITE_QUEEN_SIDE;
+        CASTLING_MASKS[4] &= ~(BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+        CASTLING_MASKS[7] &= ~BLACK_KING_SIDE;
+        CASTLING_MASKS[0] &= ~BLACK_QUEEN_SIDE;
+    }
 
-    private static final long WHITE_PAWNS_INITIAL_POSITIONS = 0x000000000000FF00L;
-    private static final long WHITE_KNIGHTS_INITIAL_POSITIONS = 0x0000000000000042L;
-    private static final long WHITE_BISHOPS_INITIAL_POSITIONS = 0x0000000000000024L;
-    private static final long WHITE_ROOKS_INITIAL_POSITIONS = 0x0000000000000081L;
-    private static final long WHITE_QUEEN_INITIAL_POSITION = 0x0000000000000010L;
-    private static final long WHITE_KING_INITIAL_POSITION = 0x0000000000000008L;
-    private static final long BLACK_PAWNS_INITIAL_POSITIONS = 0x00FF000000000000L;
-    private static final long BLACK_KNIGHTS_INITIAL_POSITIONS = 0x4200000000000000L;
-    private static final long BLACK_BISHOPS_INITIAL_POSITIONS = 0x2400000000000000L;
-    private static final long BLACK_ROOKS_INITIAL_POSITIONS = 0x8100000000000000L;
-    private static final long BLACK_QUEEN_INITIAL_POSITION = 0x1000000000000000L;
-    private static final long BLACK_KING_INITIAL_POSITION = 0x0800000000000000L;
-
-    private static final long ALL_TILES = 0xFFFFFFFFFFFFFFFFL;
-    private static final List<Long> KNIGHT_LOOKUP_TABLE = calculateKnightLookupTable();
-    private final static byte[] BISHOP_DIAGONALS = { -9, -7, 7, 9 };
+    /**
+     * squares strictly between two aligned squares, 0 if they are not on the same rank, file or diagonal
+     */
+    private static final long[][] BETWEEN = new long[64][64];
+    /**
+     * whole rank, file or diagonal going through two aligned squares, 0 if they are not aligned
+     */
+    private static final long[][] LINE = new long[64][64];
+
+    static {
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                if (a == b) continue;
+                final long bits = (1L << a) | (1L << b);
+                if ((Magics.rookAttacksSlow(a, 0L) & (1L << b)) != 0L) {
+                    BETWEEN[a][b] = Magics.rookAttacksSlow(a, 1L << b) & Magics.rookAttacksSlow(b, 1L << a);
+                    LINE[a][b] = (Magics.rookAttacksSlow(a, 0L) & Magics.rookAttacksSlow(b, 0L)) | bits;
+                } else if ((Magics.bishopAttacksSlow(a, 0L) & (1L << b)) != 0L) {
+                    BETWEEN[a][b] = Magics.bishopAttacksSlow(a, 1L << b) & Magics.bishopAttacksSlow(b, 1L << a);
+                    LINE[a][b] = (Magics.bishopAttacksSlow(a, 0L) & Magics.bishopAttacksSlow(b, 0L)) | bits;
+                }
+            }
+        }
+    }
 
     private BitBoardV2(final long whitePawns,
                        final long whiteKnights,
@@ -52,7 +121,10 @@ public class BitBoardV2 {
                        final long blackBishops,
                        final long blackRooks,
                        final long blackQueen,
-                       final long blackKing) {
+                       final long blackKing,
+                       final Alliance nextMoveMaker,
+                       final int castlingRights,
+                       final int enPassantSquare) {
         this.whitePawns = whitePawns;
         this.whiteKnights = whiteKnights;
         this.whiteBishops = whiteBishops;
@@ -68,6 +140,10 @@ public class BitBoardV2 {
 
         this.whitePieces = calculateWhitePieces();
         this.blackPieces = calculateBlackPieces();
+        this.allPieces = this.whitePieces | this.blackPieces;
+        this.nextMoveMaker = nextMoveMaker;
+        this.castlingRights = castlingRights;
+        this.enPassantSquare = enPassantSquare;
     }
 
     public static BitBoardV2 standardBoard() {
@@ -87,133 +163,441 @@ public class BitBoardV2 {
                               BLACK_BISHOPS_INITIAL_POSITIONS,
                               BLACK_ROOKS_INITIAL_POSITIONS,
                               BLACK_QUEEN_INITIAL_POSITION,
-                              BLACK_KING_INITIAL_POSITION);
+                              BLACK_KING_INITIAL_POSITION,
+                              Alliance.WHITE,
+                              WHITE_KING_SIDE | WHITE_QUEEN_SIDE | BLACK_KING_SIDE | BLACK_QUEEN_SIDE,
+                              -1);
+    }
+
+    public static BitBoardV2 fromBoard(final Board board) {
+        return fromPieces(board.getAllPieces(), board.currentPlayer().getAlliance(), board.getEnPassantPawn());
+    }
+
+    /**
+     * @param enPassantPawn the pawn that just made a two squares jump, or null
+     */
+    public static BitBoardV2 fromPieces(final Collection<Piece> pieces,
+                                        final Alliance nextMoveMaker,
+                                        final Pawn enPassantPawn) {
+        return fromPieces(pieces.toArray(new Piece[0]), nextMoveMaker, enPassantPawn);
+    }
+
+    /**
+     * @param pieces        the pieces, the null cells are ignored (the piece of each tile of a Board)
+     * @param enPassantPawn the pawn that just made a two squares jump, or null
+     */
+    public static BitBoardV2 fromPieces(final Piece[] pieces,
+                                        final Alliance nextMoveMaker,
+                                        final Pawn enPassantPawn) {
+        final long[] bitboards = new long[12];
+        Piece whiteKingPiece = null;
+        Piece blackKingPiece = null;
+        long unmovedRooks = 0L;
+        for (final Piece piece : pieces) {
+            if (piece == null) continue;
+            final Alliance alliance = piece.getPieceAllegiance();
+            final int position = piece.getPiecePosition();
+            bitboards[alliance.isWhite() ? piece.getPieceType().ordinal() : 6 + piece.getPieceType().ordinal()] |= 1L << position;
+            if (piece.getPieceType() == PieceType.KING) {
+                if (alliance.isWhite()) whiteKingPiece = piece;
+                else blackKingPiece = piece;
+            } else if (piece.getPieceType() == PieceType.ROOK && piece.isFirstMove()
+                    && (alliance.isWhite() ? (position == 56 || position == 63) : (position == 0 || position == 7))) {
+                unmovedRooks |= 1L << position;
+            }
+        }
+        int castlingRights = 0;
+        if (canCastle(whiteKingPiece, 60)) {
+            if ((unmovedRooks & (1L << 63)) != 0L) castlingRights |= WHITE_KING_SIDE;
+            if ((unmovedRooks & (1L << 56)) != 0L) castlingRights |= WHITE_QUEEN_SIDE;
+        }
+        if (canCastle(blackKingPiece, 4)) {
+            if ((unmovedRooks & (1L << 7)) != 0L) castlingRights |= BLACK_KING_SIDE;
+            if ((unmovedRooks & 1L) != 0L) castlingRights |= BLACK_QUEEN_SIDE;
+        }
+        return new BitBoardV2(bitboards[0], bitboards[1], bitboards[2], bitboards[3], bitboards[4], bitboards[5],
+                bitboards[6], bitboards[7], bitboards[8], bitboards[9], bitboards[10], bitboards[11],
+                nextMoveMaker,
+                castlingRights,
+                enPassantPawn == null ? -1 : enPassantPawn.getPiecePosition());
     }
 
-    public BitBoardV2 calculateLegalMoves() {
-        return new BitBoardV2(calculateWhitePawnLegals(),
-                              calculateWhiteKnightLegals(),
-                              calculateWhiteBishopLegals(),
-                              calculateWhiteRookLegals(),
-                              calculateWhiteQueenLegals(),
-                              calculateWhiteKingLegals(),
-                              calculateBlackPawnLegals(),
-                              calculateBlackKnightLegals(),
-                              calculateBlackBishopLegals(),
-                              calculateBlackRookLegals(),
-                              calculateBlackQueenLegals(),
-                              calculateBlackKingLegals());
+    /**
+     * same rules as the classic players: the king never moved, is not castled and still has one castle capability
+     */
+    private static boolean canCastle(final Piece kingPiece, final int homeSquare) {
+        if (!(kingPiece instanceof King king)) return false;
+        return king.getPiecePosition() == homeSquare && king.isFirstMove() && !king.isCastled()
+                && (king.isKingSideCastleCapable() || king.isQueenSideCastleCapable());
     }
 
-    ////////// ////////// HELPER METHODS BELOW ////////// //////////
-    private long calculateWhitePawnLegals() {
-        final long allPieces = this.whitePieces & this.blackPieces;
-        return (this.whitePawns << 8L & ~(allPieces)) | ((this.whitePawns & WHITE_PAWNS_INITIAL_POSITIONS) << 16L & ~(allPieces));
+    public long getPieces(final Alliance alliance, final PieceType pieceType) {
+        final boolean white = alliance.isWhite();
+        return switch (pieceType) {
+            case PAWN -> white ? this.whitePawns : this.blackPawns;
+            case KNIGHT -> white ? this.whiteKnights : this.blackKnights;
+            case BISHOP -> white ? this.whiteBishops : this.blackBishops;
+            case ROOK -> white ? this.whiteRooks : this.blackRooks;
+            case QUEEN -> white ? this.whiteQueen : this.blackQueen;
+            case KING -> white ? this.whiteKing : this.blackKing;
+        };
     }
 
-    private long calculateBlackPawnLegals() {
-        final long allPieces = this.whitePieces & this.blackPieces;
-        return (this.whitePawns >> 8L & ~(allPieces)) | ((this.whitePawns & BLACK_PAWNS_INITIAL_POSITIONS) >> 16L & ~(allPieces));
+    public long getPieces(final Alliance alliance) {
+        return alliance.isWhite() ? this.whitePieces : this.blackPieces;
     }
 
-    private long calculateWhiteKnightLegals() {
-        long legals = 0L;
-        for(final byte position : bitPositions(this.whiteKnights)) {
-            legals |= KNIGHT_LOOKUP_TABLE.get(position) & ~(this.whitePieces);
+    public long getWhitePieces() {
+        return this.whitePieces;
+    }
+
+    public long getBlackPieces() {
+        return this.blackPieces;
+    }
+
+    public long getAllPieces() {
+        return this.allPieces;
+    }
+
+    public Alliance getNextMoveMaker() {
+        return this.nextMoveMaker;
+    }
+
+    public int getCastlingRights() {
+        return this.castlingRights;
+    }
+
+    /**
+     * @return the square of the pawn that just jumped two squares, -1 if none
+     */
+    public int getEnPassantSquare() {
+        return this.enPassantSquare;
+    }
+
+    /**
+     * @return <code>side * 6 + pieceType.ordinal()</code> of the piece on the tile (side 0 is white), -1 if empty
+     */
+    int getPieceIndex(final int square) {
+        final long bit = 1L << square;
+        if ((this.allPieces & bit) == 0L) return -1;
+        final int side = (this.whitePieces & bit) != 0L ? 0 : 1;
+        final Alliance alliance = side == 0 ? Alliance.WHITE : Alliance.BLACK;
+        for (final PieceType pieceType : PieceType.values()) {
+            if ((getPieces(alliance, pieceType) & bit) != 0L) return side * 6 + pieceType.ordinal();
         }
-        return legals;
+        return -1;
     }
 
-    private long calculateBlackKnightLegals() {
-        long legals = 0L;
-        for(final byte position : bitPositions(this.blackKnights)) {
-            legals |= KNIGHT_LOOKUP_TABLE.get(position) & ~(this.blackPieces);
+    public boolean isOccupied(final int square) {
+        return (this.allPieces & (1L << square)) != 0L;
+    }
+
+    /**
+     * @return the king square of the given alliance, 64 if the king is missing
+     */
+    public int getKingSquare(final Alliance alliance) {
+        return Long.numberOfTrailingZeros(alliance.isWhite() ? this.whiteKing : this.blackKing);
+    }
+
+    public boolean isInCheck(final Alliance alliance) {
+        final int kingSquare = getKingSquare(alliance);
+        return kingSquare < 64 && isSquareAttacked(kingSquare, alliance.isWhite() ? Alliance.BLACK : Alliance.WHITE);
+    }
+
+    public boolean isSquareAttacked(final int square, final Alliance attacker) {
+        return isAttacked(square, attacker, this.allPieces, 0L);
+    }
+
+    /**
+     * @return every square attacked by the given alliance
+     */
+    public long calculateAttackedTiles(final Alliance attacker) {
+        final boolean white = attacker.isWhite();
+        long attacks = 0L;
+        long pieces = white ? this.whitePawns : this.blackPawns;
+        final long[] pawnAttacks = white ? WHITE_PAWN_ATTACKS : BLACK_PAWN_ATTACKS;
+        while (pieces != 0L) {
+            attacks |= pawnAttacks[Long.numberOfTrailingZeros(pieces)];
+            pieces &= pieces - 1;
         }
-        return legals;
-    }
-
-    private long calculateWhiteBishopLegals() {
-
-        long legals = 0L;
-        for(final byte position : bitPositions(this.whiteBishops)) {
-            byte candidate = position;
-            for(final byte diagonal : BISHOP_DIAGONALS) {
-                candidate += diagonal;
-                while(candidate >= 0 && candidate < 64 && (candidate | this.whitePawns) == 0L) {
-                    legals |= candidate;
-                    if((candidate | this.blackPieces) != 0L) {
-                        break;
-                    }
-                    candidate += diagonal;
-                }
-            }
+        pieces = white ? this.whiteKnights : this.blackKnights;
+        while (pieces != 0L) {
+            attacks |= KNIGHT_ATTACKS[Long.numberOfTrailingZeros(pieces)];
+            pieces &= pieces - 1;
         }
-        return legals;
-    }
-
-    private long calculateBlackBishopLegals() {
-        long legals = 0L;
-        for(final byte position : bitPositions(this.blackBishops)) {
-            byte candidate = position;
-            for(final byte diagonal : BISHOP_DIAGONALS) {
-                candidate += diagonal;
-                while(candidate >= 0 && candidate < 64 && (candidate | this.blackPieces) == 0L) {
-                    legals |= candidate;
-                    if((candidate | this.whitePieces) != 0L) {
-                        break;
-                    }
-                    candidate += diagonal;
-                }
+        pieces = white ? this.whiteBishops | this.whiteQueen : this.blackBishops | this.blackQueen;
+        while (pieces != 0L) {
+            attacks |= Magics.bishopAttacks(Long.numberOfTrailingZeros(pieces), this.allPieces);
+            pieces &= pieces - 1;
+        }
+        pieces = white ? this.whiteRooks | this.whiteQueen : this.blackRooks | this.blackQueen;
+        while (pieces != 0L) {
+            attacks |= Magics.rookAttacks(Long.numberOfTrailingZeros(pieces), this.allPieces);
+            pieces &= pieces - 1;
+        }
+        pieces = white ? this.whiteKing : this.blackKing;
+        if (pieces != 0L) {
+            attacks |= KING_ATTACKS[Long.numberOfTrailingZeros(pieces)];
+        }
+        return attacks;
+    }
+
+    /**
+     * @param occupied the occupancy used for sliding pieces
+     * @param excluded attacker pieces to ignore (typically a piece that has just been captured)
+     */
+    private boolean isAttacked(final int square,
+                               final Alliance attacker,
+                               final long occupied,
+                               final long excluded) {
+        final long keep = ~excluded;
+        if (attacker.isWhite()) {
+            return (BLACK_PAWN_ATTACKS[square] & this.whitePawns & keep) != 0L
+                    || (KNIGHT_ATTACKS[square] & this.whiteKnights & keep) != 0L
+                    || (KING_ATTACKS[square] & this.whiteKing) != 0L
+                    || (Magics.bishopAttacks(square, occupied) & (this.whiteBishops | this.whiteQueen) & keep) != 0L
+                    || (Magics.rookAttacks(square, occupied) & (this.whiteRooks | this.whiteQueen) & keep) != 0L;
+        }
+        return (WHITE_PAWN_ATTACKS[square] & this.blackPawns & keep) != 0L
+                || (KNIGHT_ATTACKS[square] & this.blackKnights & keep) != 0L
+                || (KING_ATTACKS[square] & this.blackKing) != 0L
+                || (Magics.bishopAttacks(square, occupied) & (this.blackBishops | this.blackQueen) & keep) != 0L
+                || (Magics.rookAttacks(square, occupied) & (this.blackRooks | this.blackQueen) & keep) != 0L;
+    }
+
+    /**
+     * Check that a pseudo-legal move does not leave its own king in check, without building the resulting board.
+     */
+    public boolean isLegal(final Move move) {
+        final Piece movedPiece = move.getMovedPiece();
+        final Alliance alliance = movedPiece.getPieceAllegiance();
+        final int from = move.getCurrentCoordinate();
+        final int to = move.getDestinationCoordinate();
+        final long captured = move.isAttack() ? 1L << move.getAttackedPiece().getPiecePosition() : 0L;
+        long occupied = (this.allPieces & ~(1L << from) & ~captured) | (1L << to);
+        if (move.isCastlingMove()) {
+            final int rookFrom = to > from ? to + 1 : to - 2;
+            final int rookTo = to > from ? to - 1 : to + 1;
+            occupied = (occupied & ~(1L << rookFrom)) | (1L << rookTo);
+        }
+        final int kingSquare = movedPiece.getPieceType() == PieceType.KING ? to : getKingSquare(alliance);
+        if (kingSquare >= 64) return true;
+        return !isAttacked(kingSquare, alliance.isWhite() ? Alliance.BLACK : Alliance.WHITE, occupied, captured);
+    }
+
+    /**
+     * @return the opponent pieces giving check to the king of the given alliance
+     */
+    public long calculateCheckers(final Alliance alliance) {
+        final int kingSquare = getKingSquare(alliance);
+        if (kingSquare >= 64) return 0L;
+        final boolean white = alliance.isWhite();
+        final long queens = white ? this.blackQueen : this.whiteQueen;
+        return ((white ? WHITE_PAWN_ATTACKS : BLACK_PAWN_ATTACKS)[kingSquare] & (white ? this.blackPawns : this.whitePawns))
+                | (KNIGHT_ATTACKS[kingSquare] & (white ? this.blackKnights : this.whiteKnights))
+                | (Magics.bishopAttacks(kingSquare, this.allPieces) & ((white ? this.blackBishops : this.whiteBishops) | queens))
+                | (Magics.rookAttacks(kingSquare, this.allPieces) & ((white ? this.blackRooks : this.whiteRooks) | queens));
+    }
+
+    /**
+     * @return the pieces of the given alliance that can not leave the line between their king and an opponent slider
+     */
+    public long calculatePinnedPieces(final Alliance alliance) {
+        final int kingSquare = getKingSquare(alliance);
+        if (kingSquare >= 64) return 0L;
+        final boolean white = alliance.isWhite();
+        final long own = white ? this.whitePieces : this.blackPieces;
+        final long opponent = white ? this.blackPieces : this.whitePieces;
+        final long queens = white ? this.blackQueen : this.whiteQueen;
+        long snipers = (Magics.bishopAttacks(kingSquare, opponent) & ((white ? this.blackBishops : this.whiteBishops) | queens))
+                | (Magics.rookAttacks(kingSquare, opponent) & ((white ? this.blackRooks : this.whiteRooks) | queens));
+        long pinned = 0L;
+        while (snipers != 0L) {
+            final long blockers = BETWEEN[kingSquare][Long.numberOfTrailingZeros(snipers)] & this.allPieces;
+            snipers &= snipers - 1;
+            if (Long.bitCount(blockers) == 1) {
+                pinned |= blockers & own;
             }
         }
-        return legals;
+        return pinned;
     }
 
-    private long calculateWhiteRookLegals() {
-        long legals = 0L;
-        for(final byte position : bitPositions(this.whiteRooks)) {
-            legals |= position;
+    /**
+     * Check that a pseudo-legal move is legal with the checkers and the pinned pieces computed once for the position
+     * (see {@link #calculateCheckers(Alliance)} and {@link #calculatePinnedPieces(Alliance)}).
+     * Only the king moves and the en passant captures still need an attack test.
+     */
+    public boolean isLegal(final Move move, final long pinned, final long checkers) {
+        final Piece movedPiece = move.getMovedPiece();
+        final Alliance alliance = movedPiece.getPieceAllegiance();
+        final int from = move.getCurrentCoordinate();
+        final int to = move.getDestinationCoordinate();
+        final int kingSquare = getKingSquare(alliance);
+        if (kingSquare >= 64) return true;
+        final Alliance opponent = alliance.isWhite() ? Alliance.BLACK : Alliance.WHITE;
+        if (from == kingSquare) {
+            if (move.isCastlingMove()) {
+                return checkers == 0L && !isSquareAttacked(to, opponent);
+            }
+            return !isAttacked(to, opponent, this.allPieces & ~(1L << from), 1L << to);
         }
-        return legals;
+        if (move instanceof PawnEnPassantAttack) {
+            return isLegal(move);
+        }
+        if (checkers != 0L) {
+            if ((checkers & (checkers - 1)) != 0L) return false;
+            final int checker = Long.numberOfTrailingZeros(checkers);
+            if (((checkers | BETWEEN[kingSquare][checker]) & (1L << to)) == 0L) return false;
+        }
+        return (pinned & (1L << from)) == 0L || (LINE[kingSquare][from] & (1L << to)) != 0L;
     }
 
-    private long calculateBlackRookLegals() {
-        long legals = 0L;
-        for(final byte position : bitPositions(this.blackRooks)) {
-            legals |= position;
+    /**
+     * Keep the legal moves of the given pseudo-legal moves, computing the checkers and the pinned pieces only once.
+     */
+    public List<Move> filterLegalMoves(final Collection<Move> pseudoLegalMoves, final Alliance alliance) {
+        final long checkers = calculateCheckers(alliance);
+        final long pinned = calculatePinnedPieces(alliance);
+        final List<Move> moves = new ArrayList<>(pseudoLegalMoves.size());
+        for (final Move move : pseudoLegalMoves) {
+            if (isLegal(move, pinned, checkers)) {
+                moves.add(move);
+            }
         }
-        return legals;
+        return moves;
     }
 
-    private long calculateWhiteQueenLegals() {
-        long legals = 0L;
-        for(final byte position : bitPositions(this.whiteQueen)) {
-            legals |= position;
+    /**
+     * Generate the moves of one player on the given board, with the classic {@link Move} objects: this is the move
+     * generator behind {@link com.chess.engine.classic.player.Player#getLegalMoves()}, castles included.
+     *
+     * @param board    the board this bitboard was built from
+     * @param alliance the player to generate the moves for
+     */
+    public List<Move> calculatePseudoLegalMoves(final Board board, final Alliance alliance) {
+        final List<Move> moves = new ArrayList<>(48);
+        final long own = getPieces(alliance);
+        final long opponent = getPieces(alliance.isWhite() ? Alliance.BLACK : Alliance.WHITE);
+        long pieces = own;
+        while (pieces != 0L) {
+            final int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            final Piece piece = board.getPiece(from);
+            final long targets = switch (piece.getPieceType()) {
+                case PAWN -> {
+                    addPawnMoves(board, piece, opponent, moves);
+                    yield 0L;
+                }
+                case KNIGHT -> KNIGHT_ATTACKS[from];
+                case BISHOP -> Magics.bishopAttacks(from, this.allPieces);
+                case ROOK -> Magics.rookAttacks(from, this.allPieces);
+                case QUEEN -> Magics.queenAttacks(from, this.allPieces);
+                case KING -> KING_ATTACKS[from];
+            };
+            addMajorMoves(board, piece, targets & ~own, opponent, moves);
         }
-        return legals;
+        addCastleMoves(board, alliance, moves);
+        return moves;
     }
 
-    private long calculateBlackQueenLegals() {
-        long legals = 0L;
-        for(final byte position : bitPositions(this.blackQueen)) {
-            legals |= position;
+    /**
+     * Same as {@link #calculatePseudoLegalMoves(Board, Alliance)}, keeping only the moves that do not leave the king
+     * in check.
+     */
+    public List<Move> calculateLegalMoves(final Board board, final Alliance alliance) {
+        return filterLegalMoves(calculatePseudoLegalMoves(board, alliance), alliance);
+    }
+
+    private static void addMajorMoves(final Board board,
+                                      final Piece piece,
+                                      long targets,
+                                      final long opponent,
+                                      final List<Move> moves) {
+        while (targets != 0L) {
+            final int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if ((opponent & (1L << to)) != 0L) {
+                moves.add(new MajorAttackMove(board, piece, to, board.getPiece(to)));
+            } else {
+                moves.add(new MajorMove(board, piece, to));
+            }
         }
-        return legals;
     }
 
-    private long calculateWhiteKingLegals() {
-        long legals = 0L;
-        for(final byte position : bitPositions(this.whiteKing)) {
-            legals |= position;
+    private void addPawnMoves(final Board board,
+                              final Piece pawn,
+                              final long opponent,
+                              final List<Move> moves) {
+        final Alliance alliance = pawn.getPieceAllegiance();
+        final int from = pawn.getPiecePosition();
+        final int forward = alliance.isWhite() ? -8 : 8;
+        final int push = from + forward;
+        if (push >= 0 && push < 64 && !isOccupied(push)) {
+            if (alliance.isPawnPromotionSquare(push)) {
+                addPromotions(new PawnMove(board, pawn, push), moves);
+            } else {
+                moves.add(new PawnMove(board, pawn, push));
+                final long startRank = alliance.isWhite() ? RANK_2 : RANK_7;
+                if ((startRank & (1L << from)) != 0L && pawn.isFirstMove() && !isOccupied(push + forward)) {
+                    moves.add(new PawnJump(board, (Pawn) pawn, push + forward));
+                }
+            }
+        }
+        long captures = (alliance.isWhite() ? WHITE_PAWN_ATTACKS : BLACK_PAWN_ATTACKS)[from] & opponent;
+        while (captures != 0L) {
+            final int to = Long.numberOfTrailingZeros(captures);
+            captures &= captures - 1;
+            final PawnAttackMove attackMove = new PawnAttackMove(board, pawn, to, board.getPiece(to));
+            if (alliance.isPawnPromotionSquare(to)) {
+                addPromotions(attackMove, moves);
+            } else {
+                moves.add(attackMove);
+            }
+        }
+        if (this.enPassantSquare >= 0 && (this.enPassantSquare >>> 3) == (from >>> 3)
+                && Math.abs((this.enPassantSquare & 7) - (from & 7)) == 1) {
+            final Piece enPassantPawn = board.getPiece(this.enPassantSquare);
+            if (enPassantPawn != null && enPassantPawn.getPieceAllegiance() != alliance) {
+                moves.add(new PawnEnPassantAttack(board, pawn, this.enPassantSquare + forward, enPassantPawn));
+            }
         }
-        return legals;    }
+    }
 
-    private long calculateBlackKingLegals() {
-        long legals = 0L;
-        for(final byte position : bitPositions(this.blackKing)) {
-            legals |= position;
+    private static void addPromotions(final Move pawnMove, final List<Move> moves) {
+        final Alliance alliance = pawnMove.getMovedPiece().getPieceAllegiance();
+        final int to = pawnMove.getDestinationCoordinate();
+        moves.add(new PawnPromotion(pawnMove, new Queen(alliance, to, false)));
+        moves.add(new PawnPromotion(pawnMove, new Rook(alliance, to, false)));
+        moves.add(new PawnPromotion(pawnMove, new Bishop(alliance, to, false)));
+        moves.add(new PawnPromotion(pawnMove, new Knight(alliance, to, false)));
+    }
+
+    private void addCastleMoves(final Board board, final Alliance alliance, final List<Move> moves) {
+        final Alliance opponent = alliance.isWhite() ? Alliance.BLACK : Alliance.WHITE;
+        final int kingSideRight = alliance.isWhite() ? WHITE_KING_SIDE : BLACK_KING_SIDE;
+        final int queenSideRight = alliance.isWhite() ? WHITE_QUEEN_SIDE : BLACK_QUEEN_SIDE;
+        if ((this.castlingRights & (kingSideRight | queenSideRight)) == 0 || isInCheck(alliance)) {
+            return;
+        }
+        final int kingSquare = getKingSquare(alliance);
+        // same restriction as BoardUtils.isKingPawnTrap
+        final int frontTile = kingSquare + (alliance.isWhite() ? -8 : 8);
+        if (((alliance.isWhite() ? this.blackPawns : this.whitePawns) & (1L << frontTile)) != 0L) {
+            return;
+        }
+        final Piece king = board.getPiece(kingSquare);
+        if ((this.castlingRights & kingSideRight) != 0
+                && !isOccupied(kingSquare + 1) && !isOccupied(kingSquare + 2)
+                && !isSquareAttacked(kingSquare + 1, opponent) && !isSquareAttacked(kingSquare + 2, opponent)) {
+            final Rook rook = (Rook) board.getPiece(kingSquare + 3);
+            moves.add(new KingSideCastleMove(board, king, kingSquare + 2, rook, rook.getPiecePosition(), kingSquare + 1));
+        }
+        if ((this.castlingRights & queenSideRight) != 0
+                && !isOccupied(kingSquare - 1) && !isOccupied(kingSquare - 2) && !isOccupied(kingSquare - 3)
+                && !isSquareAttacked(kingSquare - 1, opponent) && !isSquareAttacked(kingSquare - 2, opponent)) {
+            final Rook rook = (Rook) board.getPiece(kingSquare - 4);
+            moves.add(new QueenSideCastleMove(board, king, kingSquare - 2, rook, rook.getPiecePosition(), kingSquare - 1));
         }
-        return legals;
     }
 
     private long calculateWhitePieces() {
@@ -240,131 +624,40 @@ public class BitBoardV2 {
                toBinaryString("WHITE PAWNS", this.whitePawns);
     }
 
+    /**
+     * print the bitboard with a8 on the top left corner, like {@link Board#toStringOrigin()}
+     */
     private static String toBinaryString(final String title,
                                          final long bits) {
-        final String s = String.format("%64s", Long.toBinaryString(bits)).replace(' ', '0');
         final StringBuilder builder = new StringBuilder(title + "\n");
-        int i = 1;
-        for(final char c : s.toCharArray()) {
-            builder.append(c);
-            if(i % 8 == 0) {
+        for (int square = 0; square < 64; square++) {
+            builder.append((bits & (1L << square)) != 0L ? '1' : '0');
+            if (square % 8 == 7) {
                 builder.append("\n");
             }
-            i++;
         }
         return builder.toString() + "\n";
     }
 
-    private static byte[] findBitPositions(long lTest)
-    {
-        final byte[] result = new byte[Long.bitCount(lTest)];
-        byte iBit = 0;
-        int iDelta, index;
-        index = 0;
-        while (lTest != 0L) {
-            iDelta = Long.numberOfTrailingZeros(lTest);
-            iBit += iDelta;
-            result[index] = iBit;
-            iBit++; // skip the 1 bit we just reported
-            iDelta++; // shift off the 1 bit we just reported
-            index++;
-            lTest >>= iDelta;
-        }
-        return result;
-    }
-
-    private static byte[] bitPositions(long n) {
-        final byte[] result = new byte[Long.bitCount(n)];
-        int i = 0;
-        for (byte bit = 0; n != 0L; bit++) {
-            if ((n & 1L) != 0) result[i++] = bit;
-            n >>>= 1;
+    private static long[] calculateStepAttacks(final int[][] deltas) {
+        final long[] attacks = new long[64];
+        for (int square = 0; square < 64; square++) {
+            final int row = square >>> 3;
+            final int col = square & 7;
+            for (final int[] delta : deltas) {
+                final int r = row + delta[0];
+                final int c = col + delta[1];
+                if (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                    attacks[square] |= 1L << (r * 8 + c);
+                }
+            }
         }
-        return result;
-    }
-
-    @SuppressWarnings("NumericOverflow")
-    private static List<Long> calculateKnightLookupTable() {
-
-        final long[] knightLookupTable = new long[64];
-
-        knightLookupTable[0] = 1L << 10L | 1L << 17L;
-        knightLookupTable[1] = 1L << 11L | 1L << 16L | 1L << 18L;
-        knightLookupTable[2] = 1L << 8L | 1L << 12L | 1L << 17L | 1L << 19L;
-        knightLookupTable[3] = 1L << 9L | 1L << 13L | 1L << 18L | 1L << 20L;
-        knightLookupTable[4] = 1L << 10L | 1L << 14L | 1L << 19L | 1L << 21L;
-        knightLookupTable[5] = 1L << 11L | 1L << 15L | 1L << 20L | 1L << 22L;
-        knightLookupTable[6] = 1L << 12L | 1L << 21L | 1L << 23L;
-        knightLookupTable[7] = 1L << 13L | 1L << 22L;
-
-        knightLookupTable[8] = 1L << 2L | 1L << 18L | 1L << 25L;
-        knightLookupTable[9] = 1L << 3L | 1L << 19L | 1L << 24L | 1L << 26L;
-        knightLookupTable[10] = 1L | 1L << 4L | 1L << 16L | 1L << 20L | 1L << 25L | 1L << 27L;
-        knightLookupTable[11] = 1L << 1L | 1L << 5L | 1L << 17L | 1L << 21L | 1L << 26L | 1L << 28L;
-        knightLookupTable[12] = 1L << 2L | 1L << 6L | 1L << 18L | 1L << 22L | 1L << 27L | 1L << 29L;
-        knightLookupTable[13] = 1L << 3L | 1L << 7L | 1L << 19L | 1L << 23L | 1L << 28L | 1L << 30L;
-        knightLookupTable[14] = 1L << 4L | 1L << 20L | 1L << 29L | 1L << 31L;
-        knightLookupTable[15] = 1L << 5L | 1L << 21L | 1L << 30L;
-
-        knightLookupTable[16] = 1L << 1L | 1L << 10L | 1L << 26L | 1L << 33L;
-        knightLookupTable[17] = 1L | 1L << 2L | 1L << 11L | 1L << 27L | 1L << 32L | 1L << 34L;
-        knightLookupTable[18] = 1L << 1L | 1L << 3L | 1L << 8L | 1L << 12L | 1L << 24L | 1L << 28L | 1L << 33L | 1L << 35L;
-        knightLookupTable[19] = 1L << 2L | 1L << 4L | 1L << 9L | 1L << 13L | 1L << 25L | 1L << 29L | 1L << 34L | 1L << 36L;
-        knightLookupTable[20] = 1L << 3L | 1L << 5L | 1L << 10L | 1L << 14L | 1L << 26L | 1L << 30L | 1L << 35L | 1L << 37L;
-        knightLookupTable[21] = 1L << 4L | 1L << 6L | 1L << 11L | 1L << 15L | 1L << 27L | 1L << 31L | 1L << 36L | 1L << 38L;
-        knightLookupTable[22] = 1L << 5L | 1L << 7L | 1L << 12L | 1L << 28L | 1L << 37L | 1L << 39L;
-        knightLookupTable[23] = 1L << 6L | 1L << 13L | 1L << 29L | 1L << 38L;
-
-        knightLookupTable[24] = 1L << 9L | 1L << 18L | 1L << 34L | 1L << 41L;
-        knightLookupTable[25] = 1L << 8L | 1L << 10L | 1L << 19L | 1L << 35L | 1L << 40L | 1L << 42L;
-        knightLookupTable[26] = 1L << 9L | 1L << 11L | 1L << 16L | 1L << 20L | 1L << 32L | 1L << 36 | 1L << 41L | 1L << 43L;
-        knightLookupTable[27] = 1L << 10L | 1L << 12L | 1L << 17L | 1L << 21L | 1L << 33L | 1L << 37L | 1L << 42L | 1L << 44L;
-        knightLookupTable[28] = 1L << 11L | 1L << 13L | 1L << 18L | 1L << 22L | 1L << 34L | 1L << 38L | 1L << 43L | 1L << 45L;
-        knightLookupTable[29] = 1L << 12L | 1L << 14L | 1L << 19L | 1L << 23L | 1L << 35L | 1L << 39L | 1L << 44L | 1L << 46L;
-        knightLookupTable[30] = 1L << 13L | 1L << 15L | 1L << 20L | 1L << 36L | 1L << 45L | 1L << 47L;
-        knightLookupTable[31] = 1L << 14L | 1L << 21L | 1L << 37L | 1L << 46L;
-
-        knightLookupTable[32] = 1L << 17L | 1L << 26L | 1L << 42L | 1L << 49L;
-        knightLookupTable[33] = 1L << 16L | 1L << 18L | 1L << 27L | 1L << 43L | 1L << 48L | 1L << 50L;
-        knightLookupTable[34] = 1L << 17L | 1L << 19L | 1L << 24L | 1L << 28L | 1L << 40L | 1L << 44L | 1L << 49L | 1L << 51L;
-        knightLookupTable[35] = 1L << 18L | 1L << 20L | 1L << 25L | 1L << 29L | 1L << 41L | 1L << 45L | 1L << 50L | 1L << 52L;
-        knightLookupTable[36] = 1L << 19L | 1L << 21L | 1L << 26L | 1L << 30L | 1L << 42L | 1L << 46L | 1L << 51L | 1L << 53L;
-        knightLookupTable[37] = 1L << 20L | 1L << 22L | 1L << 27L | 1L << 31L | 1L << 43L | 1L << 47L | 1L << 52L | 1L << 54L;
-        knightLookupTable[38] = 1L << 21L | 1L << 23L | 1L << 28L | 1L << 44L | 1L << 53L | 1L << 55L;
-        knightLookupTable[39] = 1L << 22L | 1L << 29L | 1L << 45L | 1L << 54L;
-
-        knightLookupTable[40] = 1L << 25L | 1L << 34L | 1L << 50L | 1L << 57L;
-        knightLookupTable[41] = 1L << 24L | 1L << 26L | 1L << 35L | 1L << 51L | 1L << 56L | 1L << 58L;
-        knightLookupTable[42] = 1L << 25L | 1L << 27L | 1L << 32L | 1L << 36L | 1L << 48L | 1L << 52L | 1L << 57L | 1L << 59L;
-        knightLookupTable[43] = 1L << 26L | 1L << 28L | 1L << 33L | 1L << 37L | 1L << 49L | 1L << 53L | 1L << 58L | 1L << 60L;
-        knightLookupTable[44] = 1L << 27L | 1L << 29L | 1L << 34L | 1L << 38L | 1L << 50L | 1L << 54L | 1L << 59L | 1L << 61L;
-        knightLookupTable[45] = 1L << 28L | 1L << 30L | 1L << 35L | 1L << 39L | 1L << 51L | 1L << 55L | 1L << 60L | 1L << 62L;
-        knightLookupTable[46] = 1L << 29L | 1L << 31L | 1L << 36L | 1L << 52L | 1L << 61L | 1L << 63L;
-        knightLookupTable[47] = 1L << 30L | 1L << 37L | 1L << 53L | 1L << 62L;
-
-        knightLookupTable[48] = 1L << 33L | 1L << 42L | 1L << 58L;
-        knightLookupTable[49] = 1L << 32L | 1L << 34L | 1L << 43L | 1L << 59L;
-        knightLookupTable[50] = 1L << 33L | 1L << 35L | 1L << 40L | 1L << 44L | 1L << 56L | 1L << 60L;
-        knightLookupTable[51] = 1L << 34L | 1L << 36L | 1L << 41L | 1L << 45L | 1L << 57L | 1L << 61L;
-        knightLookupTable[52] = 1L << 35L | 1L << 37L | 1L << 42L | 1L << 46L | 1L << 58L | 1L << 62L;
-        knightLookupTable[53] = 1L << 36L | 1L << 38L | 1L << 43L | 1L << 47L | 1L << 59L | 1L << 63L;
-        knightLookupTable[54] = 1L << 37L | 1L << 39L | 1L << 44L | 1L << 60L;
-        knightLookupTable[55] = 1L << 38L | 1L << 45L | 1L << 61L;
-
-        knightLookupTable[56] = 1L << 41L | 1L << 51L;
-        knightLookupTable[57] = 1L << 40L | 1L << 42L | 1L << 52L;
-        knightLookupTable[58] = 1L << 41L | 1L << 43L | 1L << 53L;
-        knightLookupTable[59] = 1L << 42L | 1L << 44L | 1L << 47L | 1L << 54L;
-        knightLookupTable[60] = 1L << 43L | 1L << 45L | 1L << 49L | 1L << 55L;
-        knightLookupTable[61] = 1L << 44L | 1L << 46L | 1L << 50L | 1L << 55L;
-        knightLookupTable[62] = 1L << 45L | 1L << 47L | 1L << 51L;
-        knightLookupTable[63] = 1L << 46L | 1L << 53L;
-
-        return ImmutableList.copyOf(Longs.asList(knightLookupTable));
+        return attacks;
     }
 
     public static void main(String[] args) {
-        BitBoardV2 v2 = standardBoard().calculateLegalMoves();
+        BitBoardV2 v2 = standardBoard();
         System.out.println(v2);
+        System.out.println(v2.calculateLegalMoves(Board.createStandardBoard(), v2.nextMoveMaker));
     }
-}
\ No newline at end of file
+}
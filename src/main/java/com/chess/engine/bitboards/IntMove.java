@@ -0,0 +1,125 @@
+package com.chess.engine.bitboards;
+
+import com.chess.engine.classic.board.Board;
+import com.chess.engine.classic.board.BoardUtils;
+import com.chess.engine.classic.board.Move;
+import com.chess.engine.classic.board.Move.PawnPromotion;
+import com.chess.engine.classic.pieces.Piece.PieceType;
+
+/**
+ * Moves packed into an <code>int</code>, used by the generators working on primitive buffers
+ * (see {@link MutableBoard#generateLegalMoves(int[])}).
+ * <pre>
+ *  bits  0- 5: from tile
+ *  bits  6-11: to tile
+ *  bits 12-15: moved piece, <code>side * 6 + pieceType.ordinal()</code> (side 0 is white)
+ *  bits 16-18: promoted piece type ordinal, 0 if the move is not a promotion
+ *  bit     19: capture
+ *  bit     20: en passant capture
+ *  bit     21: castle
+ *  bit     22: pawn jump
+ * </pre>
+ * The classic {@link Move} objects are only created back at the API boundaries with {@link #toMove(int, Board)}.
+ */
+public final class IntMove {
+
+    public static final int NONE = 0;
+
+    public static final int CAPTURE = 1 << 19;
+    public static final int EN_PASSANT = 1 << 20;
+    public static final int CASTLE = 1 << 21;
+    public static final int PAWN_JUMP = 1 << 22;
+
+    private static final int NO_PIECE = -1;
+
+    private IntMove() {
+    }
+
+    /**
+     * @param promotion the promoted piece type ordinal, -1 if the move is not a promotion
+     */
+    public static int encode(final int from, final int to, final int movedPiece, final int promotion, final int flags) {
+        return from | (to << 6) | (movedPiece << 12) | ((promotion == NO_PIECE ? 0 : promotion) << 16) | flags;
+    }
+
+    public static int encode(final Move move) {
+        final int side = move.getMovedPiece().getPieceAllegiance().isWhite() ? 0 : 1;
+        final int movedPiece = side * 6 + move.getMovedPiece().getPieceType().ordinal();
+        final int promotion = move instanceof PawnPromotion pawnPromotion ?
+                pawnPromotion.getPromotionPiece().getPieceType().ordinal() :
+                NO_PIECE;
+        int flags = move.isAttack() ? CAPTURE : 0;
+        if (move instanceof Move.PawnEnPassantAttack) flags |= EN_PASSANT;
+        if (move.isCastlingMove()) flags |= CASTLE;
+        if (move instanceof Move.PawnJump) flags |= PAWN_JUMP;
+        return encode(move.getCurrentCoordinate(), move.getDestinationCoordinate(), movedPiece, promotion, flags);
+    }
+
+    /**
+     * @return the legal classic move of the given board matching the encoded one
+     */
+    public static Move toMove(final int move, final Board board) {
+        final int from = from(move);
+        final int to = to(move);
+        final int promotion = promotion(move);
+        for (final Move legalMove : board.currentPlayer().generateLegalMoves()) {
+            if (legalMove.getCurrentCoordinate() != from || legalMove.getDestinationCoordinate() != to) continue;
+            final int legalPromotion = legalMove instanceof PawnPromotion pawnPromotion ?
+                    pawnPromotion.getPromotionPiece().getPieceType().ordinal() :
+                    NO_PIECE;
+            if (legalPromotion == promotion) return legalMove;
+        }
+        throw new RuntimeException(String.format("move:%s not legal on board:\n%s", toString(move), board));
+    }
+
+    public static int from(final int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(final int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    public static int movedPiece(final int move) {
+        return (move >>> 12) & 0xF;
+    }
+
+    public static PieceType movedPieceType(final int move) {
+        return PieceType.values()[movedPiece(move) % 6];
+    }
+
+    /**
+     * @return the promoted piece type ordinal, -1 if the move is not a promotion
+     */
+    public static int promotion(final int move) {
+        final int promotion = (move >>> 16) & 0x7;
+        return promotion == 0 ? NO_PIECE : promotion;
+    }
+
+    public static boolean isCapture(final int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    public static boolean isEnPassant(final int move) {
+        return (move & EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastle(final int move) {
+        return (move & CASTLE) != 0;
+    }
+
+    public static boolean isPawnJump(final int move) {
+        return (move & PAWN_JUMP) != 0;
+    }
+
+    /**
+     * @return the move in coordinate notation: e2e4, e7e8q
+     */
+    public static String toString(final int move) {
+        final String ret = BoardUtils.INSTANCE.getPositionAtCoordinate(from(move)) +
+                BoardUtils.INSTANCE.getPositionAtCoordinate(to(move));
+        final int promotion = promotion(move);
+        return promotion == NO_PIECE ? ret : ret + PieceType.values()[promotion].toString().toLowerCase();
+    }
+
+}
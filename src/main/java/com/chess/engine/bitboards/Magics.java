@@ -0,0 +1,144 @@
+package com.chess.engine.bitboards;
+
+import java.util.Random;
+
+/**
+ * Magic bitboard tables for sliding pieces, using the classic tile numbering (0 = a8, 63 = h1).
+ * <p>
+ * The magic multipliers are searched once when the class is loaded, with a fixed seed so the
+ * tables are identical from one run to the next.
+ */
+public final class Magics {
+
+    private static final int[][] ROOK_DIRECTIONS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+    private static final long SEED = 0x5EED_C4E5_5L;
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final long[][] ROOK_ATTACKS = new long[64][];
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final long[][] BISHOP_ATTACKS = new long[64][];
+
+    static {
+        final Random random = new Random(SEED);
+        for (int square = 0; square < 64; square++) {
+            initSquare(square, ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_ATTACKS, random);
+            initSquare(square, BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_ATTACKS, random);
+        }
+    }
+
+    private Magics() {
+    }
+
+    public static long rookAttacks(final int square, final long occupied) {
+        return ROOK_ATTACKS[square][(int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+    }
+
+    public static long bishopAttacks(final int square, final long occupied) {
+        return BISHOP_ATTACKS[square][(int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+    }
+
+    public static long queenAttacks(final int square, final long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * Ray-walking reference implementation, used to build the tables and by the tests to check them.
+     */
+    static long slidingAttacks(final int square, final long occupied, final int[][] directions) {
+        long attacks = 0L;
+        final int row = square >>> 3;
+        final int col = square & 7;
+        for (final int[] direction : directions) {
+            int r = row + direction[0];
+            int c = col + direction[1];
+            while (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                final long bit = 1L << (r * 8 + c);
+                attacks |= bit;
+                if ((occupied & bit) != 0L) {
+                    break;
+                }
+                r += direction[0];
+                c += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    static long rookAttacksSlow(final int square, final long occupied) {
+        return slidingAttacks(square, occupied, ROOK_DIRECTIONS);
+    }
+
+    static long bishopAttacksSlow(final int square, final long occupied) {
+        return slidingAttacks(square, occupied, BISHOP_DIRECTIONS);
+    }
+
+    private static long relevantOccupancy(final int square, final int[][] directions) {
+        long mask = 0L;
+        final int row = square >>> 3;
+        final int col = square & 7;
+        for (final int[] direction : directions) {
+            int r = row + direction[0];
+            int c = col + direction[1];
+            // the last square of a ray never blocks anything behind it, so it is left out of the mask
+            while (r + direction[0] >= 0 && r + direction[0] < 8 && c + direction[1] >= 0 && c + direction[1] < 8) {
+                mask |= 1L << (r * 8 + c);
+                r += direction[0];
+                c += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    private static void initSquare(final int square,
+                                   final int[][] directions,
+                                   final long[] masks,
+                                   final long[] magics,
+                                   final int[] shifts,
+                                   final long[][] attacks,
+                                   final Random random) {
+        final long mask = relevantOccupancy(square, directions);
+        final int bits = Long.bitCount(mask);
+        final int size = 1 << bits;
+        final long[] occupancies = new long[size];
+        final long[] references = new long[size];
+        long subset = 0L;
+        for (int i = 0; i < size; i++) {
+            occupancies[i] = subset;
+            references[i] = slidingAttacks(square, subset, directions);
+            subset = (subset - mask) & mask;
+        }
+        final long[] table = new long[size];
+        final int[] epoch = new int[size];
+        final int shift = 64 - bits;
+        for (int attempt = 1; ; attempt++) {
+            final long magic = random.nextLong() & random.nextLong() & random.nextLong();
+            if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) {
+                continue;
+            }
+            boolean collision = false;
+            for (int i = 0; i < size && !collision; i++) {
+                final int index = (int) ((occupancies[i] * magic) >>> shift);
+                if (epoch[index] != attempt) {
+                    epoch[index] = attempt;
+                    table[index] = references[i];
+                } else if (table[index] != references[i]) {
+                    collision = true;
+                }
+            }
+            if (!collision) {
+                masks[square] = mask;
+                magics[square] = magic;
+                shifts[square] = shift;
+                attacks[square] = table;
+                return;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.chess.engine.bitboards;
+
+import java.util.ArrayDeque;
+
+/**
+ * Per thread pool of <code>int[]</code> move buffers for {@link MutableBoard#generateLegalMoves(int[])}.
+ * <p>
+ * A recursive search acquires one buffer per ply and gives it back when the ply is done, so after the first
+ * descent no buffer is allocated anymore.
+ */
+public final class MoveBufferPool {
+
+    /**
+     * upper bound of the number of legal moves in a chess position (218 is the known maximum)
+     */
+    public static final int MAX_MOVES = 256;
+
+    private static final ThreadLocal<ArrayDeque<int[]>> BUFFERS = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private MoveBufferPool() {
+    }
+
+    public static int[] acquire() {
+        final int[] buffer = BUFFERS.get().pollLast();
+        return buffer == null ? new int[MAX_MOVES] : buffer;
+    }
+
+    /**
+     * Give back a buffer to the pool of the current thread
+     */
+    public static void release(final int[] buffer) {
+        BUFFERS.get().addLast(buffer);
+    }
+
+}
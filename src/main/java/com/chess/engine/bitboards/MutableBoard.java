@@ -0,0 +1,468 @@
+package com.chess.engine.bitboards;
+
+import com.chess.engine.classic.Alliance;
+import com.chess.engine.classic.board.Board;
+import com.chess.engine.classic.board.Move;
+import com.chess.engine.classic.board.Move.PawnPromotion;
+import com.chess.engine.classic.pieces.Piece.PieceType;
+
+import java.util.Arrays;
+
+import static com.chess.engine.bitboards.BitBoardV2.*;
+
+/**
+ * Mutable bitboard position with {@link #makeMove(Move)} / {@link #unmakeMove()}, meant to be reused by a MCTS
+ * walker along its whole descent.
+ * <p>
+ * Everything needed to take a move back is pushed on an undo stack made of primitive arrays, so playing and
+ * undoing moves does not allocate once the stack is large enough. The rules are the ones of {@link BitBoardV2}
+ * and of the classic players (same castling and en passant conventions).
+ */
+public final class MutableBoard {
+
+    private static final int NB_PIECE_TYPES = 6;
+    private static final int NO_PIECE = -1;
+    private static final int NO_SQUARE = -1;
+    private static final int INITIAL_STACK_SIZE = 256;
+
+    private static final int PAWN = PieceType.PAWN.ordinal();
+    private static final int KNIGHT = PieceType.KNIGHT.ordinal();
+    private static final int BISHOP = PieceType.BISHOP.ordinal();
+    private static final int ROOK = PieceType.ROOK.ordinal();
+    private static final int QUEEN = PieceType.QUEEN.ordinal();
+    private static final int KING = PieceType.KING.ordinal();
+
+    /**
+     * piece bitboards, indexed by <code>side * 6 + pieceType.ordinal()</code> (side 0 is white)
+     */
+    private final long[] pieces = new long[2 * NB_PIECE_TYPES];
+    private final long[] sidePieces = new long[2];
+    private final int[] mailbox = new int[64];
+    private int side;
+    private int castlingRights;
+    private int enPassantSquare;
+    private int halfMoveClock;
+    private long zobristKey;
+
+    private int ply = 0;
+    private int[] undoFrom = new int[INITIAL_STACK_SIZE];
+    private int[] undoTo = new int[INITIAL_STACK_SIZE];
+    private int[] undoMoved = new int[INITIAL_STACK_SIZE];
+    private int[] undoPromoted = new int[INITIAL_STACK_SIZE];
+    private int[] undoCaptured = new int[INITIAL_STACK_SIZE];
+    private int[] undoCaptureSquare = new int[INITIAL_STACK_SIZE];
+    private int[] undoCastlingRights = new int[INITIAL_STACK_SIZE];
+    private int[] undoEnPassantSquare = new int[INITIAL_STACK_SIZE];
+    private int[] undoHalfMoveClock = new int[INITIAL_STACK_SIZE];
+    private long[] undoZobristKey = new long[INITIAL_STACK_SIZE];
+
+    public MutableBoard(final BitBoardV2 bitBoard) {
+        setPosition(bitBoard);
+    }
+
+    public static MutableBoard fromBoard(final Board board) {
+        return new MutableBoard(board.getBitBoard());
+    }
+
+    /**
+     * Reset this position to the given one and clear the undo stack, keeping the already allocated stack.
+     */
+    public void setPosition(final BitBoardV2 bitBoard) {
+        Arrays.fill(this.mailbox, NO_PIECE);
+        for (final Alliance alliance : Alliance.values()) {
+            for (final PieceType pieceType : PieceType.values()) {
+                final int piece = pieceIndex(sideOf(alliance), pieceType.ordinal());
+                this.pieces[piece] = bitBoard.getPieces(alliance, pieceType);
+                long bits = this.pieces[piece];
+                while (bits != 0L) {
+                    this.mailbox[Long.numberOfTrailingZeros(bits)] = piece;
+                    bits &= bits - 1;
+                }
+            }
+        }
+        this.sidePieces[0] = bitBoard.getWhitePieces();
+        this.sidePieces[1] = bitBoard.getBlackPieces();
+        this.side = sideOf(bitBoard.getNextMoveMaker());
+        this.castlingRights = bitBoard.getCastlingRights();
+        this.enPassantSquare = bitBoard.getEnPassantSquare();
+        this.halfMoveClock = 0;
+        this.zobristKey = Zobrist.calculateKey(bitBoard);
+        this.ply = 0;
+    }
+
+    public Alliance getNextMoveMaker() {
+        return this.side == 0 ? Alliance.WHITE : Alliance.BLACK;
+    }
+
+    public long getPieces(final Alliance alliance, final PieceType pieceType) {
+        return this.pieces[pieceIndex(sideOf(alliance), pieceType.ordinal())];
+    }
+
+    public long getPieces(final Alliance alliance) {
+        return this.sidePieces[sideOf(alliance)];
+    }
+
+    public long getAllPieces() {
+        return this.sidePieces[0] | this.sidePieces[1];
+    }
+
+    public int getCastlingRights() {
+        return this.castlingRights;
+    }
+
+    /**
+     * @return the square of the pawn that has just jumped, -1 if none (same convention as {@link BitBoardV2})
+     */
+    public int getEnPassantSquare() {
+        return this.enPassantSquare;
+    }
+
+    /**
+     * @return number of moves played since the last capture or pawn move
+     */
+    public int getHalfMoveClock() {
+        return this.halfMoveClock;
+    }
+
+    /**
+     * @return the Zobrist key of the position, same value as {@link Board#getZobristKey()}
+     */
+    public long getZobristKey() {
+        return this.zobristKey;
+    }
+
+    /**
+     * @return number of moves that can be taken back with {@link #unmakeMove()}
+     */
+    public int getPly() {
+        return this.ply;
+    }
+
+    /**
+     * Play a classic move on this position. The move is expected to be pseudo-legal for the side to move.
+     */
+    public void makeMove(final Move move) {
+        final int promotion = move instanceof PawnPromotion pawnPromotion ?
+                pawnPromotion.getPromotionPiece().getPieceType().ordinal() :
+                NO_PIECE;
+        makeMove(move.getCurrentCoordinate(), move.getDestinationCoordinate(), promotion);
+    }
+
+    /**
+     * Play the move from -> to; captures, en passant and castling are deduced from the position.
+     *
+     * @param promotion the promoted piece type ordinal, -1 if the move is not a promotion
+     */
+    public void makeMove(final int from, final int to, final int promotion) {
+        final int moved = this.mailbox[from];
+        if (moved == NO_PIECE || moved / NB_PIECE_TYPES != this.side) {
+            throw new RuntimeException(String.format("no piece of the side to move on tile:%d\n%s", from, this));
+        }
+        final int movedType = moved % NB_PIECE_TYPES;
+        int captureSquare = this.mailbox[to] == NO_PIECE ? NO_SQUARE : to;
+        if (movedType == PAWN && captureSquare == NO_SQUARE && (from & 7) != (to & 7)) {
+            captureSquare = this.enPassantSquare;
+        }
+        final int captured = captureSquare == NO_SQUARE ? NO_PIECE : this.mailbox[captureSquare];
+        if (this.ply == this.undoFrom.length) {
+            growStack();
+        }
+        this.undoFrom[ply] = from;
+        this.undoTo[ply] = to;
+        this.undoMoved[ply] = moved;
+        this.undoPromoted[ply] = promotion;
+        this.undoCaptured[ply] = captured;
+        this.undoCaptureSquare[ply] = captureSquare;
+        this.undoCastlingRights[ply] = this.castlingRights;
+        this.undoEnPassantSquare[ply] = this.enPassantSquare;
+        this.undoHalfMoveClock[ply] = this.halfMoveClock;
+        this.undoZobristKey[ply] = this.zobristKey;
+        this.ply++;
+
+        if (captured != NO_PIECE) {
+            removePiece(captured, captureSquare);
+        }
+        removePiece(moved, from);
+        addPiece(promotion == NO_PIECE ? moved : pieceIndex(this.side, promotion), to);
+        if (movedType == KING && Math.abs(to - from) == 2) {
+            final int rook = pieceIndex(this.side, ROOK);
+            removePiece(rook, to > from ? to + 1 : to - 2);
+            addPiece(rook, to > from ? to - 1 : to + 1);
+        }
+        this.zobristKey ^= Zobrist.castlingKey(this.castlingRights) ^ Zobrist.enPassant(this.enPassantSquare) ^ Zobrist.blackToMove();
+        this.castlingRights &= CASTLING_MASKS[from] & CASTLING_MASKS[to];
+        this.enPassantSquare = movedType == PAWN && Math.abs(to - from) == 16 ? to : NO_SQUARE;
+        this.zobristKey ^= Zobrist.castlingKey(this.castlingRights) ^ Zobrist.enPassant(this.enPassantSquare);
+        this.halfMoveClock = movedType == PAWN || captured != NO_PIECE ? 0 : this.halfMoveClock + 1;
+        this.side ^= 1;
+    }
+
+    /**
+     * Take back the last move played with {@link #makeMove}.
+     */
+    public void unmakeMove() {
+        if (this.ply == 0) {
+            throw new RuntimeException("no move to undo");
+        }
+        this.ply--;
+        this.side ^= 1;
+        final int from = this.undoFrom[ply];
+        final int to = this.undoTo[ply];
+        final int moved = this.undoMoved[ply];
+        final int promotion = this.undoPromoted[ply];
+        final int captured = this.undoCaptured[ply];
+        if (moved % NB_PIECE_TYPES == KING && Math.abs(to - from) == 2) {
+            final int rook = pieceIndex(this.side, ROOK);
+            removePiece(rook, to > from ? to - 1 : to + 1);
+            addPiece(rook, to > from ? to + 1 : to - 2);
+        }
+        removePiece(promotion == NO_PIECE ? moved : pieceIndex(this.side, promotion), to);
+        addPiece(moved, from);
+        if (captured != NO_PIECE) {
+            addPiece(captured, this.undoCaptureSquare[ply]);
+        }
+        this.castlingRights = this.undoCastlingRights[ply];
+        this.enPassantSquare = this.undoEnPassantSquare[ply];
+        this.halfMoveClock = this.undoHalfMoveClock[ply];
+        this.zobristKey = this.undoZobristKey[ply];
+    }
+
+    public boolean isInCheck() {
+        final long king = this.pieces[pieceIndex(this.side, KING)];
+        return king != 0L && isAttacked(Long.numberOfTrailingZeros(king), this.side ^ 1, getAllPieces(), 0L);
+    }
+
+    /**
+     * @return true if the side that has just moved left its own king in check
+     */
+    public boolean isOpponentInCheck() {
+        final long king = this.pieces[pieceIndex(this.side ^ 1, KING)];
+        return king != 0L && isAttacked(Long.numberOfTrailingZeros(king), this.side, getAllPieces(), 0L);
+    }
+
+    public boolean isCheckMate() {
+        return isInCheck() && !hasLegalMoves();
+    }
+
+    public boolean isStaleMate() {
+        return !isInCheck() && !hasLegalMoves();
+    }
+
+    /**
+     * Look for at least one legal move of the side to move, without generating any move list.
+     * <p>
+     * Castles are skipped: when a castle is legal, the king step toward the rook is legal too.
+     */
+    public boolean hasLegalMoves() {
+        final long own = this.sidePieces[this.side];
+        final long opponent = this.sidePieces[this.side ^ 1];
+        final long occupied = own | opponent;
+        long bits = own;
+        while (bits != 0L) {
+            final int from = Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            final int type = this.mailbox[from] % NB_PIECE_TYPES;
+            long targets = targets(from, type, opponent, occupied) & ~own;
+            while (targets != 0L) {
+                final int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                if (isLegal(from, to, type)) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fill the given buffer with the legal moves of the side to move, encoded with {@link IntMove}.
+     * The buffer must hold at least {@link MoveBufferPool#MAX_MOVES} moves, see {@link MoveBufferPool#acquire()}.
+     *
+     * @return the number of moves written
+     */
+    public int generateLegalMoves(final int[] moves) {
+        final long own = this.sidePieces[this.side];
+        final long opponent = this.sidePieces[this.side ^ 1];
+        final long occupied = own | opponent;
+        int nbMoves = 0;
+        long bits = own;
+        while (bits != 0L) {
+            final int from = Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            final int moved = this.mailbox[from];
+            final int type = moved % NB_PIECE_TYPES;
+            long targets = targets(from, type, opponent, occupied) & ~own;
+            while (targets != 0L) {
+                final int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                if (!isLegal(from, to, type)) continue;
+                int flags = this.mailbox[to] == NO_PIECE ? 0 : IntMove.CAPTURE;
+                if (type == PAWN) {
+                    if (flags == 0 && (from & 7) != (to & 7)) flags = IntMove.CAPTURE | IntMove.EN_PASSANT;
+                    if (Math.abs(to - from) == 16) flags |= IntMove.PAWN_JUMP;
+                    if (to < 8 || to >= 56) {
+                        moves[nbMoves++] = IntMove.encode(from, to, moved, QUEEN, flags);
+                        moves[nbMoves++] = IntMove.encode(from, to, moved, ROOK, flags);
+                        moves[nbMoves++] = IntMove.encode(from, to, moved, BISHOP, flags);
+                        moves[nbMoves++] = IntMove.encode(from, to, moved, KNIGHT, flags);
+                        continue;
+                    }
+                }
+                moves[nbMoves++] = IntMove.encode(from, to, moved, NO_PIECE, flags);
+            }
+        }
+        return addCastles(moves, nbMoves, occupied);
+    }
+
+    /**
+     * Play a move encoded with {@link IntMove}
+     */
+    public void makeMove(final int move) {
+        makeMove(IntMove.from(move), IntMove.to(move), IntMove.promotion(move));
+    }
+
+    /**
+     * Same material rules as {@link com.aquila.chess.AbstractGame#calculateStatus}: no pawn, and each side has at
+     * most a lone king, a king with one minor piece or a king with two knights.
+     */
+    public boolean isInsufficientMaterial() {
+        if ((this.pieces[pieceIndex(0, PAWN)] | this.pieces[pieceIndex(1, PAWN)]) != 0L) return false;
+        return isWeakSide(0) && isWeakSide(1);
+    }
+
+    private boolean isWeakSide(final int side) {
+        final int nbPieces = Long.bitCount(this.sidePieces[side]);
+        final int nbKnights = Long.bitCount(this.pieces[pieceIndex(side, KNIGHT)]);
+        final int nbBishops = Long.bitCount(this.pieces[pieceIndex(side, BISHOP)]);
+        return nbPieces == 1
+                || (nbPieces == 3 && nbKnights == 2)
+                || (nbPieces == 2 && (nbKnights == 1 || nbBishops == 1));
+    }
+
+    private long targets(final int from, final int type, final long opponent, final long occupied) {
+        if (type == PAWN) return pawnTargets(from, opponent, occupied);
+        if (type == KNIGHT) return KNIGHT_ATTACKS[from];
+        if (type == BISHOP) return Magics.bishopAttacks(from, occupied);
+        if (type == ROOK) return Magics.rookAttacks(from, occupied);
+        if (type == QUEEN) return Magics.queenAttacks(from, occupied);
+        return KING_ATTACKS[from];
+    }
+
+    private int addCastles(final int[] moves, int nbMoves, final long occupied) {
+        final boolean white = this.side == 0;
+        final int kingSide = white ? WHITE_KING_SIDE : BLACK_KING_SIDE;
+        final int queenSide = white ? WHITE_QUEEN_SIDE : BLACK_QUEEN_SIDE;
+        final int king = pieceIndex(this.side, KING);
+        final int from = white ? 60 : 4;
+        if ((this.castlingRights & (kingSide | queenSide)) == 0 || (this.pieces[king] & (1L << from)) == 0L || isInCheck())
+            return nbMoves;
+        final long rooks = this.pieces[pieceIndex(this.side, ROOK)];
+        final int opponent = this.side ^ 1;
+        if ((this.castlingRights & kingSide) != 0 && (rooks & (1L << (from + 3))) != 0L
+                && (occupied & (3L << (from + 1))) == 0L
+                && !isAttacked(from + 1, opponent, occupied, 0L) && !isAttacked(from + 2, opponent, occupied, 0L)) {
+            moves[nbMoves++] = IntMove.encode(from, from + 2, king, NO_PIECE, IntMove.CASTLE);
+        }
+        if ((this.castlingRights & queenSide) != 0 && (rooks & (1L << (from - 4))) != 0L
+                && (occupied & (7L << (from - 3))) == 0L
+                && !isAttacked(from - 1, opponent, occupied, 0L) && !isAttacked(from - 2, opponent, occupied, 0L)) {
+            moves[nbMoves++] = IntMove.encode(from, from - 2, king, NO_PIECE, IntMove.CASTLE);
+        }
+        return nbMoves;
+    }
+
+    private long pawnTargets(final int from, final long opponent, final long occupied) {
+        final boolean white = this.side == 0;
+        final int push = from + (white ? -8 : 8);
+        long targets = (white ? WHITE_PAWN_ATTACKS : BLACK_PAWN_ATTACKS)[from] & opponent;
+        if (push >= 0 && push < 64 && (occupied & (1L << push)) == 0L) {
+            targets |= 1L << push;
+            final int jump = push + (white ? -8 : 8);
+            if (((white ? RANK_2 : RANK_7) & (1L << from)) != 0L && (occupied & (1L << jump)) == 0L) {
+                targets |= 1L << jump;
+            }
+        }
+        if (this.enPassantSquare != NO_SQUARE && (this.enPassantSquare >>> 3) == (from >>> 3)
+                && Math.abs((this.enPassantSquare & 7) - (from & 7)) == 1) {
+            targets |= 1L << (this.enPassantSquare + (white ? -8 : 8));
+        }
+        return targets;
+    }
+
+    private boolean isLegal(final int from, final int to, final int movedType) {
+        int captureSquare = this.mailbox[to] == NO_PIECE ? NO_SQUARE : to;
+        if (movedType == PAWN && captureSquare == NO_SQUARE && (from & 7) != (to & 7)) {
+            captureSquare = this.enPassantSquare;
+        }
+        final long captured = captureSquare == NO_SQUARE ? 0L : 1L << captureSquare;
+        final long occupied = (getAllPieces() & ~(1L << from) & ~captured) | (1L << to);
+        final long king = this.pieces[pieceIndex(this.side, KING)];
+        if (king == 0L) return true;
+        final int kingSquare = movedType == KING ? to : Long.numberOfTrailingZeros(king);
+        return !isAttacked(kingSquare, this.side ^ 1, occupied, captured);
+    }
+
+    private boolean isAttacked(final int square, final int attacker, final long occupied, final long excluded) {
+        final long keep = ~excluded;
+        final int base = attacker * NB_PIECE_TYPES;
+        final long[] pawnAttacks = attacker == 0 ? BLACK_PAWN_ATTACKS : WHITE_PAWN_ATTACKS;
+        final long queens = this.pieces[base + QUEEN];
+        return (pawnAttacks[square] & this.pieces[base + PAWN] & keep) != 0L
+                || (KNIGHT_ATTACKS[square] & this.pieces[base + KNIGHT] & keep) != 0L
+                || (KING_ATTACKS[square] & this.pieces[base + KING]) != 0L
+                || (Magics.bishopAttacks(square, occupied) & (this.pieces[base + BISHOP] | queens) & keep) != 0L
+                || (Magics.rookAttacks(square, occupied) & (this.pieces[base + ROOK] | queens) & keep) != 0L;
+    }
+
+    private void addPiece(final int piece, final int square) {
+        final long bit = 1L << square;
+        this.pieces[piece] |= bit;
+        this.sidePieces[piece / NB_PIECE_TYPES] |= bit;
+        this.mailbox[square] = piece;
+        this.zobristKey ^= Zobrist.pieceKey(piece, square);
+    }
+
+    private void removePiece(final int piece, final int square) {
+        final long bit = ~(1L << square);
+        this.pieces[piece] &= bit;
+        this.sidePieces[piece / NB_PIECE_TYPES] &= bit;
+        this.mailbox[square] = NO_PIECE;
+        this.zobristKey ^= Zobrist.pieceKey(piece, square);
+    }
+
+    private void growStack() {
+        final int size = this.undoFrom.length * 2;
+        this.undoFrom = Arrays.copyOf(this.undoFrom, size);
+        this.undoTo = Arrays.copyOf(this.undoTo, size);
+        this.undoMoved = Arrays.copyOf(this.undoMoved, size);
+        this.undoPromoted = Arrays.copyOf(this.undoPromoted, size);
+        this.undoCaptured = Arrays.copyOf(this.undoCaptured, size);
+        this.undoCaptureSquare = Arrays.copyOf(this.undoCaptureSquare, size);
+        this.undoCastlingRights = Arrays.copyOf(this.undoCastlingRights, size);
+        this.undoEnPassantSquare = Arrays.copyOf(this.undoEnPassantSquare, size);
+        this.undoHalfMoveClock = Arrays.copyOf(this.undoHalfMoveClock, size);
+        this.undoZobristKey = Arrays.copyOf(this.undoZobristKey, size);
+    }
+
+    private static int pieceIndex(final int side, final int pieceType) {
+        return side * NB_PIECE_TYPES + pieceType;
+    }
+
+    private static int sideOf(final Alliance alliance) {
+        return alliance.isWhite() ? 0 : 1;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        for (int square = 0; square < 64; square++) {
+            final int piece = this.mailbox[square];
+            if (piece == NO_PIECE) {
+                builder.append('-');
+            } else {
+                final char c = PieceType.values()[piece % NB_PIECE_TYPES].toString().charAt(0);
+                builder.append(piece < NB_PIECE_TYPES ? c : Character.toLowerCase(c));
+            }
+            builder.append((square & 7) == 7 ? '\n' : ' ');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,185 @@
+package com.chess.engine.bitboards;
+
+import com.chess.engine.classic.Alliance;
+import com.chess.engine.classic.board.Move;
+import com.chess.engine.classic.board.Move.PawnPromotion;
+import com.chess.engine.classic.pieces.Piece.PieceType;
+
+import java.util.Random;
+
+import static com.chess.engine.bitboards.BitBoardV2.CASTLING_MASKS;
+
+/**
+ * 64-bit Zobrist keys of the positions: pieces, side to move, castling rights and en passant square.
+ * <p>
+ * The random numbers are drawn with a fixed seed, so the keys are stable from one run to the next.
+ */
+public final class Zobrist {
+
+    private static final long SEED = 0x2065_1B2A_7L;
+    private static final int NO_PIECE = -1;
+
+    /**
+     * indexed by <code>side * 6 + pieceType.ordinal()</code> (side 0 is white), then by tile
+     */
+    private static final long[][] PIECES = new long[12][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT = new long[64];
+    private static final long BLACK_TO_MOVE;
+    private static final long INIT_MOVE;
+
+    static {
+        final Random random = new Random(SEED);
+        for (final long[] squares : PIECES) {
+            for (int square = 0; square < 64; square++) {
+                squares[square] = random.nextLong();
+            }
+        }
+        for (int rights = 0; rights < CASTLING.length; rights++) {
+            CASTLING[rights] = rights == 0 ? 0L : random.nextLong();
+        }
+        for (int square = 0; square < 64; square++) {
+            EN_PASSANT[square] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+        INIT_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Full computation of the key, the boards reached by a move get theirs with {@link #updateKey}
+     */
+    public static long calculateKey(final BitBoardV2 bitBoard) {
+        long key = calculateKey(bitBoard, Alliance.WHITE) ^ calculateKey(bitBoard, Alliance.BLACK);
+        key ^= CASTLING[bitBoard.getCastlingRights()];
+        key ^= enPassant(bitBoard.getEnPassantSquare());
+        return bitBoard.getNextMoveMaker().isWhite() ? key : key ^ BLACK_TO_MOVE;
+    }
+
+    /**
+     * @return the key of the pieces of the given alliance only
+     */
+    public static long calculateKey(final BitBoardV2 bitBoard, final Alliance alliance) {
+        long key = 0L;
+        for (final PieceType pieceType : PieceType.values()) {
+            final long[] squares = PIECES[pieceIndex(alliance, pieceType)];
+            long pieces = bitBoard.getPieces(alliance, pieceType);
+            while (pieces != 0L) {
+                key ^= squares[Long.numberOfTrailingZeros(pieces)];
+                pieces &= pieces - 1;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Key of the position reached by the move from -> to, updated from the key of the source position.
+     * Captures, en passant and castles are deduced from the source bitboard.
+     *
+     * @param promotion the promoted piece type ordinal, -1 if the move is not a promotion
+     */
+    public static long updateKey(final long key,
+                                 final BitBoardV2 bitBoard,
+                                 final int from,
+                                 final int to,
+                                 final int promotion) {
+        final int moved = bitBoard.getPieceIndex(from);
+        final int side = moved / 6;
+        final int movedType = moved % 6;
+        int captureSquare = bitBoard.isOccupied(to) ? to : -1;
+        if (movedType == PieceType.PAWN.ordinal() && captureSquare < 0 && (from & 7) != (to & 7)) {
+            captureSquare = bitBoard.getEnPassantSquare();
+        }
+        long ret = key ^ BLACK_TO_MOVE;
+        if (captureSquare >= 0) {
+            ret ^= PIECES[bitBoard.getPieceIndex(captureSquare)][captureSquare];
+        }
+        ret ^= PIECES[moved][from];
+        ret ^= PIECES[promotion == NO_PIECE ? moved : side * 6 + promotion][to];
+        if (movedType == PieceType.KING.ordinal() && Math.abs(to - from) == 2) {
+            final int rook = side * 6 + PieceType.ROOK.ordinal();
+            ret ^= PIECES[rook][to > from ? to + 1 : to - 2] ^ PIECES[rook][to > from ? to - 1 : to + 1];
+        }
+        final int castlingRights = bitBoard.getCastlingRights();
+        ret ^= CASTLING[castlingRights] ^ CASTLING[castlingRights & CASTLING_MASKS[from] & CASTLING_MASKS[to]];
+        ret ^= enPassant(bitBoard.getEnPassantSquare());
+        ret ^= enPassant(movedType == PieceType.PAWN.ordinal() && Math.abs(to - from) == 16 ? to : -1);
+        return ret;
+    }
+
+    /**
+     * Key of the position reached by a classic move, without executing it
+     */
+    public static long updateKey(final long key, final BitBoardV2 bitBoard, final Move move) {
+        final int promotion = move instanceof PawnPromotion pawnPromotion ?
+                pawnPromotion.getPromotionPiece().getPieceType().ordinal() :
+                NO_PIECE;
+        return updateKey(key, bitBoard, move.getCurrentCoordinate(), move.getDestinationCoordinate(), promotion);
+    }
+
+    /**
+     * @return the key of the pieces of the moving alliance once the given move is played, without executing it
+     */
+    public static long calculatePiecesKey(final Move move) {
+        final BitBoardV2 bitBoard = move.getBoard().getBitBoard();
+        final int from = move.getCurrentCoordinate();
+        final int to = move.getDestinationCoordinate();
+        final int moved = bitBoard.getPieceIndex(from);
+        final int side = moved / 6;
+        long key = calculateKey(bitBoard, move.getAllegiance()) ^ PIECES[moved][from];
+        key ^= move instanceof PawnPromotion pawnPromotion ?
+                PIECES[side * 6 + pawnPromotion.getPromotionPiece().getPieceType().ordinal()][to] :
+                PIECES[moved][to];
+        if (move.isCastlingMove()) {
+            final int rook = side * 6 + PieceType.ROOK.ordinal();
+            key ^= PIECES[rook][to > from ? to + 1 : to - 2] ^ PIECES[rook][to > from ? to - 1 : to + 1];
+        }
+        return key;
+    }
+
+    /**
+     * @return a key identifying the move and the position it is played from
+     */
+    public static long moveKey(final Move move) {
+        if (move.isInitMove()) {
+            return move.getAllegiance().isWhite() ? INIT_MOVE : INIT_MOVE ^ BLACK_TO_MOVE;
+        }
+        final int promotion = move instanceof PawnPromotion pawnPromotion ?
+                pawnPromotion.getPromotionPiece().getPieceType().ordinal() + 1 :
+                0;
+        return mix(move.getBoard().getZobristKey(),
+                move.getCurrentCoordinate() | (move.getDestinationCoordinate() << 6) | (promotion << 12));
+    }
+
+    /**
+     * Combine a key with another value (splitmix64 finalizer), used to chain keys where the order matters
+     */
+    public static long mix(final long key, final long value) {
+        long z = key * 0x9E3779B97F4A7C15L + value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    static long pieceKey(final int piece, final int square) {
+        return PIECES[piece][square];
+    }
+
+    static long castlingKey(final int castlingRights) {
+        return CASTLING[castlingRights];
+    }
+
+    static long enPassant(final int square) {
+        return square < 0 ? 0L : EN_PASSANT[square];
+    }
+
+    static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+
+    private static int pieceIndex(final Alliance alliance, final PieceType pieceType) {
+        return (alliance.isWhite() ? 0 : 6) + pieceType.ordinal();
+    }
+}
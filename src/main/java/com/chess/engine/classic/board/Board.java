@@ -1,5 +1,7 @@
 package com.chess.engine.classic.board;
 
+import com.chess.engine.bitboards.BitBoardV2;
+import com.chess.engine.bitboards.Zobrist;
 import com.chess.engine.classic.Alliance;
 import com.chess.engine.classic.board.Move.MoveFactory;
 import com.chess.engine.classic.pieces.*;
@@ -18,14 +20,23 @@ import java.util.stream.Stream;
 public final class Board {
 
     public static final int NB_COL = 8;
-    private final Map<Integer, Piece> boardConfig;
-    private final Collection<Piece> whitePieces;
-    private final Collection<Piece> blackPieces;
+    /**
+     * piece of each tile, the occupancy of the tiles comes from {@link #bitBoard}
+     */
+    private final Piece[] pieces;
+    private final BitBoardV2 bitBoard;
+    private final long zobristKey;
     private final WhitePlayer whitePlayer;
     private final BlackPlayer blackPlayer;
     private final Player currentPlayer;
     private final Pawn enPassantPawn;
     private final Move transitionMove;
+    /**
+     * pieces of each side and of the whole board, ordered by tile, built from the bitboards on first access
+     */
+    private volatile List<Piece> whitePieces;
+    private volatile List<Piece> blackPieces;
+    private volatile List<Piece> allPieces;
 
     @Getter
     @Setter
@@ -39,14 +50,16 @@ public final class Board {
 
     private Board(final Builder builder, boolean checkBoard) {
         this.checkBoard = checkBoard;
-        this.boardConfig = Collections.unmodifiableMap(builder.boardConfig);
-        this.whitePieces = calculateActivePieces(builder, Alliance.WHITE);
-        this.blackPieces = calculateActivePieces(builder, Alliance.BLACK);
+        this.pieces = builder.boardConfig.clone();
         this.enPassantPawn = builder.enPassantPawn;
-        final List<Move> whiteStandardMoves = calculateLegalMoves(this.whitePieces);
-        final List<Move> blackStandardMoves = calculateLegalMoves(this.blackPieces);
-        this.whitePlayer = new WhitePlayer(this, whiteStandardMoves, blackStandardMoves);
-        this.blackPlayer = new BlackPlayer(this, whiteStandardMoves, blackStandardMoves);
+        this.bitBoard = BitBoardV2.fromPieces(this.pieces, builder.nextMoveMaker, this.enPassantPawn);
+        // the boards built by a move get their key incrementally from the source board
+        this.zobristKey = builder.transitionMove != null && builder.transitionMove.getBoard() != null ?
+                builder.transitionMove.calculateZobristKey() :
+                Zobrist.calculateKey(this.bitBoard);
+        // legal moves, check status and castles are computed by the players on first access
+        this.whitePlayer = new WhitePlayer(this);
+        this.blackPlayer = new BlackPlayer(this);
         this.currentPlayer = builder.nextMoveMaker.choosePlayerByAlliance(this.whitePlayer, this.blackPlayer);
         this.transitionMove = builder.transitionMove != null ? builder.transitionMove : MoveFactory.getNullMove();
     }
@@ -54,7 +67,7 @@ public final class Board {
     public String toStringOrigin() {
         final StringBuilder builder = new StringBuilder();
         for (int i = 0; i < BoardUtils.NUM_TILES; i++) {
-            final String tileText = prettyPrint(this.boardConfig.get(i));
+            final String tileText = prettyPrint(getPiece(i));
             builder.append(String.format("%3s", tileText));
             if ((i + 1) % 8 == 0) {
                 builder.append("\n");
@@ -74,7 +87,7 @@ public final class Board {
         for (int y = BoardUtils.NUM_TILES_PER_ROW - 1; y >= 0; y--) {
             sb.append(" " + (y + 1) + "  ");
             for (int x = 0; x < BoardUtils.NUM_TILES_PER_ROW; x++) {
-                Piece piece = this.boardConfig.get((BoardUtils.NUM_TILES_PER_ROW - y - 1) * BoardUtils.NUM_TILES_PER_ROW + x);
+                Piece piece = getPiece((BoardUtils.NUM_TILES_PER_ROW - y - 1) * BoardUtils.NUM_TILES_PER_ROW + x);
                 if (piece != null) {
                     sb.append(String.format("%s-%c ", piece.toString(), piece.getPieceAllegiance().isBlack() ? 'B' : 'W'));
                 } else {
@@ -102,16 +115,42 @@ public final class Board {
     }
 
     public Collection<Piece> getBlackPieces() {
-        return this.blackPieces;
+        List<Piece> ret = this.blackPieces;
+        if (ret == null) {
+            ret = getPieces(this.bitBoard.getBlackPieces());
+            this.blackPieces = ret;
+        }
+        return ret;
     }
 
     public Collection<Piece> getWhitePieces() {
-        return this.whitePieces;
+        List<Piece> ret = this.whitePieces;
+        if (ret == null) {
+            ret = getPieces(this.bitBoard.getWhitePieces());
+            this.whitePieces = ret;
+        }
+        return ret;
     }
 
     public Collection<Piece> getAllPieces() {
-        return Stream.concat(this.whitePieces.stream(),
-                this.blackPieces.stream()).collect(Collectors.toList());
+        List<Piece> ret = this.allPieces;
+        if (ret == null) {
+            ret = getPieces(this.bitBoard.getAllPieces());
+            this.allPieces = ret;
+        }
+        return ret;
+    }
+
+    /**
+     * @return the pieces of the tiles set in the given bitboard, ordered by tile, unmodifiable
+     */
+    private List<Piece> getPieces(long tiles) {
+        final List<Piece> ret = new ArrayList<>(Long.bitCount(tiles));
+        while (tiles != 0L) {
+            ret.add(this.pieces[Long.numberOfTrailingZeros(tiles)]);
+            tiles &= tiles - 1;
+        }
+        return Collections.unmodifiableList(ret);
     }
 
     public Collection<Move> getAllLegalMoves() {
@@ -132,7 +171,22 @@ public final class Board {
     }
 
     public Piece getPiece(final int coordinate) {
-        return this.boardConfig.get(coordinate);
+        if (coordinate < 0 || coordinate >= BoardUtils.NUM_TILES || !this.bitBoard.isOccupied(coordinate)) return null;
+        return this.pieces[coordinate];
+    }
+
+    /**
+     * @return the bitboard representation of this board, used for occupancy and attack queries
+     */
+    public BitBoardV2 getBitBoard() {
+        return this.bitBoard;
+    }
+
+    /**
+     * @return the 64-bit Zobrist key of this position (pieces, side to move, castling rights and en passant)
+     */
+    public long getZobristKey() {
+        return this.zobristKey;
     }
 
     public Pawn getEnPassantPawn() {
@@ -240,21 +294,9 @@ public final class Board {
         return builder.build();
     }
 
-    private List<Move> calculateLegalMoves(final Collection<Piece> pieces) {
-        return pieces.stream().flatMap(piece -> piece.calculateLegalMoves(this).stream())
-                .collect(Collectors.toList());
-    }
-
-    private static Collection<Piece> calculateActivePieces(final Builder builder,
-                                                           final Alliance alliance) {
-        return builder.boardConfig.values().stream()
-                .filter(piece -> piece.getPieceAllegiance() == alliance)
-                .collect(Collectors.toList());
-    }
-
     public static class Builder {
 
-        Map<Integer, Piece> boardConfig;
+        final Piece[] boardConfig;
         Alliance nextMoveMaker;
         Pawn enPassantPawn;
         Move transitionMove;
@@ -263,11 +305,11 @@ public final class Board {
         private boolean checkBoard = true;
 
         public Builder() {
-            this.boardConfig = new HashMap<>(32, 1.0f);
+            this.boardConfig = new Piece[BoardUtils.NUM_TILES];
         }
 
         public Builder setPiece(final Piece piece) {
-            this.boardConfig.put(piece.getPiecePosition(), piece);
+            this.boardConfig[piece.getPiecePosition()] = piece;
             return this;
         }
 
@@ -1,5 +1,6 @@
 package com.chess.engine.classic.board;
 
+import com.chess.engine.bitboards.Zobrist;
 import com.chess.engine.classic.Alliance;
 import com.chess.engine.classic.board.Board.Builder;
 import com.chess.engine.classic.pieces.Pawn;
@@ -66,6 +67,11 @@ public abstract class Move {
         public Board execute() {
             return this.board;
         }
+
+        @Override
+        public long calculateZobristKey() {
+            return this.board.getZobristKey();
+        }
     }
 
     private Move(final Board board,
@@ -146,6 +152,14 @@ public abstract class Move {
         return builder.build();
     }
 
+    /**
+     * @return the Zobrist key of the board reached by this move, updated from the key of the source board
+     * without executing the move
+     */
+    public long calculateZobristKey() {
+        return Zobrist.updateKey(this.board.getZobristKey(), this.board.getBitBoard(), this);
+    }
+
     String disambiguationFile() {
         for (final Move move : this.board.currentPlayer().getLegalMoves()) {
             if (move.getDestinationCoordinate() == this.destinationCoordinate && !this.equals(move) &&
@@ -222,6 +236,10 @@ public abstract class Move {
             return builder.build();
         }
 
+        public Piece getPromotionPiece() {
+            return this.promotionPiece;
+        }
+
         @Override
         public boolean isAttack() {
             return this.decoratedMove.isAttack();
@@ -0,0 +1,219 @@
+package com.chess.engine.classic.board;
+
+import com.chess.engine.bitboards.IntMove;
+import com.chess.engine.bitboards.MoveBufferPool;
+import com.chess.engine.bitboards.MutableBoard;
+import com.chess.pgn.FenUtilities;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Performance test of the move generator: count the leaves of the legal moves tree up to a given depth.
+ * <p>
+ * The counts of the reference positions are known, a wrong count means a bug in the move generation,
+ * the time to get them measures the move generation throughput.
+ * <pre>
+ *     java com.chess.engine.classic.board.Perft [position name | FEN] depth [--divide] [--parallel | --int-moves]
+ * </pre>
+ * <code>--int-moves</code> runs the count on a {@link MutableBoard} with {@link com.chess.engine.bitboards.IntMove} encoded moves.
+ */
+@Slf4j
+public final class Perft {
+
+    /**
+     * Below this remaining depth, the forked tasks count their subtree sequentially
+     */
+    private static final int SEQUENTIAL_DEPTH = 2;
+
+    /**
+     * Reference positions from <a href="https://www.chessprogramming.org/Perft_Results">chessprogramming.org</a>,
+     * with their node counts from depth 1
+     */
+    public enum Position {
+        INITIAL("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                20, 400, 8902, 197281, 4865609),
+        KIWIPETE("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                48, 2039, 97862, 4085603),
+        POSITION_3("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                14, 191, 2812, 43238, 674624),
+        POSITION_4("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                6, 264, 9467, 422333),
+        POSITION_5("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                44, 1486, 62379, 2103487),
+        POSITION_6("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                46, 2079, 89890, 3894594);
+
+        @Getter
+        private final String fen;
+
+        private final long[] nodes;
+
+        Position(final String fen, final long... nodes) {
+            this.fen = fen;
+            this.nodes = nodes;
+        }
+
+        public Board createBoard() {
+            return FenUtilities.createGameFromFEN(fen);
+        }
+
+        public int getMaxDepth() {
+            return nodes.length;
+        }
+
+        public long getNodes(final int depth) {
+            if (depth < 1 || depth > nodes.length)
+                throw new RuntimeException(String.format("no reference count for %s at depth:%d", this, depth));
+            return nodes[depth - 1];
+        }
+    }
+
+    /**
+     * @param nodes number of leaves at the requested depth
+     * @param nanos elapsed time
+     */
+    public record PerftResult(long nodes, long nanos) {
+
+        public double nodesPerSecond() {
+            return nanos == 0 ? 0 : nodes * 1_000_000_000.0 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("nodes:%d time:%.3f s nps:%.0f", nodes, nanos / 1_000_000_000.0, nodesPerSecond());
+        }
+    }
+
+    private Perft() {
+    }
+
+    /**
+     * Sequential count, the last depth is counted from the size of the legal moves list (bulk counting)
+     */
+    public static long perft(final Board board, final int depth) {
+        final List<Move> legalMoves = board.currentPlayer().generateLegalMoves();
+        if (depth <= 1) return depth == 1 ? legalMoves.size() : 1;
+        long nodes = 0;
+        for (final Move move : legalMoves) {
+            nodes += perft(move.execute(), depth - 1);
+        }
+        return nodes;
+    }
+
+    /**
+     * Sequential count on a mutable position with the moves encoded in pooled <code>int[]</code> buffers,
+     * the position is back to its initial state on return
+     */
+    public static long perft(final MutableBoard position, final int depth) {
+        if (depth == 0) return 1;
+        final int[] moves = MoveBufferPool.acquire();
+        try {
+            final int nbMoves = position.generateLegalMoves(moves);
+            if (depth == 1) return nbMoves;
+            long nodes = 0;
+            for (int i = 0; i < nbMoves; i++) {
+                position.makeMove(moves[i]);
+                nodes += perft(position, depth - 1);
+                position.unmakeMove();
+            }
+            return nodes;
+        } finally {
+            MoveBufferPool.release(moves);
+        }
+    }
+
+    /**
+     * Count split over the given pool, one task per move until the remaining depth is small
+     */
+    public static long perft(final Board board, final int depth, final ForkJoinPool forkJoinPool) {
+        return forkJoinPool.invoke(new PerftTask(board, depth));
+    }
+
+    /**
+     * @return the number of leaves below each legal move, in the generation order
+     */
+    public static Map<String, Long> divide(final Board board, final int depth) {
+        final Map<String, Long> ret = new LinkedHashMap<>();
+        for (final Move move : board.currentPlayer().generateLegalMoves()) {
+            ret.put(toCoordinates(move), perft(move.execute(), depth - 1));
+        }
+        return ret;
+    }
+
+    public static PerftResult run(final Board board, final int depth, final boolean parallel) {
+        final long start = System.nanoTime();
+        final long nodes = parallel ? perft(board, depth, ForkJoinPool.commonPool()) : perft(board, depth);
+        return new PerftResult(nodes, System.nanoTime() - start);
+    }
+
+    public static PerftResult run(final MutableBoard position, final int depth) {
+        final long start = System.nanoTime();
+        final long nodes = perft(position, depth);
+        return new PerftResult(nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * @return the move in coordinate notation (e2e4, e7e8q), as expected by the divide output of the other engines
+     */
+    static String toCoordinates(final Move move) {
+        return IntMove.toString(IntMove.encode(move));
+    }
+
+    private static class PerftTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Board board;
+        private final int depth;
+
+        PerftTask(final Board board, final int depth) {
+            this.board = board;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            if (depth <= SEQUENTIAL_DEPTH) return perft(board, depth);
+            final List<PerftTask> tasks = new ArrayList<>();
+            for (final Move move : board.currentPlayer().generateLegalMoves()) {
+                tasks.add(new PerftTask(move.execute(), depth - 1));
+            }
+            long nodes = 0;
+            for (final PerftTask task : invokeAll(tasks)) {
+                nodes += task.join();
+            }
+            return nodes;
+        }
+    }
+
+    public static void main(final String[] args) {
+        if (args.length < 2) {
+            log.info("usage: Perft [position name | FEN] depth [--divide] [--parallel | --int-moves], positions:{}", Arrays.toString(Position.values()));
+            return;
+        }
+        final List<String> options = List.of(args).subList(2, args.length);
+        final Board board = Arrays.stream(Position.values()).anyMatch(position -> position.name().equals(args[0])) ?
+                Position.valueOf(args[0]).createBoard() :
+                FenUtilities.createGameFromFEN(args[0]);
+        final int depth = Integer.parseInt(args[1]);
+        log.info("\n{}", board);
+        if (options.contains("--divide")) {
+            divide(board, depth).forEach((move, nodes) -> log.info("{}: {}", move, nodes));
+        }
+        for (int currentDepth = 1; currentDepth <= depth; currentDepth++) {
+            final PerftResult result = options.contains("--int-moves") ?
+                    run(MutableBoard.fromBoard(board), currentDepth) :
+                    run(board, currentDepth, options.contains("--parallel"));
+            log.info("depth:{} {}", currentDepth, result);
+        }
+    }
+
+}
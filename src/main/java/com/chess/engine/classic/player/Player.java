@@ -12,83 +12,127 @@ import com.chess.engine.classic.pieces.Piece;
 import java.util.*;
 import java.util.stream.Collectors;
 
-import static com.chess.engine.classic.pieces.Piece.PieceType.KING;
 import static java.util.stream.Collectors.collectingAndThen;
 
 public abstract class Player {
 
     protected final Board board;
-    protected final King playerKing;
-    protected final List<Move> legalMoves;
-    protected final boolean isInCheck;
-
-    Player(final Board board,
-           final List<Move> playerLegals,
-           final List<Move> opponentLegals) {
+    private volatile King playerKing;
+    private volatile List<Move> legalMoves;
+    private volatile List<Move> doneMoves;
+    private volatile Boolean isInCheck;
+
+    /**
+     * The player is cheap to create: the king, the check status and the legal moves (castles included)
+     * are only computed on first access, then memoized for this board.
+     */
+    Player(final Board board) {
         this.board = board;
-        if(board.isCheckBoard()) {
-            this.playerKing = establishKing();
-            this.isInCheck = !calculateAttacksOnTile(this.playerKing.getPiecePosition(), opponentLegals).isEmpty();
-            playerLegals.addAll(calculateKingCastles(playerLegals, opponentLegals));
-            this.legalMoves = playerLegals;
-        } else {
-            playerKing = null;
-            isInCheck = false;
-            legalMoves = List.of();
-        }
     }
 
     public boolean isInCheck() {
-        return this.isInCheck;
+        if (!this.board.isCheckBoard()) {
+            return false;
+        }
+        Boolean ret = this.isInCheck;
+        if (ret == null) {
+            ret = this.board.getBitBoard().isInCheck(getAlliance());
+            this.isInCheck = ret;
+        }
+        return ret;
     }
 
     public boolean isInCheckMate() {
-        return this.isInCheck && !hasEscapeMoves();
+        return isInCheck() && !hasEscapeMoves();
     }
 
     public boolean isInStaleMate() {
-        return !this.isInCheck && !hasEscapeMoves();
+        return !isInCheck() && !hasEscapeMoves();
     }
 
     public boolean isCastled() {
-        return this.playerKing.isCastled();
+        return getPlayerKing().isCastled();
     }
 
     public boolean isKingSideCastleCapable() {
-        return this.playerKing.isKingSideCastleCapable();
+        return getPlayerKing().isKingSideCastleCapable();
     }
 
     public boolean isQueenSideCastleCapable() {
-        return this.playerKing.isQueenSideCastleCapable();
+        return getPlayerKing().isQueenSideCastleCapable();
     }
 
     public King getPlayerKing() {
-        return this.playerKing;
+        if (!this.board.isCheckBoard()) {
+            return null;
+        }
+        King ret = this.playerKing;
+        if (ret == null) {
+            ret = establishKing();
+            this.playerKing = ret;
+        }
+        return ret;
     }
 
     private King establishKing() {
-        return (King) getActivePieces().stream()
-                .filter(piece -> piece.getPieceType() == KING)
-                .findAny()
-                .orElseThrow(RuntimeException::new);
+        final int kingSquare = this.board.getBitBoard().getKingSquare(getAlliance());
+        if (kingSquare >= BoardUtils.NUM_TILES) {
+            throw new RuntimeException(String.format("no king found for %s", getAlliance()));
+        }
+        return (King) this.board.getPiece(kingSquare);
     }
 
     private boolean hasEscapeMoves() {
-        return this.legalMoves.stream()
-                .anyMatch(move -> makeMove(move)
-                        .getMoveStatus().isDone());
+        return !generateLegalMoves().isEmpty();
     }
 
     public List<Move> getLegalMoves() {
-        return this.legalMoves;
+        List<Move> ret = this.legalMoves;
+        if (ret == null) {
+            ret = calculateLegalMoves();
+            this.legalMoves = ret;
+        }
+        return ret;
+    }
+
+    private List<Move> calculateLegalMoves() {
+        if (!this.board.isCheckBoard()) {
+            return List.of();
+        }
+        return this.board.getBitBoard().calculatePseudoLegalMoves(this.board, getAlliance());
+    }
+
+    /**
+     * Legal moves of this player: the pinned pieces and the check evasion squares are computed once for the board,
+     * then every move of {@link #getLegalMoves()} is kept or rejected without executing it.
+     *
+     * @return the moves leading to a {@link MoveStatus#DONE} transition, memoized and unmodifiable
+     */
+    public List<Move> generateLegalMoves() {
+        List<Move> ret = this.doneMoves;
+        if (ret == null) {
+            ret = Collections.unmodifiableList(this.board.getBitBoard().filterLegalMoves(getLegalMoves(), getAlliance()));
+            this.doneMoves = ret;
+        }
+        return ret;
     }
 
+    /**
+     * @return the filtered moves, the list of moves DONE is memoized and unmodifiable
+     */
     public List<Move> getLegalMoves(final MoveStatus moveStatus) {
+        if (moveStatus == MoveStatus.DONE) {
+            return generateLegalMoves();
+        }
+        return filterLegalMoves(moveStatus);
+    }
+
+    private List<Move> filterLegalMoves(final MoveStatus moveStatus) {
         return this.
                 getLegalMoves().
                 stream().
                 filter(m -> this.makeMove(m).getMoveStatus() == moveStatus)
-                .collect(Collectors.toList());
+                .collect(collectingAndThen(Collectors.toList(), Collections::unmodifiableList));
     }
 
     public Optional<Move> getMove(final String moveSz) {
@@ -105,21 +149,14 @@ public abstract class Player {
         return moveTransition.getToBoard();
     }
 
-    static Collection<Move> calculateAttacksOnTile(final int tile,
-                                                   final Collection<Move> moves) {
-        return moves.stream()
-                .filter(move -> move.getDestinationCoordinate() == tile)
-                .collect(collectingAndThen(Collectors.toList(), Collections::unmodifiableList));
-    }
-
     public MoveTransition makeMove(final Move move) {
-        if (!this.legalMoves.contains(move)) {
-            return new MoveTransition(this.board, this.board, move, MoveStatus.ILLEGAL_MOVE);
+        if (!generateLegalMoves().contains(move)) {
+            final MoveStatus moveStatus = getLegalMoves().contains(move) ?
+                    MoveStatus.LEAVES_PLAYER_IN_CHECK :
+                    MoveStatus.ILLEGAL_MOVE;
+            return new MoveTransition(this.board, this.board, move, moveStatus);
         }
-        final Board transitionedBoard = move.execute();
-        return transitionedBoard.currentPlayer().getOpponent().isInCheck() ?
-                new MoveTransition(this.board, this.board, move, MoveStatus.LEAVES_PLAYER_IN_CHECK) :
-                new MoveTransition(this.board, transitionedBoard, move, MoveStatus.DONE);
+        return new MoveTransition(this.board, move.execute(), move, MoveStatus.DONE);
     }
 
     public MoveTransition unMakeMove(final Move move) {
@@ -132,12 +169,4 @@ public abstract class Player {
 
     public abstract Player getOpponent();
 
-    protected abstract Collection<Move> calculateKingCastles(Collection<Move> playerLegals,
-                                                             Collection<Move> opponentLegals);
-
-    protected boolean hasCastleOpportunities() {
-        return !this.isInCheck && !this.playerKing.isCastled() &&
-                (this.playerKing.isKingSideCastleCapable() || this.playerKing.isQueenSideCastleCapable());
-    }
-
 }
@@ -21,7 +21,17 @@ public class AlphaBetaWithMoveOrdering extends Observable implements MoveStrateg
     private final int searchDepth;
     private final MoveSorter moveSorter;
     private final int quiescenceFactor;
+    private final TranspositionTable transpositionTable;
     private long boardsEvaluated;
+    private long transpositionHits;
+    private long transpositionMisses;
+    private long transpositionCutoffs;
+    private volatile boolean stopped;
+    /**
+     * false when run by a {@link LazySMP}, which starts the search of the shared table once per move
+     */
+    private boolean isNewSearch = true;
+    private boolean verbose = true;
     private long executionTime;
     private int quiescenceCount;
     private int cutOffsProduced;
@@ -52,7 +62,14 @@ public class AlphaBetaWithMoveOrdering extends Observable implements MoveStrateg
 
     public AlphaBetaWithMoveOrdering(final int searchDepth,
                                      final int quiescenceFactor) {
+        this(searchDepth, quiescenceFactor, new TranspositionTable());
+    }
+
+    public AlphaBetaWithMoveOrdering(final int searchDepth,
+                                     final int quiescenceFactor,
+                                     final TranspositionTable transpositionTable) {
         this.evaluator = StandardBoardEvaluator.get();
+        this.transpositionTable = transpositionTable;
         this.searchDepth = searchDepth;
         this.quiescenceFactor = quiescenceFactor;
         this.moveSorter = MoveSorter.SORT;
@@ -71,6 +88,33 @@ public class AlphaBetaWithMoveOrdering extends Observable implements MoveStrateg
         return this.boardsEvaluated;
     }
 
+    @Override
+    public long getTranspositionHits() {
+        return this.transpositionHits;
+    }
+
+    @Override
+    public long getTranspositionMisses() {
+        return this.transpositionMisses;
+    }
+
+    @Override
+    public long getTranspositionCutoffs() {
+        return this.transpositionCutoffs;
+    }
+
+    @Override
+    public void stop() {
+        this.stopped = true;
+    }
+
+    @Override
+    public MoveStrategy withLazySMP(final boolean verbose) {
+        this.isNewSearch = false;
+        this.verbose = verbose;
+        return this;
+    }
+
     @Override
     public Move execute(final Board board) {
         final long startTime = System.currentTimeMillis();
@@ -82,8 +126,9 @@ public class AlphaBetaWithMoveOrdering extends Observable implements MoveStrateg
         int currentValue;
         int moveCounter = 1;
         final int numMoves = this.moveSorter.sort(board.currentPlayer().getLegalMoves()).size();
-        System.out.println(board.currentPlayer() + " THINKING with depth = " + this.searchDepth);
-        System.out.println("\tOrdered moves! : " + this.moveSorter.sort(board.currentPlayer().getLegalMoves()));
+        if (this.verbose) System.out.println(board.currentPlayer() + " THINKING with depth = " + this.searchDepth);
+        if (this.isNewSearch) this.transpositionTable.newSearch();
+        if (this.verbose) System.out.println("\tOrdered moves! : " + this.moveSorter.sort(board.currentPlayer().getLegalMoves()));
         for (final Move move : this.moveSorter.sort(board.currentPlayer().getLegalMoves())) {
             final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
             this.quiescenceCount = 0;
@@ -112,14 +157,16 @@ public class AlphaBetaWithMoveOrdering extends Observable implements MoveStrateg
             } else {
                 s = "\t" + toString() + ", m: (" +moveCounter+ "/" +numMoves+ ") " + move + " is illegal, best: " +bestMove;
             }
-            System.out.println(s);
+            if (this.verbose) System.out.println(s);
             setChanged();
             notifyObservers(s);
             moveCounter++;
         }
         this.executionTime = System.currentTimeMillis() - startTime;
-        System.out.printf("%s SELECTS %s [#boards evaluated = %d, time taken = %d ms, eval rate = %.1f cutoffCount = %d prune percent = %.2f\n", board.currentPlayer(),
+        if (this.verbose) System.out.printf("%s SELECTS %s [#boards evaluated = %d, time taken = %d ms, eval rate = %.1f cutoffCount = %d prune percent = %.2f\n", board.currentPlayer(),
                 bestMove, this.boardsEvaluated, this.executionTime, (1000 * ((double)this.boardsEvaluated/this.executionTime)), this.cutOffsProduced, 100 * ((double)this.cutOffsProduced/this.boardsEvaluated));
+        if (this.verbose) System.out.printf("\ttransposition table: hits = %d, misses = %d, cutoffs = %d\n",
+                this.transpositionHits, this.transpositionMisses, this.transpositionCutoffs);
         return bestMove;
     }
 
@@ -127,22 +174,33 @@ public class AlphaBetaWithMoveOrdering extends Observable implements MoveStrateg
                    final int depth,
                    final int highest,
                    final int lowest) {
+        if (this.stopped) throw new SearchStoppedException();
         if (depth == 0 || BoardUtils.isEndGame(board)) {
             this.boardsEvaluated++;
             return this.evaluator.evaluate(board, depth);
         }
+        final long entry = probe(board);
+        if (TranspositionTable.isCutoff(entry, depth, highest, lowest)) {
+            this.transpositionCutoffs++;
+            return TranspositionTable.score(entry);
+        }
         int currentHighest = highest;
-        for (final Move move : this.moveSorter.sort((board.currentPlayer().getLegalMoves()))) {
+        Move bestMove = null;
+        for (final Move move : TranspositionTable.bestMoveFirst(this.moveSorter.sort((board.currentPlayer().getLegalMoves())), entry)) {
             final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
             if (moveTransition.getMoveStatus().isDone()) {
-                currentHighest = Math.max(currentHighest, min(moveTransition.getToBoard(),
-                        calculateQuiescenceDepth(board, move, depth), currentHighest, lowest));
+                final int value = min(moveTransition.getToBoard(), calculateQuiescenceDepth(board, move, depth), currentHighest, lowest);
+                if (value > currentHighest) {
+                    currentHighest = value;
+                    bestMove = move;
+                }
                 if (lowest <= currentHighest) {
                     this.cutOffsProduced++;
                     break;
                 }
             }
         }
+        this.transpositionTable.store(board.getZobristKey(), depth, currentHighest, highest, lowest, bestMove);
         return currentHighest;
     }
 
@@ -150,25 +208,43 @@ public class AlphaBetaWithMoveOrdering extends Observable implements MoveStrateg
                    final int depth,
                    final int highest,
                    final int lowest) {
+        if (this.stopped) throw new SearchStoppedException();
         if (depth == 0 || BoardUtils.isEndGame(board)) {
             this.boardsEvaluated++;
             return this.evaluator.evaluate(board, depth);
         }
+        final long entry = probe(board);
+        if (TranspositionTable.isCutoff(entry, depth, highest, lowest)) {
+            this.transpositionCutoffs++;
+            return TranspositionTable.score(entry);
+        }
         int currentLowest = lowest;
-        for (final Move move : this.moveSorter.sort((board.currentPlayer().getLegalMoves()))) {
+        Move bestMove = null;
+        for (final Move move : TranspositionTable.bestMoveFirst(this.moveSorter.sort((board.currentPlayer().getLegalMoves())), entry)) {
             final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
             if (moveTransition.getMoveStatus().isDone()) {
-                currentLowest = Math.min(currentLowest, max(moveTransition.getToBoard(),
-                        calculateQuiescenceDepth(board, move, depth), highest, currentLowest));
+                final int value = max(moveTransition.getToBoard(), calculateQuiescenceDepth(board, move, depth), highest, currentLowest);
+                if (value < currentLowest) {
+                    currentLowest = value;
+                    bestMove = move;
+                }
                 if (currentLowest <= highest) {
                     this.cutOffsProduced++;
                     break;
                 }
             }
         }
+        this.transpositionTable.store(board.getZobristKey(), depth, currentLowest, highest, lowest, bestMove);
         return currentLowest;
     }
 
+    private long probe(final Board board) {
+        final long entry = this.transpositionTable.probe(board.getZobristKey());
+        if (entry == TranspositionTable.EMPTY) this.transpositionMisses++;
+        else this.transpositionHits++;
+        return entry;
+    }
+
     private int calculateQuiescenceDepth(final Board board,
                                          final Move move,
                                          final int depth) {
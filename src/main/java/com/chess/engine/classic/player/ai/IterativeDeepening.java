@@ -17,7 +17,17 @@ public class IterativeDeepening extends Observable implements MoveStrategy {
     private final BoardEvaluator evaluator;
     private final int searchDepth;
     private final MoveSorter moveSorter;
+    private final TranspositionTable transpositionTable;
     private long boardsEvaluated;
+    private long transpositionHits;
+    private long transpositionMisses;
+    private long transpositionCutoffs;
+    private volatile boolean stopped;
+    /**
+     * false when run by a {@link LazySMP}, which starts the search of the shared table once per move
+     */
+    private boolean isNewSearch = true;
+    private boolean verbose = true;
     private long executionTime;
     private int cutOffsProduced;
 
@@ -46,7 +56,13 @@ public class IterativeDeepening extends Observable implements MoveStrategy {
     }
 
     public IterativeDeepening(final int searchDepth) {
+        this(searchDepth, new TranspositionTable());
+    }
+
+    public IterativeDeepening(final int searchDepth,
+                              final TranspositionTable transpositionTable) {
         this.evaluator = StandardBoardEvaluator.get();
+        this.transpositionTable = transpositionTable;
         this.searchDepth = searchDepth;
         this.moveSorter = MoveSorter.SORT;
         this.boardsEvaluated = 0;
@@ -63,11 +79,39 @@ public class IterativeDeepening extends Observable implements MoveStrategy {
         return this.boardsEvaluated;
     }
 
+    @Override
+    public long getTranspositionHits() {
+        return this.transpositionHits;
+    }
+
+    @Override
+    public long getTranspositionMisses() {
+        return this.transpositionMisses;
+    }
+
+    @Override
+    public long getTranspositionCutoffs() {
+        return this.transpositionCutoffs;
+    }
+
+    @Override
+    public void stop() {
+        this.stopped = true;
+    }
+
+    @Override
+    public MoveStrategy withLazySMP(final boolean verbose) {
+        this.isNewSearch = false;
+        this.verbose = verbose;
+        return this;
+    }
+
     @Override
     public Move execute(final Board board) {
 
         final long startTime = System.currentTimeMillis();
-        System.out.println(board.currentPlayer() + " THINKING with depth = " + this.searchDepth);
+        if (this.verbose) System.out.println(board.currentPlayer() + " THINKING with depth = " + this.searchDepth);
+        if (this.isNewSearch) this.transpositionTable.newSearch();
 
         MoveOrderingBuilder builder = new MoveOrderingBuilder();
         builder.setOrder(board.currentPlayer().getAlliance().isWhite() ? Ordering.DESC : Ordering.ASC);
@@ -107,14 +151,16 @@ public class IterativeDeepening extends Observable implements MoveStrategy {
                 }
             }
             final long subTime = System.currentTimeMillis()- subTimeStart;
-            System.out.println("\t" +toString()+ " bestMove = " +bestMove+ " Depth = " +currentDepth+ " took " +(subTime) + " ms, ordered moves : " +records);
+            if (this.verbose) System.out.println("\t" +toString()+ " bestMove = " +bestMove+ " Depth = " +currentDepth+ " took " +(subTime) + " ms, ordered moves : " +records);
             setChanged();
             notifyObservers(bestMove);
             currentDepth++;
         }
         this.executionTime = System.currentTimeMillis() - startTime;
-        System.out.printf("%s SELECTS %s [#boards evaluated = %d, time taken = %d ms, eval rate = %.1f cutoffCount = %d prune percent = %.2f\n", board.currentPlayer(),
+        if (this.verbose) System.out.printf("%s SELECTS %s [#boards evaluated = %d, time taken = %d ms, eval rate = %.1f cutoffCount = %d prune percent = %.2f\n", board.currentPlayer(),
                 bestMove, this.boardsEvaluated, this.executionTime, (1000 * ((double)this.boardsEvaluated/this.executionTime)), this.cutOffsProduced, 100 * ((double)this.cutOffsProduced/this.boardsEvaluated));
+        if (this.verbose) System.out.printf("\ttransposition table: hits = %d, misses = %d, cutoffs = %d\n",
+                this.transpositionHits, this.transpositionMisses, this.transpositionCutoffs);
         return bestMove;
     }
 
@@ -122,22 +168,33 @@ public class IterativeDeepening extends Observable implements MoveStrategy {
                    final int depth,
                    final int highest,
                    final int lowest) {
+        if (this.stopped) throw new SearchStoppedException();
         if (depth == 0 || BoardUtils.isEndGame(board)) {
             this.boardsEvaluated++;
             return this.evaluator.evaluate(board, depth);
         }
+        final long entry = probe(board);
+        if (TranspositionTable.isCutoff(entry, depth, highest, lowest)) {
+            this.transpositionCutoffs++;
+            return TranspositionTable.score(entry);
+        }
         int currentHighest = highest;
-        for (final Move move : this.moveSorter.sort((board.currentPlayer().getLegalMoves()))) {
+        Move bestMove = null;
+        for (final Move move : TranspositionTable.bestMoveFirst(this.moveSorter.sort((board.currentPlayer().getLegalMoves())), entry)) {
             final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
             if (moveTransition.getMoveStatus().isDone()) {
-                currentHighest = Math.max(currentHighest, min(moveTransition.getToBoard(),
-                        depth - 1, currentHighest, lowest));
+                final int value = min(moveTransition.getToBoard(), depth - 1, currentHighest, lowest);
+                if (value > currentHighest) {
+                    currentHighest = value;
+                    bestMove = move;
+                }
                 if (lowest <= currentHighest) {
                     this.cutOffsProduced++;
                     break;
                 }
             }
         }
+        this.transpositionTable.store(board.getZobristKey(), depth, currentHighest, highest, lowest, bestMove);
         return currentHighest;
     }
 
@@ -145,25 +202,43 @@ public class IterativeDeepening extends Observable implements MoveStrategy {
                    final int depth,
                    final int highest,
                    final int lowest) {
+        if (this.stopped) throw new SearchStoppedException();
         if (depth == 0 || BoardUtils.isEndGame(board)) {
             this.boardsEvaluated++;
             return this.evaluator.evaluate(board, depth);
         }
+        final long entry = probe(board);
+        if (TranspositionTable.isCutoff(entry, depth, highest, lowest)) {
+            this.transpositionCutoffs++;
+            return TranspositionTable.score(entry);
+        }
         int currentLowest = lowest;
-        for (final Move move : this.moveSorter.sort((board.currentPlayer().getLegalMoves()))) {
+        Move bestMove = null;
+        for (final Move move : TranspositionTable.bestMoveFirst(this.moveSorter.sort((board.currentPlayer().getLegalMoves())), entry)) {
             final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
             if (moveTransition.getMoveStatus().isDone()) {
-                currentLowest = Math.min(currentLowest, max(moveTransition.getToBoard(),
-                        depth - 1, highest, currentLowest));
+                final int value = max(moveTransition.getToBoard(), depth - 1, highest, currentLowest);
+                if (value < currentLowest) {
+                    currentLowest = value;
+                    bestMove = move;
+                }
                 if (currentLowest <= highest) {
                     this.cutOffsProduced++;
                     break;
                 }
             }
         }
+        this.transpositionTable.store(board.getZobristKey(), depth, currentLowest, highest, lowest, bestMove);
         return currentLowest;
     }
 
+    private long probe(final Board board) {
+        final long entry = this.transpositionTable.probe(board.getZobristKey());
+        if (entry == TranspositionTable.EMPTY) this.transpositionMisses++;
+        else this.transpositionHits++;
+        return entry;
+    }
+
     private static class MoveScoreRecord implements Comparable<MoveScoreRecord> {
         final Move move;
         final int score;
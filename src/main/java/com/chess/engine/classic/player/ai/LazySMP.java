@@ -0,0 +1,163 @@
+package com.chess.engine.classic.player.ai;
+
+import com.chess.engine.classic.board.Board;
+import com.chess.engine.classic.board.Move;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Observable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Lazy SMP: the same position is searched by several threads sharing one transposition table.
+ * <p>
+ * The main search runs at the requested depth. Each helper runs an iterative deepening from a staggered start
+ * depth up to one ply more than the main search, so the helpers are spread over the depths and fill the table with
+ * entries the main search and the other helpers find later on. The table starts one new search per move, shared by
+ * all the threads. The move played is the one of the main search, the helpers are stopped as soon as it is done.
+ */
+public class LazySMP extends Observable implements MoveStrategy {
+
+    /**
+     * Build the strategy run by each thread, every call must return a new instance
+     */
+    public interface StrategyFactory {
+        MoveStrategy create(int searchDepth, TranspositionTable transpositionTable);
+    }
+
+    private final int searchDepth;
+    private final int nbThreads;
+    private final TranspositionTable transpositionTable;
+    private final StrategyFactory strategyFactory;
+    private final List<MoveStrategy> strategies = new CopyOnWriteArrayList<>();
+    /**
+     * threads of the helpers, created once for all the moves
+     */
+    private final ExecutorService executorService;
+    private volatile boolean helpersStopped;
+
+    public LazySMP(final int searchDepth,
+                   final int nbThreads) {
+        this(searchDepth, nbThreads, new TranspositionTable(), StockAlphaBeta::new);
+    }
+
+    public LazySMP(final int searchDepth,
+                   final int nbThreads,
+                   final TranspositionTable transpositionTable,
+                   final StrategyFactory strategyFactory) {
+        if (nbThreads < 1)
+            throw new RuntimeException(String.format("Lazy SMP needs at least one thread: %d", nbThreads));
+        this.searchDepth = searchDepth;
+        this.nbThreads = nbThreads;
+        this.transpositionTable = transpositionTable;
+        this.strategyFactory = strategyFactory;
+        this.executorService = nbThreads == 1 ? null : Executors.newFixedThreadPool(nbThreads - 1, runnable -> {
+            final Thread thread = new Thread(runnable, "lazy-smp-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "LazySMP(" + this.nbThreads + ")";
+    }
+
+    @Override
+    public long getNumBoardsEvaluated() {
+        return this.strategies.stream().mapToLong(MoveStrategy::getNumBoardsEvaluated).sum();
+    }
+
+    @Override
+    public long getTranspositionHits() {
+        return this.strategies.stream().mapToLong(MoveStrategy::getTranspositionHits).sum();
+    }
+
+    @Override
+    public long getTranspositionMisses() {
+        return this.strategies.stream().mapToLong(MoveStrategy::getTranspositionMisses).sum();
+    }
+
+    @Override
+    public long getTranspositionCutoffs() {
+        return this.strategies.stream().mapToLong(MoveStrategy::getTranspositionCutoffs).sum();
+    }
+
+    @Override
+    public void stop() {
+        this.helpersStopped = true;
+        this.strategies.forEach(MoveStrategy::stop);
+    }
+
+    @Override
+    public Move execute(final Board board) {
+        final long startTime = System.currentTimeMillis();
+        this.strategies.clear();
+        this.helpersStopped = false;
+        this.transpositionTable.newSearch();
+        final MoveStrategy mainStrategy = this.strategyFactory.create(this.searchDepth, this.transpositionTable).withLazySMP(true);
+        if (mainStrategy instanceof Observable observable) {
+            observable.addObserver((o, arg) -> {
+                setChanged();
+                notifyObservers(arg);
+            });
+        }
+        this.strategies.add(mainStrategy);
+        final List<Future<?>> helpers = new ArrayList<>();
+        for (int i = 1; i < this.nbThreads; i++) {
+            final int startDepth = helperStartDepth(i);
+            helpers.add(this.executorService.submit(() -> runHelper(board, startDepth)));
+        }
+        try {
+            return mainStrategy.execute(board);
+        } finally {
+            this.helpersStopped = true;
+            for (int i = 1; i < this.strategies.size(); i++) {
+                this.strategies.get(i).stop();
+            }
+            for (final Future<?> helper : helpers) {
+                try {
+                    helper.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    throw new RuntimeException("Lazy SMP helper failed", e.getCause());
+                }
+            }
+            final long executionTime = System.currentTimeMillis() - startTime;
+            System.out.printf("%s: %d threads, #boards evaluated = %d, time taken = %d ms, transposition table: hits = %d, misses = %d, cutoffs = %d\n",
+                    this, this.nbThreads, getNumBoardsEvaluated(), executionTime,
+                    getTranspositionHits(), getTranspositionMisses(), getTranspositionCutoffs());
+        }
+    }
+
+    /**
+     * Iterative deepening of a helper, until the main search is done
+     */
+    private void runHelper(final Board board, final int startDepth) {
+        for (int depth = startDepth; depth <= this.searchDepth + 1 && !this.helpersStopped; depth++) {
+            final MoveStrategy helper = this.strategyFactory.create(depth, this.transpositionTable).withLazySMP(false);
+            this.strategies.add(helper);
+            // the main search can be done between the check of the loop and the registration of the helper
+            if (this.helpersStopped) return;
+            try {
+                helper.execute(board);
+            } catch (SearchStoppedException e) {
+                // stopped by the main search
+                return;
+            }
+        }
+    }
+
+    /**
+     * Staggered start depths: the helper i starts its iterative deepening at the depth 1 + (i - 1) % searchDepth
+     */
+    private int helperStartDepth(final int helperIndex) {
+        return 1 + (helperIndex - 1) % Math.max(1, this.searchDepth);
+    }
+
+}
@@ -7,6 +7,41 @@ public interface MoveStrategy {
 
     long getNumBoardsEvaluated();
 
+    /**
+     * @return the number of positions found in the transposition table, 0 for the strategies without one
+     */
+    default long getTranspositionHits() {
+        return 0;
+    }
+
+    default long getTranspositionMisses() {
+        return 0;
+    }
+
+    /**
+     * @return the number of searches answered by a transposition table entry without exploring any move
+     */
+    default long getTranspositionCutoffs() {
+        return 0;
+    }
+
     Move execute(Board board);
 
+    /**
+     * Ask a running {@link #execute(Board)} to give up as soon as possible, used to stop the helpers of
+     * {@link LazySMP}. A stopped search throws a {@link SearchStoppedException}.
+     */
+    default void stop() {
+    }
+
+    /**
+     * Run inside a {@link LazySMP}: {@link #execute(Board)} does not start a new search of the shared transposition
+     * table, the LazySMP does it once per move (see {@link TranspositionTable#newSearch()})
+     *
+     * @param verbose false for the helpers, only the main search prints its progress
+     */
+    default MoveStrategy withLazySMP(boolean verbose) {
+        return this;
+    }
+
 }
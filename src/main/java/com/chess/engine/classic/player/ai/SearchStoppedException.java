@@ -0,0 +1,15 @@
+package com.chess.engine.classic.player.ai;
+
+/**
+ * Thrown by a search stopped with {@link MoveStrategy#stop()}, nothing is stored in the transposition table
+ * by the nodes it unwinds.
+ */
+public class SearchStoppedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public SearchStoppedException() {
+        super("search stopped", null, false, false);
+    }
+
+}
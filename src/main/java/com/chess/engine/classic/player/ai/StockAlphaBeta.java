@@ -19,7 +19,17 @@ public class StockAlphaBeta extends Observable implements MoveStrategy {
 
     private final BoardEvaluator evaluator;
     private final int searchDepth;
+    private final TranspositionTable transpositionTable;
     private long boardsEvaluated;
+    private long transpositionHits;
+    private long transpositionMisses;
+    private long transpositionCutoffs;
+    private volatile boolean stopped;
+    /**
+     * false when run by a {@link LazySMP}, which starts the search of the shared table once per move
+     */
+    private boolean isNewSearch = true;
+    private boolean verbose = true;
     private int quiescenceCount;
     private static final int MAX_QUIESCENCE = 5000 * 5;
 
@@ -50,8 +60,14 @@ public class StockAlphaBeta extends Observable implements MoveStrategy {
 
 
     public StockAlphaBeta(final int searchDepth) {
+        this(searchDepth, new TranspositionTable());
+    }
+
+    public StockAlphaBeta(final int searchDepth,
+                          final TranspositionTable transpositionTable) {
         this.evaluator = StandardBoardEvaluator.get();
         this.searchDepth = searchDepth;
+        this.transpositionTable = transpositionTable;
         this.boardsEvaluated = 0;
         this.quiescenceCount = 0;
     }
@@ -66,6 +82,33 @@ public class StockAlphaBeta extends Observable implements MoveStrategy {
         return this.boardsEvaluated;
     }
 
+    @Override
+    public long getTranspositionHits() {
+        return this.transpositionHits;
+    }
+
+    @Override
+    public long getTranspositionMisses() {
+        return this.transpositionMisses;
+    }
+
+    @Override
+    public long getTranspositionCutoffs() {
+        return this.transpositionCutoffs;
+    }
+
+    @Override
+    public void stop() {
+        this.stopped = true;
+    }
+
+    @Override
+    public MoveStrategy withLazySMP(final boolean verbose) {
+        this.isNewSearch = false;
+        this.verbose = verbose;
+        return this;
+    }
+
     @Override
     public Move execute(final Board board) {
         final long startTime = System.currentTimeMillis();
@@ -74,9 +117,10 @@ public class StockAlphaBeta extends Observable implements MoveStrategy {
         int highestSeenValue = Integer.MIN_VALUE;
         int lowestSeenValue = Integer.MAX_VALUE;
         int currentValue;
-        System.out.println(board.currentPlayer() + " THINKING with depth = " + this.searchDepth);
+        if (this.verbose) System.out.println(board.currentPlayer() + " THINKING with depth = " + this.searchDepth);
         int moveCounter = 1;
         int numMoves = board.currentPlayer().getLegalMoves().size();
+        if (this.isNewSearch) this.transpositionTable.newSearch();
         for (final Move move : MoveSorter.EXPENSIVE.sort((board.currentPlayer().getLegalMoves()))) {
             final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
             this.quiescenceCount = 0;
@@ -108,7 +152,7 @@ public class StockAlphaBeta extends Observable implements MoveStrategy {
             } else {
                 s = "\t" + toString() + "(" +this.searchDepth + ")" + ", m: (" +moveCounter+ "/" +numMoves+ ") " + move + " is illegal! best: " +bestMove;
             }
-            System.out.println(s);
+            if (this.verbose) System.out.println(s);
             setChanged();
             notifyObservers(s);
             moveCounter++;
@@ -117,8 +161,10 @@ public class StockAlphaBeta extends Observable implements MoveStrategy {
         final long executionTime = System.currentTimeMillis() - startTime;
         final String result = board.currentPlayer() + " SELECTS " +bestMove+ " [#boards evaluated = " +this.boardsEvaluated+
                 " time taken = " + executionTime /1000+ " rate = " +(1000 * ((double)this.boardsEvaluated/ executionTime));
-        System.out.printf("%s SELECTS %s [#boards evaluated = %d, time taken = %d ms, rate = %.1f\n", board.currentPlayer(),
+        if (this.verbose) System.out.printf("%s SELECTS %s [#boards evaluated = %d, time taken = %d ms, rate = %.1f\n", board.currentPlayer(),
                 bestMove, this.boardsEvaluated, executionTime, (1000 * ((double)this.boardsEvaluated/ executionTime)));
+        if (this.verbose) System.out.printf("\ttransposition table: hits = %d, misses = %d, cutoffs = %d\n",
+                this.transpositionHits, this.transpositionMisses, this.transpositionCutoffs);
         setChanged();
         notifyObservers(result);
         return bestMove;
@@ -140,22 +186,34 @@ public class StockAlphaBeta extends Observable implements MoveStrategy {
                     final int depth,
                     final int highest,
                     final int lowest) {
+        if (this.stopped) throw new SearchStoppedException();
         if (depth == 0 || BoardUtils.isEndGame(board)) {
             this.boardsEvaluated++;
             return this.evaluator.evaluate(board, depth);
         }
+        final long entry = probe(board);
+        if (TranspositionTable.isCutoff(entry, depth, highest, lowest)) {
+            this.transpositionCutoffs++;
+            return TranspositionTable.score(entry);
+        }
         int currentHighest = highest;
-        for (final Move move : MoveSorter.STANDARD.sort((board.currentPlayer().getLegalMoves()))) {
+        Move bestMove = null;
+        for (final Move move : TranspositionTable.bestMoveFirst(MoveSorter.STANDARD.sort((board.currentPlayer().getLegalMoves())), entry)) {
             final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
             if (moveTransition.getMoveStatus().isDone()) {
                 final Board toBoard = moveTransition.getToBoard();
-                currentHighest = Math.max(currentHighest, min(toBoard,
-                        calculateQuiescenceDepth(toBoard, depth), currentHighest, lowest));
+                final int value = min(toBoard, calculateQuiescenceDepth(toBoard, depth), currentHighest, lowest);
+                if (value > currentHighest) {
+                    currentHighest = value;
+                    bestMove = move;
+                }
                 if (currentHighest >= lowest) {
+                    this.transpositionTable.store(board.getZobristKey(), depth, lowest, highest, lowest, move);
                     return lowest;
                 }
             }
         }
+        this.transpositionTable.store(board.getZobristKey(), depth, currentHighest, highest, lowest, bestMove);
         return currentHighest;
     }
 
@@ -163,25 +221,44 @@ public class StockAlphaBeta extends Observable implements MoveStrategy {
                     final int depth,
                     final int highest,
                     final int lowest) {
+        if (this.stopped) throw new SearchStoppedException();
         if (depth == 0 || BoardUtils.isEndGame(board)) {
             this.boardsEvaluated++;
             return this.evaluator.evaluate(board, depth);
         }
+        final long entry = probe(board);
+        if (TranspositionTable.isCutoff(entry, depth, highest, lowest)) {
+            this.transpositionCutoffs++;
+            return TranspositionTable.score(entry);
+        }
         int currentLowest = lowest;
-        for (final Move move : MoveSorter.STANDARD.sort((board.currentPlayer().getLegalMoves()))) {
+        Move bestMove = null;
+        for (final Move move : TranspositionTable.bestMoveFirst(MoveSorter.STANDARD.sort((board.currentPlayer().getLegalMoves())), entry)) {
             final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
             if (moveTransition.getMoveStatus().isDone()) {
                 final Board toBoard = moveTransition.getToBoard();
-                currentLowest = Math.min(currentLowest, max(toBoard,
-                        calculateQuiescenceDepth(toBoard, depth), highest, currentLowest));
+                final int value = max(toBoard, calculateQuiescenceDepth(toBoard, depth), highest, currentLowest);
+                if (value < currentLowest) {
+                    currentLowest = value;
+                    bestMove = move;
+                }
                 if (currentLowest <= highest) {
+                    this.transpositionTable.store(board.getZobristKey(), depth, highest, highest, lowest, move);
                     return highest;
                 }
             }
         }
+        this.transpositionTable.store(board.getZobristKey(), depth, currentLowest, highest, lowest, bestMove);
         return currentLowest;
     }
 
+    private long probe(final Board board) {
+        final long entry = this.transpositionTable.probe(board.getZobristKey());
+        if (entry == TranspositionTable.EMPTY) this.transpositionMisses++;
+        else this.transpositionHits++;
+        return entry;
+    }
+
     private int calculateQuiescenceDepth(final Board toBoard,
                                          final int depth) {
         if(depth == 1 && this.quiescenceCount < MAX_QUIESCENCE) {
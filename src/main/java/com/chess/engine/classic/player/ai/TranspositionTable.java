@@ -0,0 +1,164 @@
+package com.chess.engine.classic.player.ai;
+
+import com.chess.engine.classic.board.Move;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.chess.engine.classic.board.Move.PawnPromotion;
+
+/**
+ * Fixed size transposition table of the alpha-beta strategies, keyed by {@link com.chess.engine.classic.board.Board#getZobristKey()}.
+ * <p>
+ * Each slot is made of two longs: the packed entry and the key xor-ed with the entry. A reader only accepts an
+ * entry when both longs match, so concurrent writers can not produce a torn entry and no lock is needed.
+ * The replacement is depth-preferred, except for the entries of a previous search (see {@link #newSearch()}).
+ * <pre>
+ *  bits  0-31: score
+ *  bits 32-39: depth
+ *  bits 40-41: bound, 0 for an empty slot
+ *  bits 42-56: best move: from, to and promoted piece type
+ *  bits 57-63: search generation
+ * </pre>
+ */
+public final class TranspositionTable {
+
+    public static final long EMPTY = 0L;
+
+    private static final int DEFAULT_SIZE_BITS = 20;
+    private static final int NO_MOVE = 0;
+
+    public enum Bound {
+        EXACT,
+        /**
+         * the score is at least the stored one (the search failed high)
+         */
+        LOWER,
+        /**
+         * the score is at most the stored one (the search failed low)
+         */
+        UPPER
+    }
+
+    private final AtomicLongArray keys;
+    private final AtomicLongArray entries;
+    private final int mask;
+    private volatile int generation = 0;
+
+    /**
+     * @param sizeBits the table holds <code>2^sizeBits</code> entries, 16 bytes each
+     */
+    public TranspositionTable(final int sizeBits) {
+        if (sizeBits < 1 || sizeBits > 30)
+            throw new RuntimeException(String.format("transposition table size out of range: 2^%d", sizeBits));
+        this.keys = new AtomicLongArray(1 << sizeBits);
+        this.entries = new AtomicLongArray(1 << sizeBits);
+        this.mask = (1 << sizeBits) - 1;
+    }
+
+    /**
+     * Table of the default size, each strategy owns its table unless one is given to it, see {@link LazySMP}
+     */
+    public TranspositionTable() {
+        this(DEFAULT_SIZE_BITS);
+    }
+
+    /**
+     * Start a new search: the entries of the previous searches can be replaced whatever their depth
+     */
+    public void newSearch() {
+        this.generation = (this.generation + 1) & 0x7F;
+    }
+
+    int getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * @return the packed entry stored for this key, {@link #EMPTY} if there is none
+     */
+    public long probe(final long key) {
+        final int index = (int) key & mask;
+        final long entry = this.entries.get(index);
+        return (this.keys.get(index) ^ entry) == key ? entry : EMPTY;
+    }
+
+    /**
+     * Store the result of a search of the given window, the bound is deduced from the window
+     */
+    public void store(final long key,
+                      final int depth,
+                      final int score,
+                      final int highest,
+                      final int lowest,
+                      final Move bestMove) {
+        final Bound bound = score <= highest ? Bound.UPPER : score >= lowest ? Bound.LOWER : Bound.EXACT;
+        final int index = (int) key & mask;
+        final long current = this.entries.get(index);
+        if (current != EMPTY && generation(current) == this.generation && depth(current) > depth) return;
+        final long entry = (score & 0xFFFFFFFFL)
+                | ((long) Math.min(Math.max(depth, 0), 0xFF) << 32)
+                | ((long) (bound.ordinal() + 1) << 40)
+                | ((long) encodeMove(bestMove) << 42)
+                | ((long) this.generation << 57);
+        this.entries.set(index, entry);
+        this.keys.set(index, key ^ entry);
+    }
+
+    /**
+     * @return true if the entry is deep enough and its bound allows to return its score in the given window
+     */
+    public static boolean isCutoff(final long entry,
+                                   final int depth,
+                                   final int highest,
+                                   final int lowest) {
+        if (entry == EMPTY || depth(entry) < depth) return false;
+        final int score = score(entry);
+        return switch (bound(entry)) {
+            case EXACT -> true;
+            case LOWER -> score >= lowest;
+            case UPPER -> score <= highest;
+        };
+    }
+
+    /**
+     * @return the moves with the best move of the entry first, or the given moves if there is none
+     */
+    public static Collection<Move> bestMoveFirst(final Collection<Move> moves, final long entry) {
+        final int bestMove = entry == EMPTY ? NO_MOVE : (int) ((entry >>> 42) & 0x7FFF);
+        if (bestMove == NO_MOVE) return moves;
+        final List<Move> ret = new ArrayList<>(moves.size());
+        for (final Move move : moves) {
+            if (encodeMove(move) == bestMove) ret.add(0, move);
+            else ret.add(move);
+        }
+        return ret;
+    }
+
+    public static int score(final long entry) {
+        return (int) entry;
+    }
+
+    public static int depth(final long entry) {
+        return (int) ((entry >>> 32) & 0xFF);
+    }
+
+    public static Bound bound(final long entry) {
+        return Bound.values()[(int) ((entry >>> 40) & 0x3) - 1];
+    }
+
+    private static int generation(final long entry) {
+        return (int) (entry >>> 57);
+    }
+
+    private static int encodeMove(final Move move) {
+        if (move == null || move == Move.MoveFactory.getNullMove()) return NO_MOVE;
+        final int promotion = move instanceof PawnPromotion pawnPromotion ?
+                pawnPromotion.getPromotionPiece().getPieceType().ordinal() :
+                0;
+        return move.getCurrentCoordinate() | (move.getDestinationCoordinate() << 6) | (promotion << 12);
+    }
+
+}
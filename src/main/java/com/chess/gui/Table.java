@@ -1,11 +1,14 @@
 package com.chess.gui;
 
+import com.chess.engine.classic.Alliance;
 import com.chess.engine.classic.board.*;
 import com.chess.engine.classic.board.Move.MoveFactory;
 import com.chess.engine.classic.pieces.Piece;
 import com.chess.engine.classic.player.Player;
+import com.chess.engine.classic.player.ai.LazySMP;
 import com.chess.engine.classic.player.ai.StandardBoardEvaluator;
 import com.chess.engine.classic.player.ai.StockAlphaBeta;
+import com.chess.engine.classic.player.ai.TranspositionTable;
 import com.chess.pgn.FenUtilities;
 import com.chess.pgn.MySqlGamePersistence;
 import com.google.common.collect.Lists;
@@ -35,6 +38,10 @@ public final class Table extends Observable {
     private final BoardPanel boardPanel;
     private final MoveLog moveLog;
     private final GameSetup gameSetup;
+    /**
+     * one transposition table per side played by the computer, kept from one move to the next
+     */
+    private final Map<Alliance, TranspositionTable> transpositionTables = new EnumMap<>(Alliance.class);
     private Board chessBoard;
     private Move computerMove;
     private Piece sourceTile;
@@ -117,6 +124,10 @@ public final class Table extends Observable {
         return this.gameSetup;
     }
 
+    private TranspositionTable getTranspositionTable(final Alliance alliance) {
+        return this.transpositionTables.computeIfAbsent(alliance, key -> new TranspositionTable());
+    }
+
     private boolean getHighlightLegalMoves() {
         return this.highlightLegalMoves;
     }
@@ -491,9 +502,18 @@ public final class Table extends Observable {
                 bestMove = bookMove;
             }
             else {
-                final StockAlphaBeta strategy = new StockAlphaBeta(Table.get().getGameSetup().getSearchDepth());
-                strategy.addObserver(Table.get().getDebugPanel());
-                bestMove = strategy.execute(Table.get().getGameBoard());
+                final int searchDepth = Table.get().getGameSetup().getSearchDepth();
+                final int searchThreads = Table.get().getGameSetup().getSearchThreads();
+                final TranspositionTable transpositionTable = Table.get().getTranspositionTable(Table.get().getGameBoard().currentPlayer().getAlliance());
+                if (searchThreads > 1) {
+                    final LazySMP strategy = new LazySMP(searchDepth, searchThreads, transpositionTable, StockAlphaBeta::new);
+                    strategy.addObserver(Table.get().getDebugPanel());
+                    bestMove = strategy.execute(Table.get().getGameBoard());
+                } else {
+                    final StockAlphaBeta strategy = new StockAlphaBeta(searchDepth, transpositionTable);
+                    strategy.addObserver(Table.get().getDebugPanel());
+                    bestMove = strategy.execute(Table.get().getGameBoard());
+                }
             }
             return bestMove;
         }
@@ -103,7 +103,16 @@ public class FenUtilities {
                     throw new RuntimeException("Invalid FEN String " +gameConfiguration);
             }
         }
-        builder.setMoveMaker(moveMaker(fenPartitions[1]));
+        final Alliance moveMaker = moveMaker(fenPartitions[1]);
+        builder.setMoveMaker(moveMaker);
+        if (fenPartitions.length > 3 && !fenPartitions[3].equals("-")) {
+            // the FEN gives the square behind the pawn that just jumped
+            final Alliance jumpAlliance = moveMaker.isWhite() ? Alliance.BLACK : Alliance.WHITE;
+            final int enPassantPosition = BoardUtils.INSTANCE.getCoordinateAtPosition(fenPartitions[3]) + 8 * jumpAlliance.getDirection();
+            final Pawn enPassantPawn = new Pawn(jumpAlliance, enPassantPosition, false);
+            builder.setPiece(enPassantPawn);
+            builder.setEnPassantPawn(enPassantPawn);
+        }
         return builder.build();
     }
 
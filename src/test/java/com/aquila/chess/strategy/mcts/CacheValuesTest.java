@@ -0,0 +1,55 @@
+package com.aquila.chess.strategy.mcts;
+
+import com.aquila.chess.strategy.mcts.utils.PolicyUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheValuesTest {
+
+    @Test
+    void testEvictionSkipsValuesInUse() {
+        final CacheValues cacheValues = new CacheValues(4);
+        // the least recently used value waits for its inference
+        cacheValues.create(0, "0", 0);
+        for (long key = 1; key < 4; key++) createInitialized(cacheValues, key);
+        cacheValues.create(4, "4", 0);
+        assertEquals(4, cacheValues.size());
+        assertTrue(cacheValues.containsKey(0));
+        assertFalse(cacheValues.containsKey(1));
+    }
+
+    @Test
+    void testGrowWhenAllInUse() {
+        final int size = CacheValues.MAX_EVICTION_SCAN * 2;
+        final CacheValues cacheValues = new CacheValues(size);
+        for (long key = 0; key < size; key++) cacheValues.create(key, String.valueOf(key), 0);
+        cacheValues.create(size, String.valueOf(size), 0);
+        assertEquals(size + 1, cacheValues.size());
+        for (long key = 0; key <= size; key++) assertTrue(cacheValues.containsKey(key));
+    }
+
+    @Test
+    void testEvictionScanIsCapped() {
+        final int size = CacheValues.MAX_EVICTION_SCAN * 2;
+        final CacheValues cacheValues = new CacheValues(size);
+        for (long key = 0; key < size; key++) {
+            if (key == size - 1) createInitialized(cacheValues, key);
+            else cacheValues.create(key, String.valueOf(key), 0);
+        }
+        // the only removable value is out of the scanned values: the map grows
+        cacheValues.create(size, String.valueOf(size), 0);
+        assertEquals(size + 1, cacheValues.size());
+        assertTrue(cacheValues.containsKey(size - 1));
+    }
+
+    private void createInitialized(final CacheValues cacheValues, final long key) {
+        cacheValues.create(key, String.valueOf(key), 0);
+        final double[] policies = new double[PolicyUtils.MAX_POLICY_INDEX];
+        Arrays.fill(policies, 1.0);
+        cacheValues.updateValueAndPolicies(key, 0.5, policies);
+    }
+
+}
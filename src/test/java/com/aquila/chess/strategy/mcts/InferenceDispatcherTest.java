@@ -0,0 +1,126 @@
+package com.aquila.chess.strategy.mcts;
+
+import com.aquila.chess.Game;
+import com.aquila.chess.strategy.RandomStrategy;
+import com.aquila.chess.strategy.mcts.inputs.lc0.Lc0InputsManagerImpl;
+import com.chess.engine.classic.Alliance;
+import com.chess.engine.classic.board.Board;
+import com.chess.engine.classic.board.Move;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InferenceDispatcherTest {
+
+    private static final int BATCH_SIZE = 8;
+
+    /**
+     * The inferences are done by the dispatcher only: without any call to {@link ServiceNN#executeJobs(boolean)}
+     */
+    @Test
+    void testFullAndDeadlineBatches() throws Exception {
+        final Lc0InputsManagerImpl inputsManager = new Lc0InputsManagerImpl();
+        final DeepLearningAGZ deepLearning = DeepLearningAGZ.builder()
+                .nn(new Lc0NNTest())
+                .inputsManager(inputsManager)
+                .batchSize(BATCH_SIZE)
+                .build();
+        final ServiceNN serviceNN = ServiceNN.builder()
+                .deepLearningAGZ(deepLearning)
+                .nbFeaturesPlanes(inputsManager.getNbFeaturesPlanes())
+                .batchSize(BATCH_SIZE)
+                .inferenceMaxLatencyMillis(50)
+                .build();
+        final Game game = Game.builder().board(Board.createStandardBoard()).inputsManager(inputsManager).build();
+        game.setup(new RandomStrategy(Alliance.WHITE, 1), new RandomStrategy(Alliance.BLACK, 1));
+        final MCTSGame mctsGame = new MCTSGame(game);
+        final List<Move> moves = game.getPlayer(Alliance.WHITE).getLegalMoves(Move.MoveStatus.DONE);
+        try {
+            // one full batch
+            submitAndWait(deepLearning, serviceNN, mctsGame, moves.subList(0, BATCH_SIZE));
+            final InferenceDispatcher inferenceDispatcher = serviceNN.getInferenceDispatcher();
+            assertEquals(1, inferenceDispatcher.getNbFullBatches());
+            assertEquals(0, inferenceDispatcher.getNbDeadlineBatches());
+            // a partial batch sent at the deadline
+            submitAndWait(deepLearning, serviceNN, mctsGame, moves.subList(BATCH_SIZE, BATCH_SIZE + 3));
+            assertEquals(1, inferenceDispatcher.getNbFullBatches());
+            assertEquals(1, inferenceDispatcher.getNbDeadlineBatches());
+            assertNull(inferenceDispatcher.getFailure());
+            assertTrue(serviceNN.getBatchJobs2Commit().isEmpty());
+            assertTrue(serviceNN.getInference(mctsGame.hashCode(moves.get(0))).isDone());
+        } finally {
+            serviceNN.getInferenceDispatcher().close();
+        }
+    }
+
+    /**
+     * An {@link Error} during an inference fails the pending futures and stops the thread, the next job starts a new one
+     */
+    @Test
+    void testInferenceError() throws Exception {
+        final Lc0InputsManagerImpl inputsManager = new Lc0InputsManagerImpl();
+        final boolean[] nnFailure = {true};
+        final DeepLearningAGZ deepLearning = DeepLearningAGZ.builder()
+                .nn(new Lc0NNTest() {
+                    @Override
+                    public synchronized List<OutputNN> outputs(double[][][][] nbIn, int len) {
+                        if (nnFailure[0]) throw new Error("inference failure");
+                        return super.outputs(nbIn, len);
+                    }
+                })
+                .inputsManager(inputsManager)
+                .batchSize(BATCH_SIZE)
+                .build();
+        final ServiceNN serviceNN = ServiceNN.builder()
+                .deepLearningAGZ(deepLearning)
+                .nbFeaturesPlanes(inputsManager.getNbFeaturesPlanes())
+                .batchSize(BATCH_SIZE)
+                .inferenceMaxLatencyMillis(50)
+                .build();
+        final Game game = Game.builder().board(Board.createStandardBoard()).inputsManager(inputsManager).build();
+        game.setup(new RandomStrategy(Alliance.WHITE, 1), new RandomStrategy(Alliance.BLACK, 1));
+        final MCTSGame mctsGame = new MCTSGame(game);
+        final List<Move> moves = game.getPlayer(Alliance.WHITE).getLegalMoves(Move.MoveStatus.DONE);
+        final InferenceDispatcher inferenceDispatcher = serviceNN.getInferenceDispatcher();
+        try {
+            final Move move = moves.get(0);
+            final long key = mctsGame.hashCode(move);
+            deepLearning.getCacheValues().create(key, move.toString(), 0);
+            final CompletableFuture<CacheValue> inference = serviceNN.getInference(key);
+            serviceNN.submit(key, move, Alliance.WHITE, mctsGame, false, false);
+            final ExecutionException exception = assertThrows(ExecutionException.class, () -> inference.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(Error.class, exception.getCause());
+            assertInstanceOf(Error.class, inferenceDispatcher.getFailure());
+            for (int i = 0; i < 100 && inferenceDispatcher.isRunning(); i++) Thread.sleep(10);
+            assertFalse(inferenceDispatcher.isRunning());
+            // the failed job is still pending, it is sent with the next one by a new thread
+            nnFailure[0] = false;
+            submitAndWait(deepLearning, serviceNN, mctsGame, moves.subList(1, BATCH_SIZE));
+        } finally {
+            inferenceDispatcher.close();
+        }
+    }
+
+    private void submitAndWait(final DeepLearningAGZ deepLearning,
+                               final ServiceNN serviceNN,
+                               final MCTSGame mctsGame,
+                               final List<Move> moves) throws Exception {
+        final List<CompletableFuture<CacheValue>> inferences = new ArrayList<>();
+        for (final Move move : moves) {
+            final long key = mctsGame.hashCode(move);
+            deepLearning.getCacheValues().create(key, move.toString(), 0);
+            inferences.add(serviceNN.getInference(key));
+            serviceNN.submit(key, move, Alliance.WHITE, mctsGame, false, false);
+        }
+        for (final CompletableFuture<CacheValue> inference : inferences) {
+            assertTrue(inference.get(10, TimeUnit.SECONDS).isInitialized());
+        }
+    }
+
+}
@@ -7,8 +7,10 @@ import com.aquila.chess.strategy.mcts.inputs.InputRecord;
 import com.aquila.chess.strategy.mcts.inputs.InputsManager;
 import com.aquila.chess.strategy.mcts.inputs.aquila.AquilaInputsManagerImpl;
 import com.aquila.chess.strategy.mcts.inputs.lc0.Lc0InputsManagerImpl;
+import com.aquila.chess.strategy.mcts.inputs.lc0.Lc0Last8Inputs;
 import com.chess.engine.classic.Alliance;
 import com.chess.engine.classic.board.Board;
+import com.chess.engine.classic.board.Move;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Disabled;
@@ -16,8 +18,11 @@ import org.junit.jupiter.api.Order;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -165,4 +170,54 @@ public class MCTSGameTest {
         //assertTrue(nbSameHashcode < 10);
     }
 
-}
\ No newline at end of file
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3})
+    void testMutablePositionStatus(int seed) {
+        final Board board = Board.createStandardBoard();
+        final Game game = Game.builder().inputsManager(new Lc0InputsManagerImpl()).board(board).build();
+        game.setup(null, null);
+        final MCTSGame classicGame = new MCTSGame(game, false);
+        final MCTSGame mutableGame = new MCTSGame(game, true);
+        assertTrue(new MCTSGame(mutableGame).isMutablePosition());
+        final Random rand = new Random(seed);
+        Game.GameStatus status;
+        do {
+            final List<Move> moves = classicGame.getBoard().currentPlayer().getLegalMoves(Move.MoveStatus.DONE);
+            final Move move = moves.get(rand.nextInt(moves.size()));
+            status = classicGame.play(move);
+            assertEquals(status, mutableGame.play(move), move.toString());
+            assertEquals(classicGame.getBoard().getBitBoard().getAllPieces(), mutableGame.getPosition().getAllPieces());
+            assertEquals(classicGame.getBoard().getZobristKey(), mutableGame.getBoard().getZobristKey());
+            final List<Lc0Last8Inputs> classicInputs = ((Lc0InputsManagerImpl) classicGame.getInputsManager()).getLc0Last8Inputs().stream().toList();
+            final List<Lc0Last8Inputs> mutableInputs = ((Lc0InputsManagerImpl) mutableGame.getInputsManager()).getLc0Last8Inputs().stream().toList();
+            assertEquals(classicInputs.size(), mutableInputs.size());
+            final Lc0Last8Inputs lastInputs = classicInputs.get(classicInputs.size() - 1);
+            assertTrue(Arrays.deepEquals(lastInputs.inputs().inputs(), mutableInputs.get(mutableInputs.size() - 1).inputs().inputs()), move.toString());
+        } while (status == Game.GameStatus.IN_PROGRESS);
+        log.info("[{}] NBSTEP:{} STATUS:{}", seed, classicGame.getNbStep(), status);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void testReset(boolean mutablePosition) {
+        final Board board = Board.createStandardBoard();
+        final Game game = Game.builder().inputsManager(new Lc0InputsManagerImpl()).board(board).build();
+        game.setup(null, null);
+        final MCTSGame gameRoot = new MCTSGame(game, mutablePosition);
+        final MCTSGame descentGame = new MCTSGame(gameRoot);
+        final Random rand = new Random(1);
+        for (int i = 0; i < 10; i++) {
+            final List<Move> moves = descentGame.getBoard().currentPlayer().getLegalMoves(Move.MoveStatus.DONE);
+            descentGame.play(moves.get(rand.nextInt(moves.size())));
+        }
+        descentGame.reset(gameRoot);
+        final MCTSGame copyGame = new MCTSGame(gameRoot);
+        assertEquals(copyGame.getMoves(), descentGame.getMoves());
+        assertEquals(copyGame.getStatus(), descentGame.getStatus());
+        assertEquals(copyGame.getBoard().getZobristKey(), descentGame.getBoard().getZobristKey());
+        assertEquals(copyGame.hashCode(Alliance.WHITE), descentGame.hashCode(Alliance.WHITE));
+        if (mutablePosition)
+            assertEquals(copyGame.getPosition().getZobristKey(), descentGame.getPosition().getZobristKey());
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.aquila.chess.strategy.mcts;
+
+import com.chess.engine.classic.Alliance;
+import com.chess.engine.classic.board.Board;
+import com.chess.engine.classic.board.Move;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MCTSNodeTest {
+
+    private static final int NB_THREADS = 16;
+    private static final int NB_UPDATES = 10_000;
+
+    @Test
+    void testConcurrentStatistics() throws Exception {
+        final Board board = Board.createStandardBoard();
+        final MCTSNode node = new MCTSNode(null, board.currentPlayer().getLegalMoves(), 0, CacheValue.getNotInitialized("test", 0.5));
+        final ExecutorService executorService = Executors.newFixedThreadPool(NB_THREADS);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < NB_THREADS; i++) {
+                futures.add(executorService.submit(() -> {
+                    for (int j = 0; j < NB_UPDATES; j++) {
+                        node.incVirtualLoss();
+                        node.propagateOneTime(0.5);
+                        node.decVirtualLoss();
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) future.get();
+        } finally {
+            executorService.shutdown();
+        }
+        assertEquals(NB_THREADS * NB_UPDATES, node.getVisits());
+        assertEquals(NB_THREADS * NB_UPDATES * 0.5, node.getSum(), 1e-6);
+        assertEquals(0.0, node.getVirtualLoss());
+        assertEquals(0.5, node.getExpectedReward(true), 1e-9);
+        node.unPropagate(0.5);
+        assertEquals(NB_THREADS * NB_UPDATES - 1, node.getVisits());
+    }
+
+    @Test
+    void testExpectedRewardWithoutVisit() {
+        final Board board = Board.createStandardBoard();
+        final MCTSNode node = new MCTSNode(null, board.currentPlayer().getLegalMoves(), 0, CacheValue.getNotInitialized("test", 0.25));
+        assertEquals(0.25, node.getExpectedReward(false));
+        node.incVirtualLoss();
+        assertEquals(-0.75, node.getExpectedReward(true));
+        node.propagateOneTime(-1);
+        assertEquals(-2.0, node.getExpectedReward(true));
+        assertEquals(board.currentPlayer().getLegalMoves().size(), node.getChildNodes().size());
+        assertEquals(0, node.getNumberOfChilds());
+    }
+
+    @Test
+    void testProveDraw() {
+        final Board board = Board.createBoard("kh1", "kh8", Alliance.WHITE);
+        final Collection<Move> moves = board.currentPlayer().getLegalMoves();
+        final MCTSNode node = new MCTSNode(null, moves, 0, CacheValue.getNotInitialized("test", 0));
+        final List<MCTSNode> childs = new ArrayList<>();
+        for (final Move move : moves) {
+            final MCTSNode child = new MCTSNode(move, new ArrayList<>(), 0, CacheValue.getNotInitialized("test", 0));
+            node.addChild(child);
+            childs.add(child);
+        }
+        assertTrue(childs.size() > 1);
+        childs.get(0).prove(MCTSNode.Proof.DRAW);
+        assertFalse(node.isSolved());
+        childs.stream().skip(1).forEach(child -> child.prove(MCTSNode.Proof.LOSS));
+        // the draw is the best result left: the node is a proven draw, not a proven win
+        assertEquals(MCTSNode.Proof.DRAW, node.getProof());
+        assertEquals(0.0, node.getProof().getValue());
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.aquila.chess.strategy.mcts;
+
+import com.chess.engine.bitboards.MutableBoard;
+import com.chess.engine.classic.board.Board;
+import com.chess.pgn.FenUtilities;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class MCTSSearchExecutorTest {
+
+    private static final int NB_THREADS = 4;
+
+    @Test
+    void testThreadsReusedAcrossSearches() throws Exception {
+        try (MCTSSearchExecutor searchExecutor = new MCTSSearchExecutor(NB_THREADS)) {
+            for (int search = 0; search < 10; search++) {
+                final ExecutorCompletionService<Integer> completionService = new ExecutorCompletionService<>(searchExecutor.getExecutorService());
+                for (int i = 0; i < 3 * NB_THREADS; i++) {
+                    completionService.submit(() -> 1);
+                }
+                int nbCalls = 0;
+                for (int i = 0; i < 3 * NB_THREADS; i++) {
+                    nbCalls += completionService.take().get();
+                }
+                assertEquals(3 * NB_THREADS, nbCalls);
+            }
+            assertEquals(10, searchExecutor.getNbSearches());
+            assertEquals(NB_THREADS, searchExecutor.getNbCreatedThreads());
+            searchExecutor.ensureThreads(NB_THREADS + 2);
+            assertEquals(NB_THREADS + 2, searchExecutor.getNbThreads());
+        }
+    }
+
+    @Test
+    void testScratchPositionPerThread() throws Exception {
+        final Board initialBoard = Board.createStandardBoard();
+        final Board otherBoard = FenUtilities.createGameFromFEN("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        try (MCTSSearchExecutor searchExecutor = new MCTSSearchExecutor(NB_THREADS)) {
+            final ExecutorService executorService = searchExecutor.getExecutorService();
+            final List<Future<MutableBoard>> futures = new ArrayList<>();
+            for (int i = 0; i < 2 * NB_THREADS; i++) {
+                futures.add(executorService.submit(() -> {
+                    final MutableBoard position = MCTSSearchExecutor.scratchPosition(initialBoard);
+                    position.makeMove(initialBoard.currentPlayer().getLegalMoves().iterator().next());
+                    assertSame(position, MCTSSearchExecutor.scratchPosition(otherBoard));
+                    assertEquals(otherBoard.getZobristKey(), position.getZobristKey());
+                    assertEquals(0, position.getPly());
+                    return position;
+                }));
+            }
+            for (final Future<MutableBoard> future : futures) {
+                assertNotNull(future.get());
+            }
+        }
+        assertEquals(initialBoard.getZobristKey(), MCTSSearchExecutor.scratchPosition(initialBoard).getZobristKey());
+    }
+
+    @Test
+    void testClose() {
+        final MCTSSearchExecutor searchExecutor = new MCTSSearchExecutor(NB_THREADS);
+        searchExecutor.close();
+        assertTrue(searchExecutor.isShutdown());
+        searchExecutor.close();
+    }
+
+    @Test
+    void testShared() {
+        final MCTSSearchExecutor shared = MCTSSearchExecutor.get(2);
+        assertSame(shared, MCTSSearchExecutor.get(1));
+        assertTrue(MCTSSearchExecutor.get(3).getNbThreads() >= 3);
+    }
+
+}
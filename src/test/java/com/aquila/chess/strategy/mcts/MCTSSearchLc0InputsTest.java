@@ -5,10 +5,12 @@ import com.aquila.chess.Helper;
 import com.aquila.chess.strategy.FixStrategy;
 import com.aquila.chess.strategy.RandomStrategy;
 import com.aquila.chess.strategy.StaticStrategy;
+import com.aquila.chess.strategy.Strategy;
 import com.aquila.chess.strategy.mcts.inputs.InputsManager;
 import com.aquila.chess.strategy.mcts.inputs.lc0.Lc0InputsManagerImpl;
 import com.aquila.chess.strategy.mcts.nnImpls.NNConstants;
 import com.aquila.chess.strategy.mcts.utils.PolicyUtils;
+import com.aquila.chess.strategy.mcts.utils.Statistic;
 import com.chess.engine.classic.Alliance;
 import com.chess.engine.classic.board.Board;
 import com.chess.engine.classic.board.Move;
@@ -21,6 +23,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -28,6 +31,10 @@ import static com.aquila.chess.Game.GameStatus.IN_PROGRESS;
 import static com.chess.engine.classic.Alliance.BLACK;
 import static com.chess.engine.classic.Alliance.WHITE;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @Slf4j
@@ -82,6 +89,570 @@ public class MCTSSearchLc0InputsTest {
     }
 
 
+    @Test
+    void testTreeReuse() throws Exception {
+        final int nbSearchCalls = 400;
+        final InputsManager inputsManager = new Lc0InputsManagerImpl();
+        final Game game = Game.builder().inputsManager(inputsManager).board(Board.createStandardBoard()).build();
+        final DeepLearningAGZ deepLearningWhite = DeepLearningAGZ.builder()
+                .nn(lc0NnTest)
+                .inputsManager(inputsManager)
+                .train(false)
+                .batchSize(50)
+                .build();
+        final MCTSStrategy whiteStrategy = new MCTSStrategy(
+                game,
+                Alliance.WHITE,
+                deepLearningWhite,
+                1,
+                (nbStep, nbLegalMoves) -> 2.5,
+                -1)
+                .withNbSearchCalls(nbSearchCalls)
+                .withTreeReuse(true)
+                .withReuseDirichlet(nbStep -> false);
+        whiteStrategy.setNbThreads(1);
+        // the opponent plays the reply the most visited by the search of white, its subtree is the next root
+        final Strategy blackStrategy = new Strategy() {
+            @Override
+            public Move evaluateNextMove(final Game game, final Move moveOpponent, final List<Move> moves) {
+                final MCTSNode playedNode = whiteStrategy.getDirectRoot().findChild(moveOpponent);
+                final MCTSNode reply = playedNode.getNonNullChildsAsCollection().stream()
+                        .filter(node -> !node.isLeaf())
+                        .max(Comparator.comparingInt(MCTSNode::getVisits))
+                        .get();
+                return moves.stream().filter(move -> move.toString().equals(reply.getMove().toString())).findFirst().get();
+            }
+
+            @Override
+            public String getName() {
+                return "MostVisitedReplyStrategy";
+            }
+
+            @Override
+            public Alliance getAlliance() {
+                return Alliance.BLACK;
+            }
+
+            @Override
+            public void end(final Move move) {
+            }
+        };
+        game.setup(whiteStrategy, blackStrategy);
+        int nbWhiteMoves = 0;
+        for (int i = 0; i < 8 && game.play() == IN_PROGRESS; i++) {
+            if (game.getLastMove().getAllegiance() != WHITE) continue;
+            final MCTSNode root = whiteStrategy.getDirectRoot();
+            final int reusedVisits = whiteStrategy.getStatistic().nbReusedVisits;
+            assertEquals(MCTSNode.State.ROOT, root.getState());
+            assertNull(root.getParent());
+            if (nbWhiteMoves++ > 0) {
+                log.info("reused visits:{} root visits:{}", reusedVisits, root.getVisits());
+                // the played reply is the most visited child of a node searched by several visits
+                assertTrue(reusedVisits > 1, "no subtree reused");
+                assertTrue(root.getVisits() > reusedVisits);
+            }
+            Helper.checkMCTSTree(whiteStrategy);
+        }
+        assertTrue(nbWhiteMoves > 1);
+    }
+
+    @Test
+    void testTranspositions() throws Exception {
+        final int nbSearchCalls = 400;
+        final InputsManager inputsManager = new Lc0InputsManagerImpl();
+        final Game game = Game.builder().inputsManager(inputsManager).board(Board.createStandardBoard()).build();
+        final DeepLearningAGZ deepLearningWhite = DeepLearningAGZ.builder()
+                .nn(lc0NnTest)
+                .inputsManager(inputsManager)
+                .train(false)
+                .batchSize(50)
+                .build();
+        final MCTSStrategy whiteStrategy = new MCTSStrategy(
+                game,
+                Alliance.WHITE,
+                deepLearningWhite,
+                1,
+                (nbStep, nbLegalMoves) -> 2.5,
+                -1)
+                .withNbSearchCalls(nbSearchCalls)
+                .withTreeReuse(true)
+                .withTranspositions(true);
+        final RandomStrategy blackStrategy = new RandomStrategy(Alliance.BLACK, 2);
+        game.setup(whiteStrategy, blackStrategy);
+        for (int i = 0; i < 6 && game.play() == IN_PROGRESS; i++) {
+            if (game.getLastMove().getAllegiance() != WHITE) continue;
+            final MCTSNode root = whiteStrategy.getDirectRoot();
+            log.info("transpositions:{} positions:{}", whiteStrategy.getStatistic().nbTranspositions, whiteStrategy.getTranspositions().size());
+            assertTrue(whiteStrategy.getTranspositions().size() > 0);
+            // the root children are always expanded, the best move has a node
+            root.getChildNodes().values().forEach(childNode -> assertNull(childNode.getTransposition()));
+            assertTrue(root.getVisits() > 0);
+        }
+    }
+
+    /**
+     * a3 a6 b3 and b3 a6 a3 reach the same position: the second line must be linked to the node of the first one
+     */
+    @Test
+    void testTranspositionsShared() throws Exception {
+        final InputsManager inputsManager = new Lc0InputsManagerImpl();
+        final Board board = Board.createBoard("kh1,pa2,pb2", "kh8,pa7,pb7", WHITE);
+        final Game game = Game.builder().inputsManager(inputsManager).board(board).build();
+        final DeepLearningAGZ deepLearningWhite = DeepLearningAGZ.builder()
+                .nn(lc0NnTest)
+                .inputsManager(inputsManager)
+                .train(false)
+                .batchSize(50)
+                .build();
+        final MCTSStrategy whiteStrategy = new MCTSStrategy(
+                game,
+                Alliance.WHITE,
+                deepLearningWhite,
+                1,
+                (nbStep, nbLegalMoves) -> 2.5,
+                -1)
+                .withNbSearchCalls(1600)
+                .withTranspositions(true);
+        final RandomStrategy blackStrategy = new RandomStrategy(Alliance.BLACK, 2);
+        game.setup(whiteStrategy, blackStrategy);
+        assertEquals(IN_PROGRESS, game.play());
+        final MCTSNode root = whiteStrategy.getDirectRoot();
+        log.info("transpositions:{} positions:{}", whiteStrategy.getStatistic().nbTranspositions, whiteStrategy.getTranspositions().size());
+        assertTrue(whiteStrategy.getStatistic().nbTranspositions > 0, "no transposition found");
+        final List<MCTSNode> nodes = root.allChildNodes();
+        nodes.add(root);
+        int nbLinks = 0;
+        for (MCTSNode node : nodes) {
+            for (var entry : node.getChildNodes().entrySet()) {
+                final MCTSNode.ChildNode childNode = entry.getValue();
+                final MCTSNode transposition = childNode.getTransposition();
+                if (transposition == null) continue;
+                nbLinks++;
+                // the edge shares the node of the position registered by the other line, it does not own a copy
+                assertSame(whiteStrategy.getTranspositions().get(entry.getKey().calculateZobristKey()), transposition);
+                assertNull(childNode.getNode());
+                assertNotSame(node, transposition.getParent());
+                assertTrue(transposition.isAttachedTo(root));
+                // the visits through the edge backed up the value of the shared node, known once it is synchronised
+                assertTrue(childNode.getVisits() > 0);
+                assertTrue(transposition.isSync());
+            }
+        }
+        assertTrue(nbLinks > 0, "no transposition linked");
+        Helper.checkMCTSTree(whiteStrategy);
+    }
+
+    @Test
+    void testTreeBudget() throws Exception {
+        final int maxNodes = 100;
+        final InputsManager inputsManager = new Lc0InputsManagerImpl();
+        final Game game = Game.builder().inputsManager(inputsManager).board(Board.createStandardBoard()).build();
+        final DeepLearningAGZ deepLearningWhite = DeepLearningAGZ.builder()
+                .nn(lc0NnTest)
+                .inputsManager(inputsManager)
+                .train(false)
+                .batchSize(10)
+                .build();
+        final MCTSStrategy whiteStrategy = new MCTSStrategy(
+                game,
+                Alliance.WHITE,
+                deepLearningWhite,
+                1,
+                (nbStep, nbLegalMoves) -> 2.5,
+                -1)
+                .withNbSearchCalls(800)
+                .withMaxNodes(maxNodes);
+        final RandomStrategy blackStrategy = new RandomStrategy(Alliance.BLACK, 2);
+        game.setup(whiteStrategy, blackStrategy);
+        assertEquals(IN_PROGRESS, game.play());
+        final MCTSNode root = whiteStrategy.getDirectRoot();
+        log.info("STATS: {}", whiteStrategy.getStatistic());
+        assertTrue(whiteStrategy.getStatistic().nbReclaimedNodes > 0, "no node reclaimed");
+        assertTrue(whiteStrategy.getStatistic().treeMBytes >= 0);
+        // the root and its children are never reclaimed
+        assertTrue(root.getNonNullChildsAsCollection().size() > 0);
+        assertTrue(root.getNumberOfAllNodes() < 800);
+    }
+
+    @Test
+    void testLeavesPerWalker() throws Exception {
+        final InputsManager inputsManager = new Lc0InputsManagerImpl();
+        final Game game = Game.builder().inputsManager(inputsManager).board(Board.createStandardBoard()).build();
+        final DeepLearningAGZ deepLearningWhite = DeepLearningAGZ.builder()
+                .nn(lc0NnTest)
+                .inputsManager(inputsManager)
+                .train(false)
+                .batchSize(16)
+                .build();
+        final MCTSStrategy whiteStrategy = new MCTSStrategy(
+                game,
+                Alliance.WHITE,
+                deepLearningWhite,
+                1,
+                (nbStep, nbLegalMoves) -> 2.5,
+                -1)
+                .withNbSearchCalls(400)
+                .withLeavesPerWalker(8);
+        whiteStrategy.setNbThreads(2);
+        final RandomStrategy blackStrategy = new RandomStrategy(Alliance.BLACK, 2);
+        game.setup(whiteStrategy, blackStrategy);
+        assertEquals(IN_PROGRESS, game.play());
+        final MCTSNode root = whiteStrategy.getDirectRoot();
+        log.info("STATS: {}", whiteStrategy.getStatistic());
+        assertTrue(root.getVisits() > 0);
+        assertEquals(0.0, root.getVirtualLoss());
+        root.allChildNodes().forEach(node -> assertEquals(0.0, node.getVirtualLoss(), "virtual loss not released:" + node));
+        Helper.checkMCTSTree(whiteStrategy);
+    }
+
+    @Test
+    void testSmartStop() throws Exception {
+        final InputsManager inputsManager = new Lc0InputsManagerImpl();
+        // the white king in check has only one legal move: h2
+        final Board board = Board.createBoard("kh1", "ra1,rg8,kc8", WHITE);
+        final Game game = Game.builder().inputsManager(inputsManager).board(board).build();
+        final DeepLearningAGZ deepLearningWhite = DeepLearningAGZ.builder()
+                .nn(lc0NnTest)
+                .inputsManager(inputsManager)
+                .train(false)
+                .batchSize(10)
+                .build();
+        final MCTSStrategy whiteStrategy = new MCTSStrategy(
+                game,
+                Alliance.WHITE,
+                deepLearningWhite,
+                1,
+                (nbStep, nbLegalMoves) -> 2.5,
+                -1)
+                .withNbSearchCalls(2000)
+                .withSmartStop(true);
+        whiteStrategy.setNbThreads(1);
+        final RandomStrategy blackStrategy = new RandomStrategy(Alliance.BLACK, 2);
+        game.setup(whiteStrategy, blackStrategy);
+        game.play();
+        log.info("STATS: {}", whiteStrategy.getStatistic());
+        assertTrue(whiteStrategy.getStatistic().nbSavedSimulations > 0, "search not stopped");
+        assertTrue(whiteStrategy.getDirectRoot().getVisits() < 2000);
+    }
+
+    @Test
+    void testLazyChildEvaluation() throws Exception {
+        final InputsManager inputsManager = new Lc0InputsManagerImpl();
+        final Board board = Board.createStandardBoard();
+        final Game game = Game.builder().inputsManager(inputsManager).board(board).build();
+        final DeepLearningAGZ deepLearningWhite = DeepLearningAGZ.builder()
+                .nn(lc0NnTest)
+                .inputsManager(inputsManager)
+                .train(false)
+                .batchSize(10)
+                .build();
+        final MCTSStrategy whiteStrategy = new MCTSStrategy(
+                game,
+                Alliance.WHITE,
+                deepLearningWhite,
+                1,
+                (nbStep, nbLegalMoves) -> 2.5,
+                -1)
+                .withNbSearchCalls(200);
+        whiteStrategy.setNbThreads(1);
+        final RandomStrategy blackStrategy = new RandomStrategy(Alliance.BLACK, 2);
+        game.setup(whiteStrategy, blackStrategy);
+        game.play();
+        log.info("STATS: {}", whiteStrategy.getStatistic());
+        // only the chosen children are submitted to the NN, not all the legal moves of the visited nodes
+        assertTrue(whiteStrategy.getStatistic().nbSubmitJobs <= whiteStrategy.getDirectRoot().getNumberOfAllNodes() + 1,
+                "jobs submitted for children not expanded");
+    }
+
+    @Test
+    void testBlockingEvaluation() throws Exception {
+        final InputsManager inputsManager = new Lc0InputsManagerImpl();
+        final Board board = Board.createStandardBoard();
+        final Game game = Game.builder().inputsManager(inputsManager).board(board).build();
+        final DeepLearningAGZ deepLearningWhite = DeepLearningAGZ.builder()
+                .nn(lc0NnTest)
+                .inputsManager(inputsManager)
+                .train(false)
+                .batchSize(8)
+                .build();
+        final MCTSStrategy whiteStrategy = new MCTSStrategy(
+                game,
+                Alliance.WHITE,
+                deepLearningWhite,
+                1,
+                (nbStep, nbLegalMoves) -> 2.5,
+                -1)
+                .withNbSearchCalls(400)
+                .withBlockingEvaluation(true);
+        whiteStrategy.setNbThreads(8);
+        final RandomStrategy blackStrategy = new RandomStrategy(Alliance.BLACK, 2);
+        game.setup(whiteStrategy, blackStrategy);
+        game.play();
+        log.info("STATS: {}", whiteStrategy.getStatistic());
+        assertTrue(whiteStrategy.getStatistic().nbBlockingEvaluations > 0, "no blocking evaluation");
+        // the walkers backed up their values, nothing is left to the deferred propagation
+        assertTrue(deepLearningWhite.getServiceNN().getNodesToPropagate().isEmpty());
+        assertTrue(whiteStrategy.getDirectRoot().getVisits() >= whiteStrategy.getStatistic().nbBlockingEvaluations);
+    }
+
+    @Test
+    void testPonder() throws Exception {
+        final InputsManager inputsManager = new Lc0InputsManagerImpl();
+        final Board board = Board.createStandardBoard();
+        final Game game = Game.builder().inputsManager(inputsManager).board(board).build();
+        final DeepLearningAGZ deepLearningWhite = DeepLearningAGZ.builder()
+                .nn(lc0NnTest)
+                .inputsManager(inputsManager)
+                .train(false)
+                .batchSize(10)
+                .build();
+        final MCTSStrategy whiteStrategy = new MCTSStrategy(
+                game,
+                Alliance.WHITE,
+                deepLearningWhite,
+                1,
+                (nbStep, nbLegalMoves) -> 2.5,
+                -1)
+                .withNbSearchCalls(400)
+                .withTreeReuse(true)
+                .withPonder(true);
+        whiteStrategy.setNbThreads(2);
+        final MCTSNode[] ponderedNode = new MCTSNode[1];
+        final int[] parentVisits = new int[2];
+        // the opponent thinks while the ponder search runs, and plays the predicted reply
+        final Strategy blackStrategy = new Strategy() {
+            @Override
+            public Move evaluateNextMove(final Game game, final Move moveOpponent, final List<Move> moves) throws Exception {
+                ponderedNode[0] = whiteStrategy.getPonderNode();
+                assertNotNull(ponderedNode[0], "no ponder search");
+                parentVisits[0] = ponderedNode[0].getParent().getVisits();
+                Thread.sleep(200);
+                parentVisits[1] = ponderedNode[0].getParent().getVisits();
+                return moves.stream().filter(move -> move.toString().equals(ponderedNode[0].getMove().toString())).findFirst().get();
+            }
+
+            @Override
+            public String getName() {
+                return "PonderedReplyStrategy";
+            }
+
+            @Override
+            public Alliance getAlliance() {
+                return Alliance.BLACK;
+            }
+
+            @Override
+            public void end(final Move move) {
+            }
+        };
+        game.setup(whiteStrategy, blackStrategy);
+        game.play();
+        game.play();
+        game.play();
+        final Statistic statistic = whiteStrategy.getStatistic();
+        log.info("STATS: {}", statistic);
+        assertEquals(1, statistic.nbPonderHits);
+        assertEquals(0, statistic.nbPonderMisses);
+        assertTrue(statistic.nbPonderVisits > 0, "ponder hit without visits");
+        // the ponder search backs up its values to the pondered node only
+        assertEquals(parentVisits[0], parentVisits[1]);
+        // the pondered subtree is the next root, with its visits
+        assertSame(ponderedNode[0], whiteStrategy.getDirectRoot());
+        assertTrue(statistic.nbReusedVisits >= statistic.nbPonderVisits, "ponder visits not reused");
+        whiteStrategy.end(game.getLastMove());
+    }
+
+    @Test
+    void testPonderMiss() throws Exception {
+        final InputsManager inputsManager = new Lc0InputsManagerImpl();
+        final Board board = Board.createStandardBoard();
+        final Game game = Game.builder().inputsManager(inputsManager).board(board).build();
+        final DeepLearningAGZ deepLearningWhite = DeepLearningAGZ.builder()
+                .nn(lc0NnTest)
+                .inputsManager(inputsManager)
+                .train(false)
+                .batchSize(10)
+                .build();
+        final MCTSStrategy whiteStrategy = new MCTSStrategy(
+                game,
+                Alliance.WHITE,
+                deepLearningWhite,
+                1,
+                (nbStep, nbLegalMoves) -> 2.5,
+                -1)
+                .withNbSearchCalls(400)
+                .withTreeReuse(true)
+                .withPonder(true);
+        whiteStrategy.setNbThreads(2);
+        final MCTSNode[] ponderedNode = new MCTSNode[1];
+        // the opponent plays another reply than the predicted one
+        final Strategy blackStrategy = new Strategy() {
+            @Override
+            public Move evaluateNextMove(final Game game, final Move moveOpponent, final List<Move> moves) throws Exception {
+                ponderedNode[0] = whiteStrategy.getPonderNode();
+                assertNotNull(ponderedNode[0], "no ponder search");
+                Thread.sleep(100);
+                return moves.stream().filter(move -> !move.toString().equals(ponderedNode[0].getMove().toString())).findFirst().get();
+            }
+
+            @Override
+            public String getName() {
+                return "OtherReplyStrategy";
+            }
+
+            @Override
+            public Alliance getAlliance() {
+                return Alliance.BLACK;
+            }
+
+            @Override
+            public void end(final Move move) {
+            }
+        };
+        game.setup(whiteStrategy, blackStrategy);
+        game.play();
+        game.play();
+        game.play();
+        final Statistic statistic = whiteStrategy.getStatistic();
+        assertEquals(0, statistic.nbPonderHits);
+        assertEquals(1, statistic.nbPonderMisses);
+        // the pondered node is back to an intermediate node of the old tree
+        assertEquals(MCTSNode.State.INTERMEDIATE, ponderedNode[0].getState());
+        assertEquals(MCTSNode.State.ROOT, whiteStrategy.getDirectRoot().getState());
+        Helper.checkMCTSTree(whiteStrategy);
+        whiteStrategy.end(game.getLastMove());
+    }
+
+    @Test
+    void testRootParallel() throws Exception {
+        final InputsManager inputsManager = new Lc0InputsManagerImpl();
+        final Board board = Board.createStandardBoard();
+        final Game game = Game.builder().inputsManager(inputsManager).board(board).build();
+        final DeepLearningAGZ deepLearningWhite = DeepLearningAGZ.builder()
+                .nn(lc0NnTest)
+                .inputsManager(inputsManager)
+                .train(false)
+                .batchSize(8)
+                .build();
+        final MCTSStrategy whiteStrategy = new MCTSStrategy(
+                game,
+                Alliance.WHITE,
+                deepLearningWhite,
+                1,
+                (nbStep, nbLegalMoves) -> 2.5,
+                -1)
+                .withNbSearchCalls(400)
+                .withRootParallel(2);
+        whiteStrategy.setNbThreads(4);
+        final RandomStrategy blackStrategy = new RandomStrategy(Alliance.BLACK, 2);
+        game.setup(whiteStrategy, blackStrategy);
+        game.play();
+        log.info("STATS: {}", whiteStrategy.getStatistic());
+        assertEquals(2, whiteStrategy.getStatistic().nbRootTrees);
+        final MCTSNode root = whiteStrategy.getDirectRoot();
+        final int childVisits = root.getNonNullChildsAsCollection().stream().mapToInt(MCTSNode::getVisits).sum();
+        // the visits of both trees are on the merged root
+        assertTrue(root.getVisits() >= childVisits, "root visits not merged");
+        assertTrue(childVisits > whiteStrategy.getStatistic().nbBlockingEvaluations / 2, "children visits not merged");
+        root.getNonNullChildsAsCollection().forEach(child -> assertEquals(root, child.getParent()));
+    }
+
+    @Test
+    void testIterativeDescent() throws Exception {
+        final InputsManager inputsManager = new Lc0InputsManagerImpl();
+        final Game game = Game.builder().inputsManager(inputsManager).board(Board.createStandardBoard()).build();
+        final DeepLearningAGZ deepLearningWhite = DeepLearningAGZ.builder()
+                .nn(lc0NnTest)
+                .inputsManager(inputsManager)
+                .train(false)
+                .batchSize(16)
+                .build();
+        final MCTSStrategy whiteStrategy = new MCTSStrategy(
+                game,
+                Alliance.WHITE,
+                deepLearningWhite,
+                1,
+                (nbStep, nbLegalMoves) -> 2.5,
+                -1)
+                .withNbSearchCalls(800);
+        whiteStrategy.setNbThreads(4);
+        final RandomStrategy blackStrategy = new RandomStrategy(Alliance.BLACK, 2);
+        game.setup(whiteStrategy, blackStrategy);
+        assertEquals(IN_PROGRESS, game.play());
+        final MCTSNode root = whiteStrategy.getDirectRoot();
+        log.info("STATS: {}", whiteStrategy.getStatistic());
+        // the descents go deeper than the children of the root, and release the virtual losses of all their path
+        assertTrue(root.allChildNodes().stream().anyMatch(node -> node.getParent() != root && node.getParent().getParent() != root));
+        assertEquals(0.0, root.getVirtualLoss());
+        root.allChildNodes().forEach(node -> assertEquals(0.0, node.getVirtualLoss(), "virtual loss not released:" + node));
+        Helper.checkMCTSTree(whiteStrategy);
+    }
+
+    @Test
+    void testSolver() throws Exception {
+        final InputsManager inputsManager = new Lc0InputsManagerImpl();
+        // Ra8 is mate
+        final Board board = Board.createBoard("ra1,kg6", "kh8", WHITE);
+        final Game game = Game.builder().inputsManager(inputsManager).board(board).build();
+        final DeepLearningAGZ deepLearningWhite = DeepLearningAGZ.builder()
+                .nn(lc0NnTest)
+                .inputsManager(inputsManager)
+                .train(false)
+                .batchSize(10)
+                .build();
+        final MCTSStrategy whiteStrategy = new MCTSStrategy(
+                game,
+                Alliance.WHITE,
+                deepLearningWhite,
+                1,
+                (nbStep, nbLegalMoves) -> 2.5,
+                -1)
+                .withNbSearchCalls(800);
+        whiteStrategy.setNbThreads(1);
+        final RandomStrategy blackStrategy = new RandomStrategy(Alliance.BLACK, 2);
+        game.setup(whiteStrategy, blackStrategy);
+        game.play();
+        log.info("STATS: {}", whiteStrategy.getStatistic());
+        final MCTSNode root = whiteStrategy.getDirectRoot();
+        assertEquals(MCTSNode.Proof.LOSS, root.getProof());
+        assertEquals(MCTSNode.Proof.WIN, root.findChild(game.getLastMove()).getProof());
+        assertTrue(whiteStrategy.getStatistic().nbSolvedNodes > 0);
+        // the search stops as soon as the root is solved
+        assertTrue(root.getVisits() < 800);
+    }
+
+    @Test
+    void testTimeManager() throws Exception {
+        final InputsManager inputsManager = new Lc0InputsManagerImpl();
+        final Board board = Board.createStandardBoard();
+        final Game game = Game.builder().inputsManager(inputsManager).board(board).build();
+        final DeepLearningAGZ deepLearningWhite = DeepLearningAGZ.builder()
+                .nn(lc0NnTest)
+                .inputsManager(inputsManager)
+                .train(false)
+                .batchSize(10)
+                .build();
+        final MCTSStrategy whiteStrategy = new MCTSStrategy(
+                game,
+                Alliance.WHITE,
+                deepLearningWhite,
+                1,
+                (nbStep, nbLegalMoves) -> 2.5,
+                -1)
+                .withNbSearchCalls(800)
+                .withGameClock(30_000, 100);
+        whiteStrategy.setNbThreads(4);
+        final RandomStrategy blackStrategy = new RandomStrategy(Alliance.BLACK, 2);
+        game.setup(whiteStrategy, blackStrategy);
+        game.play();
+        final MCTSTimeManager timeManager = whiteStrategy.getTimeManager();
+        log.info("STATS: {}", whiteStrategy.getStatistic());
+        assertTrue(timeManager.getSoftMillis() < timeManager.getHardMillis());
+        // the walkers stop at the hard deadline, only the last flush of the batch can overshoot it
+        assertTrue(timeManager.getUsedMillis() < timeManager.getHardMillis() + 1000, "move overshoot");
+        assertEquals(30_000 - timeManager.getUsedMillis() + 100, timeManager.getRemainingMillis());
+    }
+
     @Test
     void testInitSearch() {
         int seed = 10;
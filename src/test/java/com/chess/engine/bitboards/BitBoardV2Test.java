@@ -1,7 +1,22 @@
 package com.chess.engine.bitboards;
 
+import com.aquila.chess.AbstractGame;
+import com.chess.engine.classic.Alliance;
+import com.chess.engine.classic.board.Board;
+import com.chess.engine.classic.board.BoardUtils;
+import com.chess.engine.classic.board.Move;
+import com.chess.engine.classic.pieces.Piece;
+import com.chess.engine.classic.pieces.Piece.PieceType;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -10,8 +25,140 @@ class BitBoardV2Test {
 
     @Test
     public void test() {
-        BitBoardV2 v2 = BitBoardV2.standardBoard().calculateLegalMoves();
+        BitBoardV2 v2 = BitBoardV2.standardBoard();
         log.info("v2:{}", v2);
+        final Board board = Board.createStandardBoard();
+        assertEquals(v2.getAllPieces(), board.getBitBoard().getAllPieces());
+        assertEquals(v2.getCastlingRights(), board.getBitBoard().getCastlingRights());
+        final List<Move> moves = v2.calculateLegalMoves(board, Alliance.WHITE);
+        log.info("moves:{}", moves);
+        assertEquals(20, moves.size());
+        assertEquals(0L, v2.calculateAttackedTiles(Alliance.WHITE) & v2.getBlackPieces());
+    }
+
+    @Test
+    public void testBoardPieces() {
+        final Board board = Board.createStandardBoard().currentPlayer().getLegalMoves().stream()
+                .filter(move -> move.toString().equals("e4")).findFirst().orElseThrow().execute();
+        final BitBoardV2 v2 = board.getBitBoard();
+        for (int square = 0; square < BoardUtils.NUM_TILES; square++) {
+            assertEquals(v2.isOccupied(square), board.getPiece(square) != null, "square:" + square);
+        }
+        assertNull(board.getPiece(-1));
+        assertNull(board.getPiece(BoardUtils.NUM_TILES));
+        assertEquals(16, board.getWhitePieces().size());
+        assertEquals(16, board.getBlackPieces().size());
+        assertEquals(32, board.getAllPieces().size());
+        board.getWhitePieces().forEach(piece -> assertEquals(Alliance.WHITE, piece.getPieceAllegiance()));
+        board.getBlackPieces().forEach(piece -> assertEquals(Alliance.BLACK, piece.getPieceAllegiance()));
+    }
+
+    @Test
+    public void testMagics() {
+        final Random rand = new Random(1);
+        for (int square = 0; square < 64; square++) {
+            for (int i = 0; i < 200; i++) {
+                final long occupied = rand.nextLong() & rand.nextLong();
+                assertEquals(Magics.rookAttacksSlow(square, occupied), Magics.rookAttacks(square, occupied));
+                assertEquals(Magics.bishopAttacksSlow(square, occupied), Magics.bishopAttacks(square, occupied));
+            }
+        }
+    }
+
+    /**
+     * play random games and check the bitboard generator against the moves of the classic pieces, kept only if the
+     * king is not attacked by any opponent piece once the move is executed: no bitboard mask is used by the reference
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 5, 6})
+    void testSameMovesAsClassic(int seed) {
+        Board board = Board.createStandardBoard();
+        Random rand = new Random(seed);
+        int nbStep = 0;
+        while (!BoardUtils.isEndGame(board) && nbStep < AbstractGame.NUMBER_OF_MAX_STEPS) {
+            final Alliance alliance = board.currentPlayer().getAlliance();
+            final List<Move> expectedMoves = new ArrayList<>();
+            for (int square = 0; square < BoardUtils.NUM_TILES; square++) {
+                final Piece piece = board.getPiece(square);
+                if (piece == null || piece.getPieceAllegiance() != alliance) continue;
+                for (final Move move : piece.calculateLegalMoves(board)) {
+                    if (!isKingAttacked(move.execute(), alliance)) expectedMoves.add(move);
+                }
+            }
+            final List<Move> bitBoardMoves = board.getBitBoard().calculateLegalMoves(board, alliance);
+            final List<Move> castleMoves = bitBoardMoves.stream().filter(Move::isCastlingMove).toList();
+            for (final Move castleMove : castleMoves) {
+                assertFalse(isKingAttacked(board, alliance), castleMove.toString());
+                final int crossedSquare = (castleMove.getCurrentCoordinate() + castleMove.getDestinationCoordinate()) / 2;
+                assertFalse(isTileAttacked(board, crossedSquare, alliance), castleMove.toString());
+                assertFalse(isKingAttacked(castleMove.execute(), alliance), castleMove.toString());
+            }
+            expectedMoves.addAll(castleMoves);
+            assertEquals(toStrings(expectedMoves), toStrings(bitBoardMoves), board.toString());
+            assertEquals(expectedMoves.size(), bitBoardMoves.size(), board.toString());
+            assertEquals(toStrings(expectedMoves), toStrings(board.currentPlayer().getLegalMoves(Move.MoveStatus.DONE)), board.toString());
+            for (final Move move : board.currentPlayer().getLegalMoves()) {
+                final boolean legal = !isKingAttacked(move.execute(), alliance);
+                assertEquals(legal, board.getBitBoard().isLegal(move), move.toString());
+            }
+            final Move move = bitBoardMoves.get(rand.nextInt(bitBoardMoves.size()));
+            board = board.currentPlayer().executeMove(move);
+            assertEquals(BitBoardV2.fromBoard(board).getAllPieces(), board.getBitBoard().getAllPieces());
+            nbStep++;
+        }
+        log.info("[{}] nbStep:{}", seed, nbStep);
+    }
+
+    /**
+     * @return true if one of the opponent pieces can move on the king of the given alliance
+     */
+    private static boolean isKingAttacked(final Board board, final Alliance alliance) {
+        int kingSquare = -1;
+        for (int square = 0; square < BoardUtils.NUM_TILES; square++) {
+            final Piece piece = board.getPiece(square);
+            if (piece != null && piece.getPieceAllegiance() == alliance && piece.getPieceType() == PieceType.KING) {
+                kingSquare = square;
+            }
+        }
+        return isTileAttacked(board, kingSquare, alliance);
+    }
+
+    /**
+     * @return true if one of the opponent pieces of the given alliance can move on the tile (pawn pushes excluded)
+     */
+    private static boolean isTileAttacked(final Board board, final int tile, final Alliance alliance) {
+        for (int square = 0; square < BoardUtils.NUM_TILES; square++) {
+            final Piece piece = board.getPiece(square);
+            if (piece == null || piece.getPieceAllegiance() == alliance) continue;
+            for (final Move move : piece.calculateLegalMoves(board)) {
+                if (piece.getPieceType() == PieceType.PAWN && !move.isAttack()) continue;
+                if (move.getDestinationCoordinate() == tile) return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    void testPinsAndChecks() {
+        Board board = Board.createBoard("ke1,ne2,h2", "kh8,re8", Alliance.WHITE);
+        BitBoardV2 bitBoard = board.getBitBoard();
+        assertEquals(1L << 52, bitBoard.calculatePinnedPieces(Alliance.WHITE));
+        assertTrue(board.whitePlayer().generateLegalMoves().stream()
+                .noneMatch(move -> move.getMovedPiece().getPieceType() == PieceType.KNIGHT));
+        // double check: only the king can move
+        board = Board.createBoard("ke1,qd1,h2", "kh8,re8,nd3", Alliance.WHITE);
+        bitBoard = board.getBitBoard();
+        assertEquals(2, Long.bitCount(bitBoard.calculateCheckers(Alliance.WHITE)));
+        final List<Move> moves = board.whitePlayer().generateLegalMoves();
+        assertFalse(moves.isEmpty());
+        assertTrue(moves.stream().allMatch(move -> move.getMovedPiece().getPieceType() == PieceType.KING), moves.toString());
+        assertEquals(Move.MoveStatus.LEAVES_PLAYER_IN_CHECK, board.whitePlayer().makeMove(board.whitePlayer().getMove("h2-h3").get()).getMoveStatus());
+    }
+
+    private static HashSet<String> toStrings(final List<Move> moves) {
+        return moves.stream()
+                .map(move -> move.getClass().getSimpleName() + ":" + move.getCurrentCoordinate() + "-" + move.getDestinationCoordinate() + ":" + move)
+                .collect(Collectors.toCollection(HashSet::new));
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package com.chess.engine.bitboards;
+
+import com.chess.engine.classic.Alliance;
+import com.chess.engine.classic.board.Board;
+import com.chess.engine.classic.board.Move;
+import com.chess.engine.classic.pieces.Piece.PieceType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntMoveTest {
+
+    @Test
+    void testRoundTrip() {
+        final Board board = Board.createBoard("ke1kq,ra1,rh1,b7,d5", "ke8,nc8,e5", Alliance.WHITE);
+        for (final Move move : board.currentPlayer().generateLegalMoves()) {
+            final int intMove = IntMove.encode(move);
+            assertEquals(move.getCurrentCoordinate(), IntMove.from(intMove));
+            assertEquals(move.getDestinationCoordinate(), IntMove.to(intMove));
+            assertEquals(move.getMovedPiece().getPieceType(), IntMove.movedPieceType(intMove));
+            assertEquals(move.isAttack(), IntMove.isCapture(intMove));
+            assertEquals(move.isCastlingMove(), IntMove.isCastle(intMove));
+            final Move back = IntMove.toMove(intMove, board);
+            assertSame(move.getClass(), back.getClass(), move::toString);
+            assertEquals(IntMove.toString(intMove), IntMove.toString(IntMove.encode(back)));
+        }
+    }
+
+    @Test
+    void testFlags() {
+        final Board board = Board.createBoard("ke1,d2", "ke8,e4", Alliance.WHITE);
+        final Move jump = board.currentPlayer().getMove("d2-d4").orElseThrow();
+        assertTrue(IntMove.isPawnJump(IntMove.encode(jump)));
+        final Board afterJump = jump.execute();
+        final int enPassant = IntMove.encode(afterJump.currentPlayer().getMove("e4-d3").orElseThrow());
+        assertTrue(IntMove.isEnPassant(enPassant));
+        assertTrue(IntMove.isCapture(enPassant));
+        assertEquals("e4d3", IntMove.toString(enPassant));
+
+        final Board promotionBoard = Board.createBoard("ke1,b7", "ke8,nc8", Alliance.WHITE);
+        final long nbPromotions = promotionBoard.currentPlayer().generateLegalMoves().stream()
+                .map(IntMove::encode)
+                .filter(move -> IntMove.promotion(move) != -1)
+                .count();
+        assertEquals(8, nbPromotions);
+        assertEquals(PieceType.PAWN, IntMove.movedPieceType(IntMove.encode(promotionBoard.currentPlayer().getMove("b7-c8").orElseThrow())));
+    }
+
+    @Test
+    void testToMoveIllegal() {
+        final Board board = Board.createStandardBoard();
+        final int move = IntMove.encode(52, 28, PieceType.PAWN.ordinal(), -1, 0);
+        assertThrows(RuntimeException.class, () -> IntMove.toMove(move, board));
+    }
+
+}
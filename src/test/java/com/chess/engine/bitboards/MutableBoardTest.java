@@ -0,0 +1,100 @@
+package com.chess.engine.bitboards;
+
+import com.aquila.chess.AbstractGame;
+import com.chess.engine.classic.Alliance;
+import com.chess.engine.classic.board.Board;
+import com.chess.engine.classic.board.BoardUtils;
+import com.chess.engine.classic.board.Move;
+import com.chess.engine.classic.pieces.Piece.PieceType;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class MutableBoardTest {
+
+    @Test
+    void testMakeUnmake() {
+        final Board board = Board.createStandardBoard();
+        final MutableBoard position = MutableBoard.fromBoard(board);
+        final Move move = board.currentPlayer().getMove("e2-e4").get();
+        position.makeMove(move);
+        assertEquals(Alliance.BLACK, position.getNextMoveMaker());
+        assertEquals(move.getDestinationCoordinate(), position.getEnPassantSquare());
+        assertSamePosition(move.execute().getBitBoard(), position);
+        position.unmakeMove();
+        assertSamePosition(board.getBitBoard(), position);
+        assertEquals(0, position.getPly());
+        assertThrows(RuntimeException.class, position::unmakeMove);
+    }
+
+    /**
+     * play random games on both the classic boards and one mutable position, then take every move back
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 5, 6})
+    void testSameAsClassic(int seed) {
+        Board board = Board.createStandardBoard();
+        final MutableBoard position = MutableBoard.fromBoard(board);
+        final List<Board> boards = new ArrayList<>();
+        final Random rand = new Random(seed);
+        while (!BoardUtils.isEndGame(board) && boards.size() < AbstractGame.NUMBER_OF_MAX_STEPS) {
+            final List<Move> legalMoves = board.currentPlayer().getLegalMoves(Move.MoveStatus.DONE);
+            assertEquals(!legalMoves.isEmpty(), position.hasLegalMoves(), board.toString());
+            assertEquals(board.currentPlayer().isInCheck(), position.isInCheck(), board.toString());
+            final int[] moves = MoveBufferPool.acquire();
+            final int nbMoves = position.generateLegalMoves(moves);
+            assertEquals(legalMoves.stream().map(IntMove::encode).collect(Collectors.toSet()),
+                    Arrays.stream(moves, 0, nbMoves).boxed().collect(Collectors.toSet()), board.toString());
+            MoveBufferPool.release(moves);
+            for (final Move move : legalMoves) {
+                position.makeMove(move);
+                assertSamePosition(move.execute().getBitBoard(), position);
+                position.unmakeMove();
+            }
+            assertSamePosition(board.getBitBoard(), position);
+            final Move move = legalMoves.get(rand.nextInt(legalMoves.size()));
+            boards.add(board);
+            position.makeMove(move);
+            board = board.currentPlayer().executeMove(move);
+        }
+        assertEquals(board.currentPlayer().isInCheckMate(), position.isCheckMate());
+        assertEquals(board.currentPlayer().isInStaleMate(), position.isStaleMate());
+        log.info("[{}] nbStep:{} halfMoveClock:{}", seed, boards.size(), position.getHalfMoveClock());
+        for (int i = boards.size() - 1; i >= 0; i--) {
+            position.unmakeMove();
+            assertSamePosition(boards.get(i).getBitBoard(), position);
+        }
+    }
+
+    @Test
+    void testInsufficientMaterial() {
+        assertTrue(MutableBoard.fromBoard(Board.createBoard("ke1,nb1", "ke8,bc8", Alliance.WHITE)).isInsufficientMaterial());
+        assertTrue(MutableBoard.fromBoard(Board.createBoard("ke1,nb1,ng1", "ke8", Alliance.WHITE)).isInsufficientMaterial());
+        assertFalse(MutableBoard.fromBoard(Board.createBoard("ke1,rh1", "ke8", Alliance.WHITE)).isInsufficientMaterial());
+        assertFalse(MutableBoard.fromBoard(Board.createBoard("ke1", "ke8,a7", Alliance.WHITE)).isInsufficientMaterial());
+    }
+
+    private static void assertSamePosition(final BitBoardV2 expected, final MutableBoard position) {
+        for (final Alliance alliance : Alliance.values()) {
+            for (final PieceType pieceType : PieceType.values()) {
+                assertEquals(expected.getPieces(alliance, pieceType), position.getPieces(alliance, pieceType),
+                        () -> String.format("%s %s\n%s", alliance, pieceType, position));
+            }
+        }
+        assertEquals(expected.getNextMoveMaker(), position.getNextMoveMaker());
+        assertEquals(expected.getCastlingRights(), position.getCastlingRights(), position::toString);
+        assertEquals(expected.getEnPassantSquare(), position.getEnPassantSquare());
+        assertEquals(Zobrist.calculateKey(expected), position.getZobristKey(), position::toString);
+    }
+
+}
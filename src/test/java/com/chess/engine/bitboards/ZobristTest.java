@@ -0,0 +1,77 @@
+package com.chess.engine.bitboards;
+
+import com.aquila.chess.AbstractGame;
+import com.chess.engine.classic.Alliance;
+import com.chess.engine.classic.board.Board;
+import com.chess.engine.classic.board.BoardUtils;
+import com.chess.engine.classic.board.Move;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class ZobristTest {
+
+    /**
+     * the incremental key of every reachable board must be the one computed from scratch
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 5, 6, 7, 8})
+    void testIncrementalKey(int seed) {
+        Board board = Board.createStandardBoard();
+        final Random rand = new Random(seed);
+        int nbStep = 0;
+        while (!BoardUtils.isEndGame(board) && nbStep++ < AbstractGame.NUMBER_OF_MAX_STEPS) {
+            final List<Move> legalMoves = board.currentPlayer().getLegalMoves(Move.MoveStatus.DONE);
+            final Board current = board;
+            for (final Move move : legalMoves) {
+                final Board next = move.execute();
+                assertEquals(Zobrist.calculateKey(next.getBitBoard()), next.getZobristKey(), () -> String.format("%s\n%s", move, current));
+                assertEquals(Zobrist.calculateKey(next.getBitBoard(), move.getAllegiance()), Zobrist.calculatePiecesKey(move));
+            }
+            board = board.currentPlayer().executeMove(legalMoves.get(rand.nextInt(legalMoves.size())));
+        }
+        log.info("[{}] nbStep:{}", seed, nbStep);
+    }
+
+    @Test
+    void testSpecialMoves() {
+        // promotion with capture, castles and en passant
+        assertIncremental(Board.createBoard("ke1,rh1,ra1,b7", "ke8,nc8,e4", Alliance.WHITE), "b7-c8");
+        assertIncremental(Board.createBoard("ke1kq,rh1,ra1", "ke8", Alliance.WHITE), "e1-g1");
+        assertIncremental(Board.createBoard("ke1kq,rh1,ra1", "ke8", Alliance.WHITE), "e1-c1");
+        final Board board = Board.createBoard("ke1,d2", "ke8,e4", Alliance.WHITE);
+        final Board afterJump = assertIncremental(board, "d2-d4");
+        assertIncremental(afterJump, "e4-d3");
+    }
+
+    @Test
+    void testTransposition() {
+        final Board board1 = play(Board.createStandardBoard(), "g1-f3", "g8-f6", "b1-c3");
+        final Board board2 = play(Board.createStandardBoard(), "b1-c3", "g8-f6", "g1-f3");
+        assertEquals(board1.getZobristKey(), board2.getZobristKey());
+        assertNotEquals(Board.createBoard("ke1,d2", "ke8", Alliance.WHITE).getZobristKey(),
+                Board.createBoard("ke1,d2", "ke8", Alliance.BLACK).getZobristKey(),
+                "side to move must be part of the key");
+    }
+
+    private static Board assertIncremental(final Board board, final String move) {
+        final Board next = play(board, move);
+        assertEquals(Zobrist.calculateKey(next.getBitBoard()), next.getZobristKey(), next::toString);
+        return next;
+    }
+
+    private static Board play(Board board, final String... moves) {
+        for (final String move : moves) {
+            board = board.currentPlayer().getMove(move).orElseThrow().execute();
+        }
+        return board;
+    }
+
+}
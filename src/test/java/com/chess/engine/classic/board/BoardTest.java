@@ -8,9 +8,12 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Random;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -108,4 +111,31 @@ class BoardTest {
         Board board = Board.createBoard("a2,pb3,ke1", "pa5,b6,ke8", Alliance.WHITE);
         log.info("board:\n{}", board);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testLazyLegalMoves() {
+        Board board = Board.createStandardBoard().whitePlayer().executeMove("e2-e4");
+        List<Move> legalMoves = board.blackPlayer().getLegalMoves();
+        assertSame(legalMoves, board.blackPlayer().getLegalMoves());
+        List<Move> doneMoves = board.blackPlayer().getLegalMoves(Move.MoveStatus.DONE);
+        assertSame(doneMoves, board.blackPlayer().getLegalMoves(Move.MoveStatus.DONE));
+        assertEquals(20, doneMoves.size());
+        assertFalse(board.blackPlayer().isInCheck());
+        assertFalse(board.blackPlayer().isInStaleMate());
+        // castles are still generated once the squares are free
+        board = Board.createBoard("ke1k,rh1,a2", "ke8,a7", Alliance.WHITE);
+        assertTrue(board.whitePlayer().getLegalMoves().stream().anyMatch(Move::isCastlingMove));
+        board = Board.createBoard("ke1k,rh1,a2", "ke8,rf8,a7", Alliance.WHITE);
+        assertFalse(board.whitePlayer().getLegalMoves().stream().anyMatch(Move::isCastlingMove));
+    }
+
+    @Test
+    void testLazyPieces() {
+        Board board = Board.createStandardBoard().whitePlayer().executeMove("e2-e4");
+        assertSame(board.getWhitePieces(), board.whitePlayer().getActivePieces());
+        assertSame(board.getBlackPieces(), board.blackPlayer().getActivePieces());
+        assertSame(board.getAllPieces(), board.getAllPieces());
+        assertEquals(16, board.getWhitePieces().size());
+        assertEquals(32, board.getAllPieces().size());
+    }
+}
@@ -0,0 +1,67 @@
+package com.chess.engine.classic.board;
+
+import com.chess.engine.bitboards.MutableBoard;
+import com.chess.pgn.FenUtilities;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Slf4j
+class PerftTest {
+
+    /**
+     * depth kept small enough for the unit tests, use {@link Perft#main} for the deeper runs
+     */
+    private static final int DEPTH = 3;
+
+    @ParameterizedTest
+    @EnumSource(Perft.Position.class)
+    void testReferencePositions(Perft.Position position) {
+        final Perft.PerftResult result = Perft.run(position.createBoard(), DEPTH, false);
+        log.info("[{}] depth:{} {}", position, DEPTH, result);
+        assertEquals(position.getNodes(DEPTH), result.nodes(), position.getFen());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Perft.Position.class)
+    void testParallel(Perft.Position position) {
+        final int depth = DEPTH + 1;
+        final long nodes = Perft.perft(position.createBoard(), depth, ForkJoinPool.commonPool());
+        assertEquals(position.getNodes(depth), nodes, position.getFen());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Perft.Position.class)
+    void testIntMoves(Perft.Position position) {
+        final int depth = DEPTH + 1;
+        final MutableBoard mutableBoard = MutableBoard.fromBoard(position.createBoard());
+        final Perft.PerftResult result = Perft.run(mutableBoard, depth);
+        log.info("[{}] int moves depth:{} {}", position, depth, result);
+        assertEquals(position.getNodes(depth), result.nodes(), position.getFen());
+        assertEquals(0, mutableBoard.getPly());
+    }
+
+    @Test
+    void testDivide() {
+        final Map<String, Long> divide = Perft.divide(Perft.Position.KIWIPETE.createBoard(), 2);
+        assertEquals(Perft.Position.KIWIPETE.getNodes(1), divide.size());
+        assertEquals(Perft.Position.KIWIPETE.getNodes(2), divide.values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(43L, divide.get("e1g1"));
+        assertEquals(43L, divide.get("e1c1"));
+    }
+
+    @Test
+    void testEnPassantFromFEN() {
+        // only legal moves: the en passant capture given by the FEN and the king moves
+        final Board board = FenUtilities.createGameFromFEN("8/8/8/2k5/3Pp3/8/8/4K3 b - d3 0 1");
+        assertEquals(9, Perft.perft(board, 1));
+        assertEquals(1L, Perft.divide(board, 1).get("e4d3"));
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.chess.engine.classic.player.ai;
+
+import com.chess.engine.classic.Alliance;
+import com.chess.engine.classic.board.Board;
+import com.chess.engine.classic.board.Move;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class LazySMPTest {
+
+    @Test
+    void testLazySMP() {
+        final Board board = Board.createBoard("kg1,rf1,qd1,e4,f2,g2,h2", "kg8,rf8,qd8,e5,f7,g7,h7", Alliance.WHITE);
+        final Move singleThreadMove = new StockAlphaBeta(3, new TranspositionTable(16)).execute(board);
+        final TranspositionTable transpositionTable = new TranspositionTable(16);
+        final MoveStrategy lazySMP = new LazySMP(3, 4, transpositionTable, StockAlphaBeta::new);
+        final Move move = lazySMP.execute(board);
+        // one new search per move, shared by the main search and the helpers
+        assertEquals(1, transpositionTable.getGeneration());
+        assertTrue(board.currentPlayer().getLegalMoves().contains(move));
+        assertTrue(lazySMP.getNumBoardsEvaluated() > 0);
+        assertTrue(lazySMP.getTranspositionHits() + lazySMP.getTranspositionMisses() > 0);
+        log.info("single thread:{} lazy SMP:{} hits:{} cutoffs:{}", singleThreadMove, move,
+                lazySMP.getTranspositionHits(), lazySMP.getTranspositionCutoffs());
+    }
+
+    @Test
+    void testStop() {
+        final StockAlphaBeta strategy = new StockAlphaBeta(3, new TranspositionTable(10));
+        strategy.stop();
+        assertThrows(SearchStoppedException.class, () -> strategy.execute(Board.createStandardBoard()));
+    }
+
+}
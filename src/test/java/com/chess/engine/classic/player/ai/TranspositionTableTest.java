@@ -0,0 +1,88 @@
+package com.chess.engine.classic.player.ai;
+
+import com.chess.engine.classic.Alliance;
+import com.chess.engine.classic.board.Board;
+import com.chess.engine.classic.board.Move;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class TranspositionTableTest {
+
+    @Test
+    void testStoreAndProbe() {
+        final TranspositionTable transpositionTable = new TranspositionTable(10);
+        final Board board = Board.createStandardBoard();
+        final Move move = board.currentPlayer().getMove("e2-e4").orElseThrow();
+        final long key = board.getZobristKey();
+        assertEquals(TranspositionTable.EMPTY, transpositionTable.probe(key));
+
+        transpositionTable.store(key, 3, -25, -100, 100, move);
+        final long entry = transpositionTable.probe(key);
+        assertEquals(-25, TranspositionTable.score(entry));
+        assertEquals(3, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.Bound.EXACT, TranspositionTable.bound(entry));
+        assertSame(move, TranspositionTable.bestMoveFirst(board.currentPlayer().getLegalMoves(), entry).iterator().next());
+        // another key on the same slot is not a hit
+        assertEquals(TranspositionTable.EMPTY, transpositionTable.probe(key ^ (1L << 40)));
+
+        // depth-preferred in the same search, replaced by the next search
+        transpositionTable.store(key, 2, 500, -100, 100, null);
+        assertEquals(3, TranspositionTable.depth(transpositionTable.probe(key)));
+        transpositionTable.newSearch();
+        transpositionTable.store(key, 2, 500, -100, 100, null);
+        assertEquals(TranspositionTable.Bound.LOWER, TranspositionTable.bound(transpositionTable.probe(key)));
+        final List<Move> moves = new ArrayList<>(board.currentPlayer().getLegalMoves());
+        assertEquals(moves, TranspositionTable.bestMoveFirst(moves, transpositionTable.probe(key)));
+    }
+
+    @Test
+    void testCutoff() {
+        final TranspositionTable transpositionTable = new TranspositionTable(10);
+        transpositionTable.store(1L, 4, -200, -100, 100, null);
+        final long upper = transpositionTable.probe(1L);
+        assertEquals(TranspositionTable.Bound.UPPER, TranspositionTable.bound(upper));
+        assertTrue(TranspositionTable.isCutoff(upper, 4, -150, 100));
+        assertFalse(TranspositionTable.isCutoff(upper, 4, -250, 100));
+        assertFalse(TranspositionTable.isCutoff(upper, 5, -150, 100), "entry not deep enough");
+    }
+
+    @Test
+    void testSharedByStrategies() {
+        final TranspositionTable transpositionTable = new TranspositionTable(16);
+        final Board board = Board.createBoard("kg6,ra1,b2", "kg8,h7", Alliance.WHITE);
+        final StockAlphaBeta stockAlphaBeta = new StockAlphaBeta(3, transpositionTable);
+        final Move stockMove = stockAlphaBeta.execute(board);
+        assertTrue(stockAlphaBeta.getTranspositionMisses() > 0);
+
+        // the next searches of the same position find the entries of the first one
+        final StockAlphaBeta secondStockAlphaBeta = new StockAlphaBeta(3, transpositionTable);
+        assertEquals(stockMove, secondStockAlphaBeta.execute(board));
+        assertTrue(secondStockAlphaBeta.getTranspositionCutoffs() > 0);
+        assertTrue(secondStockAlphaBeta.getNumBoardsEvaluated() < stockAlphaBeta.getNumBoardsEvaluated());
+
+        final IterativeDeepening iterativeDeepening = new IterativeDeepening(3, transpositionTable);
+        iterativeDeepening.execute(board);
+        assertTrue(iterativeDeepening.getTranspositionHits() > 0);
+        log.info("hits:{} misses:{} cutoffs:{}", iterativeDeepening.getTranspositionHits(),
+                iterativeDeepening.getTranspositionMisses(), iterativeDeepening.getTranspositionCutoffs());
+    }
+
+    @Test
+    void testTablePerStrategy() {
+        final Board board = Board.createBoard("kg6,ra1,b2", "kg8,h7", Alliance.WHITE);
+        final StockAlphaBeta stockAlphaBeta = new StockAlphaBeta(3);
+        stockAlphaBeta.execute(board);
+        // a strategy built without a table starts with an empty one, the entries of the first search are not seen
+        final StockAlphaBeta secondStockAlphaBeta = new StockAlphaBeta(3);
+        secondStockAlphaBeta.execute(board);
+        assertEquals(stockAlphaBeta.getNumBoardsEvaluated(), secondStockAlphaBeta.getNumBoardsEvaluated());
+        assertEquals(stockAlphaBeta.getTranspositionCutoffs(), secondStockAlphaBeta.getTranspositionCutoffs());
+    }
+
+}